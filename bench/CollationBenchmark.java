@@ -0,0 +1,81 @@
+import java.nio.file.Path;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares sorting one large directory's worth of names with
+ * AlphabeticalFileSorter, with Collator.compare called directly from the
+ * comparator, and with CollationSorter's precomputed CollationKeys.
+ * 
+ * Build and run from the repository root:
+ * 
+ * javac -d target $(ls src/*.java | grep -v 'Test\.java$')
+ * javac -cp target -d target bench/CollationBenchmark.java
+ * java -cp target CollationBenchmark [entries] [locale]
+ * 
+ * Defaults to 100000 entries and the "de" locale. Names mix ASCII letters,
+ * accented Latin letters and digits, and the same names are sorted every round.
+ */
+public class CollationBenchmark {
+
+  private static final String ALPHABET =
+      "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZäöüÄÖÜßéèêàçñåøæ0123456789_-.";
+
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int MEASURED_ROUNDS = 10;
+
+  /**
+   * A sort under test.
+   */
+  private interface Sort {
+    void sort(TreeEntry[] entries);
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    Locale locale = Locale.forLanguageTag(args.length > 1 ? args[1] : "de");
+    TreeEntry[] names = generate(count, new Random(42));
+
+    Collator collator = Collator.getInstance(locale);
+    CollationSorter sorter = new CollationSorter(locale);
+
+    System.out.printf("%d entries, locale %s%n", count, locale.toLanguageTag());
+    System.out.printf("%-26s %10s%n", "sort", "median ms");
+    report("AlphabeticalFileSorter", names, AlphabeticalFileSorter::sort);
+    report("Collator.compare", names,
+        entries -> Arrays.sort(entries, (a, b) -> collator.compare(a.getName(), b.getName())));
+    report("CollationSorter (keys)", names, sorter::sort);
+  }
+
+  private static void report(String label, TreeEntry[] names, Sort sort) {
+    long[] times = new long[MEASURED_ROUNDS];
+    for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+      TreeEntry[] copy = names.clone();
+      long start = System.nanoTime();
+      sort.sort(copy);
+      long elapsed = System.nanoTime() - start;
+      if (round >= WARMUP_ROUNDS) {
+        times[round - WARMUP_ROUNDS] = elapsed;
+      }
+    }
+    Arrays.sort(times);
+    System.out.printf("%-26s %10.1f%n", label, times[MEASURED_ROUNDS / 2] / 1e6);
+  }
+
+  private static TreeEntry[] generate(int count, Random random) {
+    TreeEntry[] entries = new TreeEntry[count];
+    Path parent = Path.of("bench");
+    StringBuilder name = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      name.setLength(0);
+      int length = 4 + random.nextInt(16);
+      for (int j = 0; j < length; j++) {
+        name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+      }
+      entries[i] = new TreeEntry(parent, name.toString(), 1, null);
+    }
+    return entries;
+  }
+}
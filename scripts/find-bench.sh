@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+#
+# Compares `--find GLOB` against running find(1) and formatting its output
+# into the same indented tree with sort and awk.
+#
+# Usage: scripts/find-bench.sh [directory] [glob] [runs]
+#
+# Each command is run once to warm the page cache and then the given number
+# of times (default 10); the median and minimum wall-clock times are
+# reported in ms. Both commands print the matches and their ancestors.
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+DIR="${1:-$ROOT}"
+GLOB="${2:-*.java}"
+RUNS="${3:-10}"
+
+mkdir -p "$ROOT/target"
+javac -encoding UTF-8 -d "$ROOT/target" $(ls "$ROOT"/src/*.java | grep -v 'Test\.java$')
+
+# Prints the matches of find with every ancestor directory, indented like Truffula.
+find_and_format() {
+  find "$DIR" -name "$GLOB" \
+    | awk -v root="$DIR" '{
+        rel = substr($0, length(root) + 2); n = split(rel, parts, "/"); path = ""
+        for (i = 1; i < n; i++) { path = path "/" parts[i]; print path "/" }
+        print "/" rel
+      }' \
+    | sort -u -f \
+    | awk -F/ '{ dir = ($NF == ""); depth = NF - (dir ? 2 : 1); name = dir ? $(NF - 1) "/" : $NF
+                 printf "%*s%s\n", 3 * depth, "", name }'
+}
+
+# Prints the milliseconds the command takes, with its output discarded.
+run_ms() {
+  local start end
+  start=$(date +%s%N)
+  "$@" > /dev/null 2>&1
+  end=$(date +%s%N)
+  echo $(( (end - start) / 1000000 ))
+}
+
+# Prints "median min" of the command's times over all runs.
+measure() {
+  run_ms "$@" > /dev/null
+  for _ in $(seq "$RUNS"); do
+    run_ms "$@"
+  done | sort -n | awk '{ t[NR] = $1 } END { print t[int((NR + 1) / 2)], t[1] }'
+}
+
+printf '%-28s %10s %10s\n' "command" "median ms" "min ms"
+read -r median min < <(measure java -cp "$ROOT/target" App -nc --find "$GLOB" "$DIR")
+printf '%-28s %10s %10s\n' "App --find" "$median" "$min"
+read -r median min < <(measure find_and_format)
+printf '%-28s %10s %10s\n' "find | sort | awk" "$median" "$min"
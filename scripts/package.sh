@@ -0,0 +1,75 @@
+#!/usr/bin/env bash
+#
+# Builds a fast-starting Truffula launcher in target/package:
+#
+#   truffula.jar  - the application classes (AppCDS only archives classes from jars)
+#   runtime/      - a jlink runtime containing the modules Truffula needs, plus the
+#                   locale data and extra charsets that --locale and file names rely on,
+#                   with the JDK's own class-data-sharing archive regenerated for it
+#   truffula.jsa  - an AppCDS archive of the classes loaded by training runs of App.main
+#   truffula      - a launcher script that starts the trimmed runtime with the archive
+#
+# Usage: scripts/package.sh [training-directory]
+#
+# The training directory (default: the repository root) is printed several
+# times: plainly with hidden files and color, sorted by time, collated for a
+# locale and searched with --grep, so that the classes each of those uses are
+# archived too. The classes loaded by all runs are merged into one archive.
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+OUT="$ROOT/target/package"
+CLASSES="$OUT/classes"
+TRAINING_DIR="${1:-$ROOT}"
+
+rm -rf "$OUT"
+mkdir -p "$CLASSES"
+
+echo "Compiling..."
+javac -encoding UTF-8 -d "$CLASSES" $(ls "$ROOT"/src/*.java | grep -v 'Test\.java$')
+jar --create --file "$OUT/truffula.jar" --main-class App -C "$CLASSES" .
+
+# jdeps only sees java.base; the locale data (Collator rules for --locale) and
+# the extra charsets are loaded by service lookup, so they are always added
+MODULES="$(jdeps --print-module-deps --ignore-missing-deps "$OUT/truffula.jar"),jdk.localedata,jdk.charsets"
+echo "Linking runtime with modules: $MODULES"
+jlink --add-modules "$MODULES" \
+  --strip-debug --no-header-files --no-man-pages \
+  --output "$OUT/runtime"
+# jlink drops the JDK's default CDS archive; it is what the launcher falls back to
+"$OUT/runtime/bin/java" -Xshare:dump > /dev/null
+
+echo "Training AppCDS archive on $TRAINING_DIR..."
+TRAINING_RUNS=(
+  "-h"
+  "--sort mtime"
+  "--locale sv"
+  "--grep class"
+)
+for i in "${!TRAINING_RUNS[@]}"; do
+  # The options are split on spaces on purpose
+  "$OUT/runtime/bin/java" -XX:DumpLoadedClassList="$OUT/training-$i.classlist" \
+    -jar "$OUT/truffula.jar" ${TRAINING_RUNS[$i]} "$TRAINING_DIR" > /dev/null
+done
+# A class list may be merged with another by keeping the first copy of each line
+awk '!seen[$0]++' "$OUT"/training-*.classlist > "$OUT/truffula.classlist"
+"$OUT/runtime/bin/java" -Xshare:dump -XX:SharedClassListFile="$OUT/truffula.classlist" \
+  -XX:SharedArchiveFile="$OUT/truffula.jsa" -cp "$OUT/truffula.jar" > /dev/null
+rm -f "$OUT"/training-*.classlist "$OUT/truffula.classlist"
+
+cat > "$OUT/truffula" <<'LAUNCHER'
+#!/usr/bin/env sh
+# Starts Truffula on the trimmed runtime with its class-data-sharing archive.
+# Tiered compilation stops at C1 and the serial collector is used because a
+# one-shot tree walk finishes long before C2 or a parallel collector pay off.
+DIR="$(cd "$(dirname "$0")" && pwd)"
+exec "$DIR/runtime/bin/java" \
+  -XX:SharedArchiveFile="$DIR/truffula.jsa" -Xshare:auto \
+  -XX:TieredStopAtLevel=1 -XX:+UseSerialGC \
+  -jar "$DIR/truffula.jar" "$@"
+LAUNCHER
+chmod +x "$OUT/truffula"
+
+rm -rf "$CLASSES"
+echo "Done: $OUT/truffula"
@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+#
+# Compares time-to-first-line of the packaged launcher against plain
+# `java -cp target App`, the way the CI workflow runs Truffula.
+#
+# Usage: scripts/startup-bench.sh [directory] [runs]
+#
+# Run scripts/package.sh first. Each command is run once to warm the page
+# cache and then the given number of times (default 20); the median and
+# minimum time until the first line of output arrives are reported in ms.
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+DIR="${1:-$ROOT/src}"
+RUNS="${2:-20}"
+LAUNCHER="$ROOT/target/package/truffula"
+
+if [ ! -x "$LAUNCHER" ]; then
+  echo "Missing $LAUNCHER, run scripts/package.sh first" >&2
+  exit 1
+fi
+
+mkdir -p "$ROOT/target"
+javac -encoding UTF-8 -d "$ROOT/target" $(ls "$ROOT"/src/*.java | grep -v 'Test\.java$')
+
+# Prints the milliseconds between starting the command and reading its first line.
+first_line_ms() {
+  local start end
+  start=$(date +%s%N)
+  end=$( { read -r _; date +%s%N; } < <("$@" 2> /dev/null) )
+  echo $(( (end - start) / 1000000 ))
+}
+
+# Prints "median min" of the first-line times of the command over all runs.
+measure() {
+  first_line_ms "$@" > /dev/null
+  for _ in $(seq "$RUNS"); do
+    first_line_ms "$@"
+  done | sort -n | awk '{ t[NR] = $1 } END { print t[int((NR + 1) / 2)], t[1] }'
+}
+
+printf '%-28s %10s %10s\n' "command" "median ms" "min ms"
+read -r median min < <(measure java -cp "$ROOT/target" App -nc "$DIR")
+printf '%-28s %10s %10s\n' "java -cp target App" "$median" "$min"
+read -r median min < <(measure "$LAUNCHER" -nc "$DIR")
+printf '%-28s %10s %10s\n' "target/package/truffula" "$median" "$min"
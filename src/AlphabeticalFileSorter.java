@@ -19,4 +19,16 @@ public class AlphabeticalFileSorter {
     Arrays.sort(files, (f1, f2) -> f1.getName().compareToIgnoreCase(f2.getName()));
     return files;
   }
+
+  /**
+   * Sorts an array of tree entries alphabetically by name, ignoring case.
+   * Entries are ordered exactly as sort(File[]) would order the same files.
+   *
+   * @param entries the array of entries to be sorted
+   * @return the sorted array of entries
+   */
+  public static TreeEntry[] sort(TreeEntry[] entries) {
+    Arrays.sort(entries, (e1, e2) -> e1.getName().compareToIgnoreCase(e2.getName()));
+    return entries;
+  }
 }
@@ -0,0 +1,76 @@
+/**
+ * A TextColor given by any ANSI Select Graphic Rendition (SGR) parameters.
+ * 
+ * The parameters are the part of the escape code between "\033[" and "m",
+ * in the same form LS_COLORS uses them:
+ * - "01;34"          : Bold blue
+ * - "38;5;208"       : Color 208 of the 256-color palette
+ * - "38;2;255;128;0" : The 24-bit true color with red 255, green 128, blue 0
+ */
+public class AnsiColor implements TextColor {
+
+  /**
+   * The full escape code.
+   */
+  private final String code;
+
+  /**
+   * Constructs an AnsiColor from SGR parameters.
+   *
+   * @param parameters the SGR parameters, digits separated by semicolons
+   * @throws IllegalArgumentException if the parameters contain anything else
+   */
+  public AnsiColor(String parameters) {
+    if (parameters.isEmpty() || !parameters.chars().allMatch(c -> c == ';' || (c >= '0' && c <= '9'))) {
+      throw new IllegalArgumentException("Invalid color: " + parameters);
+    }
+    this.code = "\033[" + parameters + "m";
+  }
+
+  /**
+   * Returns a color from the 256-color palette.
+   *
+   * @param index the palette index, from 0 to 255
+   * @return the palette color
+   */
+  public static AnsiColor palette(int index) {
+    return new AnsiColor("38;5;" + index);
+  }
+
+  /**
+   * Returns a 24-bit true color.
+   *
+   * @param red   the red component, from 0 to 255
+   * @param green the green component, from 0 to 255
+   * @param blue  the blue component, from 0 to 255
+   * @return the true color
+   */
+  public static AnsiColor rgb(int red, int green, int blue) {
+    return new AnsiColor("38;2;" + red + ";" + green + ";" + blue);
+  }
+
+  @Override
+  public String getCode() {
+    return code;
+  }
+
+  /**
+   * Returns the ANSI escape code, so the color can be used directly in print statements.
+   *
+   * @return the ANSI escape code as a String
+   */
+  @Override
+  public String toString() {
+    return code;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof AnsiColor && ((AnsiColor) other).code.equals(code);
+  }
+
+  @Override
+  public int hashCode() {
+    return code.hashCode();
+  }
+}
@@ -1,3 +1,19 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
 public class App {
   
   /**
@@ -13,19 +29,92 @@ public class App {
    * 
    * Usage Example:
    * 
-   * Arguments Format: [-h] [-nc] path
+   * Arguments Format: [-h] [-nc] [-U] [--sort MODE] [--locale TAG] [--sort-budget N]
+   *                   [--timeout MS] [--deadline MS] [--grep PATTERN] [--find GLOB]
+   *                   [--estimate] [--collapse N] [--ls-colors] [--output FILE]
+   *                   [--type f|d|l] [--min-size SIZE] [--newer-than TIME]
+   *                   [--older-than TIME] [--progress] [--show-errors]
+   *                   [--format text|html] [--roots-from FILE] path...
    * 
    * Flags:
    * - -h   : Show hidden files (defaults to false).
    * - -nc  : Do not use color (color is enabled by default).
+   * - -U   : Do not sort. Entries stream in the order the file system returns them,
+   *          using memory proportional to the depth of the tree. Overrides the
+   *          sorting flags below.
+   * - --sort MODE : Order entries by name (default), size (largest first),
+   *                 mtime (newest first), dirs-first, or natural (file2 before file10).
+   * - --locale TAG : Order entries the way speakers of a language expect, e.g. "de"
+   *                  or "sv-SE". Takes precedence over --sort. A tag that is not a
+   *                  well-formed BCP 47 language tag is rejected.
+   * - --sort-budget N : Hold at most N names in memory per directory. Larger directories
+   *                     are sorted in runs spilled to temporary files and merged while
+   *                     printing, so huge directories print with a small heap.
+   * - --timeout MS : Give up on any directory that takes longer than MS milliseconds to
+   *                  list, such as one on a hung network mount. It is printed with a
+   *                  "[timed out]" marker and the rest of the tree carries on.
+   * - --deadline MS : Stop listing directories once MS milliseconds have passed. The
+   *                   remaining directories are printed, marked "[timed out]".
+   * - --grep PATTERN : Print only the text files whose contents match the regular
+   *                    expression, and the directories above them. Files are searched
+   *                    in parallel; large files are memory-mapped and binary files skipped.
+   * - --find GLOB : Print only the entries whose names match the glob, such as "*.java",
+   *                 and the directories above them. Names are tested in parallel.
+   * - --estimate : Instead of the tree, print the estimated number of files, directories
+   *                and bytes below each path, with 95% confidence intervals. The estimate
+   *                comes from random probes that list at most 2000 directories.
+   * - --collapse N : Print each directory with more than N entries as one line of counts,
+   *                  such as "cache/ [48213 files, 12 dirs]", without listing its contents.
+   *                  Directories are counted from their names, but telling subdirectories
+   *                  from files in a collapsed directory costs one stat per entry.
+   * - --ls-colors : Color directories, links, executables and extensions the way ls does,
+   *                 as configured by LS_COLORS (bold blue directories and so on if unset).
+   *                 Entries LS_COLORS has no color for keep the depth colors, as do
+   *                 all entries in HTML output.
+   * - --output FILE : Write the tree to FILE instead of standard output. If the name
+   *                   ends in ".gz" the tree is gzip compressed while it is written,
+   *                   on a thread of its own, so compressing does not slow the walk.
+   * - --type f|d|l : Print only files, directories or symbolic links, and the
+   *                  directories above them.
+   * - --min-size SIZE : Print only entries of at least SIZE bytes, such as 500, 64k,
+   *                     10M or 2G, and the directories above them.
+   * - --newer-than TIME : Print only entries modified after TIME, and the directories
+   *                       above them. TIME is an age such as 90m, 12h, 30d or 2w, or
+   *                       a date such as 2024-01-31.
+   * - --older-than TIME : Print only entries modified before TIME, and the directories
+   *                       above them. Without --type, the size and age filters only
+   *                       match entries that are not directories. Filters are checked
+   *                       against attributes read while listing, with no extra stat,
+   *                       so "--min-size 1G --older-than 52w" finds big stale files
+   *                       in one walk.
+   * - --progress : Every second, write the number of entries visited so far, the
+   *                rate, the elapsed time and the path being walked to standard
+   *                error, and a total at the end. Useful when the tree itself is
+   *                redirected to a file.
+   * - --show-errors : Print directories that could not be listed, and entries that
+   *                   could not be read, with a marker saying why: "[permission denied]",
+   *                   "[vanished]" or "[unreadable]". At the end, write how many there
+   *                   were of each to standard error. Without it, such entries are
+   *                   printed plainly, as before.
+   * - --format text|html : Print indented text (the default), or an HTML page in
+   *                        which every directory is a collapsible <details> element,
+   *                        colored with CSS classes named after the depth colors.
+   *                        The page is written as the tree is walked, so it can be
+   *                        combined with --output for very large trees.
+   * - --roots-from FILE : Also print every directory listed in FILE, one per line
+   *                       ("-" reads the list from standard input).
    * 
    * Path:
    * - The absolute or relative path to the directory whose contents will be printed.
+   * - A path may also name a .tar, .tar.gz or .tgz archive. The tree inside it is
+   *   printed from its headers alone, in one pass, without extracting anything.
+   * - Several paths may be given. They are printed together on a shared thread pool,
+   *   each as one contiguous tree, in the order they were given.
    * 
    * Behavior:
    * - If color is disabled, all text will be printed in white.
    * - The order of flags is unimportant.
-   * - The path argument is mandatory.
+   * - At least one path argument is mandatory.
    * 
    * Examples:
    * 
@@ -41,15 +130,80 @@ public class App {
    * Error messages will be shown for illegal arguments or a not found file
    * 
    * java src/App.java -nc -h src
+   * 
+   * Daemon Mode:
+   * - --daemon SOCKET        : Serve trees over a Unix domain socket until killed,
+   *                            sharing warm listing caches between requests.
+   * - --client SOCKET [args] : Ask the daemon on SOCKET to print a tree, where args
+   *                            are in the usual [-h] [-nc] path format. An --output
+   *                            file is written by the client.
+   * 
+   * java App --daemon /tmp/truffula.sock
+   * java App --client /tmp/truffula.sock -nc src
    */
   public static void main(String[] args) throws Exception {
+    if(args.length >= 2 && args[0].equals("--daemon")){
+      TruffulaDaemon daemon = new TruffulaDaemon(Path.of(args[1]));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          daemon.close();
+        } catch (IOException e) {
+          System.err.println("Could not remove socket: " + e.getMessage());
+        }
+      }));
+      daemon.serve();
+      return;
+    }
+    if(args.length >= 2 && args[0].equals("--client")){
+      // The daemon does not write files, so the client writes --output itself
+      List<String> request = new ArrayList<>(Arrays.asList(args).subList(2, args.length));
+      File outputFile = null;
+      int output = request.indexOf("--output");
+      if(output >= 0 && output + 1 < request.size()){
+        outputFile = new File(request.remove(output + 1));
+        request.remove(output);
+      }
+      try (OutputStream out = openOutput(outputFile)) {
+        TruffulaClient.send(Path.of(args[1]), request.toArray(new String[0]), out);
+      }
+      return;
+    }
+
     // TODO: Implement this
     
     // You should create a TruffulaOptions object using the args and
     TruffulaOptions options = new TruffulaOptions(args);
-    // pass it to a new TruffulaPrinter that uses System.out
-    TruffulaPrinter truffula = new TruffulaPrinter(options);
+    // pass it to a new TruffulaPrinter that uses standard output or the output
+    // file, buffered so that large trees are not flushed line by line
+    PrintStream out = new PrintStream(openOutput(options.getOutputFile()), false);
+    TruffulaPrinter truffula = new TruffulaPrinter(options, out);
     // Then, call printTree on the TruffulaPrinter
     truffula.printTree();
+    // Closing waits for a compressed file to be finished
+    out.close();
+    if(out.checkError()){
+      System.err.println("Could not write the tree");
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Opens the stream the tree is written to, buffered so large trees are not
+   * written line by line. A file name ending in ".gz" is compressed by a GzipWriter.
+   *
+   * @param file the output file, or null for standard output
+   * @return the stream to print to
+   * @throws IOException if the file cannot be opened
+   */
+  private static OutputStream openOutput(File file) throws IOException {
+    if(file == null){
+      return new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16);
+    }
+    if(file.getName().endsWith(".gz")){
+      return new GzipWriter(file.toPath(), Deflater.DEFAULT_COMPRESSION);
+    }
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    return new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
   }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Decides whether an entry's type, size and age match, as used by the
+ * --type, --min-size, --newer-than and --older-than filters.
+ *
+ * The tests use only the attributes read when the entry's directory was
+ * listed, so filtering a walk costs no file system calls of its own. The one
+ * exception is --type l: a link to an existing file is listed with the
+ * attributes of its target, so telling that it is a link takes one lstat,
+ * made only for entries that pass every other test.
+ *
+ * Without a type, only entries that are not directories match; directories
+ * are printed only above the entries that do. An AttributeFilter holds no
+ * state besides its limits, so one instance can be used from many threads at once.
+ */
+public class AttributeFilter {
+
+  /**
+   * The type entries must have: 'f' for files, 'd' for directories, 'l' for
+   * symbolic links, or 0 for anything but a directory.
+   */
+  private final char type;
+
+  /**
+   * The smallest size, in bytes, that matches.
+   */
+  private final long minSize;
+
+  /**
+   * Entries last modified at or before this time do not match, or null.
+   */
+  private final Instant newerThan;
+
+  /**
+   * Entries last modified at or after this time do not match, or null.
+   */
+  private final Instant olderThan;
+
+  /**
+   * Constructs an AttributeFilter.
+   *
+   * @param type      'f', 'd' or 'l' for files, directories or links, or 0 for any non-directory
+   * @param minSize   the smallest size in bytes that matches, or 0 for any size
+   * @param newerThan the time entries must be modified after, or null
+   * @param olderThan the time entries must be modified before, or null
+   */
+  public AttributeFilter(char type, long minSize, Instant newerThan, Instant olderThan) {
+    this.type = type;
+    this.minSize = minSize;
+    this.newerThan = newerThan;
+    this.olderThan = olderThan;
+  }
+
+  /**
+   * Returns the filter the given options ask for.
+   *
+   * @param options the options of a walk
+   * @return the filter, or null if the options set no type, size or age limit
+   */
+  public static AttributeFilter of(TruffulaOptions options) {
+    if (options.getEntryType() == 0 && options.getMinSize() == 0
+        && options.getNewerThan() == null && options.getOlderThan() == null) {
+      return null;
+    }
+    return new AttributeFilter(options.getEntryType(), options.getMinSize(),
+        options.getNewerThan(), options.getOlderThan());
+  }
+
+  /**
+   * Indicates whether the given entry has the type, size and age asked for.
+   *
+   * @param entry the entry to test
+   * @return true if the entry matches; false otherwise
+   */
+  public boolean matches(TreeEntry entry) {
+    BasicFileAttributes attributes = entry.getAttributes();
+    if (attributes == null) {
+      return false;
+    }
+    if (type == 'f' && !attributes.isRegularFile()
+        || type == 'd' && !attributes.isDirectory()
+        || type == 0 && attributes.isDirectory()) {
+      return false;
+    }
+    if (attributes.size() < minSize) {
+      return false;
+    }
+    if (newerThan != null || olderThan != null) {
+      Instant modified = attributes.lastModifiedTime().toInstant();
+      if (newerThan != null && !modified.isAfter(newerThan)
+          || olderThan != null && !modified.isBefore(olderThan)) {
+        return false;
+      }
+    }
+    return type != 'l' || attributes.isSymbolicLink() || Files.isSymbolicLink(entry.getPath());
+  }
+
+  /**
+   * Parses the value of --type.
+   *
+   * @param value "f", "d" or "l"
+   * @return the type character
+   * @throws IllegalArgumentException if the value is not a known type
+   */
+  public static char parseType(String value) {
+    if (value.equals("f") || value.equals("d") || value.equals("l")) {
+      return value.charAt(0);
+    }
+    throw new IllegalArgumentException("Expected f, d or l: " + value);
+  }
+
+  /**
+   * Parses a size such as "1500", "64k", "10M" or "2G". Suffixes count in
+   * powers of 1024 and may be upper or lower case.
+   *
+   * @param value the size
+   * @return the size in bytes
+   * @throws IllegalArgumentException if the value is not a size
+   */
+  public static long parseSize(String value) {
+    String digits = value;
+    int shift = 0;
+    if (!value.isEmpty()) {
+      int unit = "KMGT".indexOf(Character.toUpperCase(value.charAt(value.length() - 1)));
+      if (unit >= 0) {
+        shift = 10 * (unit + 1);
+        digits = value.substring(0, value.length() - 1);
+      }
+    }
+    try {
+      long size = Long.parseLong(digits);
+      if (size >= 0 && size <= Long.MAX_VALUE >> shift) {
+        return size << shift;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException("Expected a size such as 500, 64k or 10M: " + value);
+  }
+
+  /**
+   * Parses a point in time given either as an age, such as "90m", "12h",
+   * "30d" or "2w" before now, or as a date such as "2024-01-31", meaning the
+   * start of that day in the local time zone.
+   *
+   * @param value the age or date
+   * @param now   the time ages are counted back from
+   * @return the point in time
+   * @throws IllegalArgumentException if the value is neither an age nor a date
+   */
+  public static Instant parseTime(String value, Instant now) {
+    if (value.length() > 1) {
+      int unit = "smhdw".indexOf(Character.toLowerCase(value.charAt(value.length() - 1)));
+      if (unit >= 0) {
+        long[] seconds = {1, 60, 3600, 86_400, 604_800};
+        try {
+          long count = Long.parseLong(value.substring(0, value.length() - 1));
+          if (count >= 0) {
+            return now.minus(Duration.ofSeconds(count).multipliedBy(seconds[unit]));
+          }
+        } catch (NumberFormatException | ArithmeticException | DateTimeException e) {
+          // Reported below
+        }
+        throw new IllegalArgumentException("Expected an age such as 12h or 30d: " + value);
+      }
+    }
+    try {
+      return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Expected an age such as 30d or a date such as 2024-01-31: " + value);
+    }
+  }
+}
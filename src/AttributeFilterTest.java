@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AttributeFilterTest {
+
+  @Test
+  void testSizesAndAgesAreParsed() {
+    Instant now = Instant.parse("2024-06-01T12:00:00Z");
+
+    assertEquals(1500, AttributeFilter.parseSize("1500"));
+    assertEquals(64 * 1024, AttributeFilter.parseSize("64k"));
+    assertEquals(10L << 20, AttributeFilter.parseSize("10M"));
+    assertEquals(2L << 30, AttributeFilter.parseSize("2g"));
+    assertEquals(now.minus(Duration.ofHours(12)), AttributeFilter.parseTime("12h", now));
+    assertEquals(now.minus(Duration.ofDays(14)), AttributeFilter.parseTime("2w", now));
+    assertThrows(IllegalArgumentException.class, () -> AttributeFilter.parseSize("10X"));
+    assertThrows(IllegalArgumentException.class, () -> AttributeFilter.parseSize("-1"));
+    assertThrows(IllegalArgumentException.class, () -> AttributeFilter.parseTime("yesterday", now));
+    assertThrows(IllegalArgumentException.class, () -> AttributeFilter.parseType("x"));
+  }
+
+  @Test
+  void testLargeStaleFilesAndTheirDirectoriesArePrinted(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    Path root = Files.createDirectory(tempDir.resolve("root"));
+    Path logs = Files.createDirectories(root.resolve("logs").resolve("old"));
+    Path src = Files.createDirectory(root.resolve("src"));
+    FileTime stale = FileTime.from(Instant.now().minus(Duration.ofDays(400)));
+    Files.setLastModifiedTime(Files.write(logs.resolve("big-stale.log"), new byte[4096]), stale);
+    Files.setLastModifiedTime(Files.write(logs.resolve("small-stale.log"), new byte[10]), stale);
+    Files.write(root.resolve("logs").resolve("big-fresh.log"), new byte[4096]);
+    Files.setLastModifiedTime(Files.write(src.resolve("Main.java"), new byte[10]), stale);
+
+    // Act
+    String output = print(new String[] {"-nc", "--min-size", "2k", "--older-than", "52w", root.toString()});
+
+    // Assert: src and the small and fresh files are left out
+    assertEquals(lines("root/", "   logs/", "      old/", "         big-stale.log"), output);
+  }
+
+  @Test
+  void testTypeSelectsDirectories(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    Path root = Files.createDirectory(tempDir.resolve("root"));
+    Files.createDirectories(root.resolve("a").resolve("b"));
+    Files.write(root.resolve("a").resolve("file.txt"), new byte[1]);
+    Files.write(root.resolve("top.txt"), new byte[1]);
+
+    // Act
+    String directories = print(new String[] {"-nc", "--type", "d", root.toString()});
+    String files = print(new String[] {"-nc", "--type", "f", root.toString()});
+
+    // Assert
+    assertEquals(lines("root/", "   a/", "      b/"), directories);
+    assertEquals(lines("root/", "   a/", "      file.txt", "   top.txt"), files);
+  }
+
+  private static String print(String[] args) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new TruffulaPrinter(new TruffulaOptions(args), new PrintStream(output, true, StandardCharsets.UTF_8)).printTree();
+    return output.toString(StandardCharsets.UTF_8);
+  }
+
+  private static String lines(String... lines) {
+    StringBuilder expected = new StringBuilder();
+    for (String line : lines) {
+      expected.append(ConsoleColor.WHITE).append(line).append(System.lineSeparator()).append(ConsoleColor.RESET);
+    }
+    return expected.toString();
+  }
+}
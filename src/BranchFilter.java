@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Passes on only the matching entries of a walk and the directories above them.
+ * 
+ * Entries are given in the depth-first, pre-order of the walk, each with
+ * whether it matched. The directories on the path to the current entry are
+ * held back as pending ancestors until something below them matches; then
+ * the ones not yet passed on are passed on, in order, followed by the match.
+ * Directories with no match below them are dropped once the walk leaves
+ * them, without anything but the pending path ever having been held. Entries
+ * that did not match and are not directories can be left out entirely.
+ * 
+ * A BranchFilter is used by one thread at a time, such as the thread that
+ * walks the tree for TruffulaPrinter and collects the results of tests run
+ * in parallel, in walk order.
+ */
+public class BranchFilter {
+
+  /**
+   * The directories on the path to the current entry, from the root down.
+   */
+  private final List<TreeEntry> ancestors = new ArrayList<>();
+
+  /**
+   * How many of the ancestors, from the root down, have been passed on.
+   */
+  private int passed;
+
+  /**
+   * Receives the entries that are kept.
+   */
+  private final Consumer<TreeEntry> sink;
+
+  /**
+   * Constructs a BranchFilter.
+   *
+   * @param sink receives the matching entries and their ancestors, in walk order
+   */
+  public BranchFilter(Consumer<TreeEntry> sink) {
+    this.sink = sink;
+  }
+
+  /**
+   * Accepts the next entry of the walk.
+   *
+   * @param entry   the next entry, in pre-order
+   * @param matched whether the entry itself matched
+   */
+  public void accept(TreeEntry entry, boolean matched) {
+    // Leave every ancestor that is not above this entry
+    int depth = entry.getDepth();
+    while (!ancestors.isEmpty() && ancestors.get(ancestors.size() - 1).getDepth() >= depth) {
+      ancestors.remove(ancestors.size() - 1);
+    }
+    passed = Math.min(passed, ancestors.size());
+
+    if (matched) {
+      for (; passed < ancestors.size(); passed++) {
+        sink.accept(ancestors.get(passed));
+      }
+      sink.accept(entry);
+    }
+    if (entry.isDirectory()) {
+      ancestors.add(entry);
+      if (matched) {
+        passed = ancestors.size();
+      }
+    }
+  }
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A DirectoryLister that remembers listings across walks.
+ * 
+ * Each cached listing is stored together with the modification time, change
+ * time (on Unix) and file key (device and inode, where the platform has them)
+ * the directory had when it was listed. Adding, removing or renaming a child
+ * updates a directory's modification time, changing its permissions updates
+ * its change time, and replacing the directory changes its file key, so a
+ * cached listing is reused only while all are unchanged, and revalidating it
+ * costs one stat of the directory instead of a full listing plus a stat per
+ * child. A directory that could not be listed is cached the same way, with
+ * the reason, so it is reported as denied or unreadable until it changes.
+ * 
+ * The check is only as fine as the file system's timestamps. A change made
+ * within the same timestamp tick as the listing that was cached (up to two
+ * seconds on FAT, one second on some network and older file systems) leaves
+ * the timestamps as they were, and the stale listing is served until the
+ * directory changes again.
+ * 
+ * Because only the directory itself is checked, the attributes of children
+ * (such as their size) are as fresh as the last time the directory changed.
+ * That is accurate enough for printing the shape of a tree, which is what the
+ * daemon shares this cache for.
+ * 
+ * The cache holds a bounded number of directories and evicts the least
+ * recently used listing when full. It is safe to share between threads.
+ */
+public class CachingLister implements DirectoryLister {
+
+  /**
+   * Number of directories cached when no capacity is given.
+   */
+  public static final int DEFAULT_CAPACITY = 16_384;
+
+  /**
+   * Whether the default file system has the "unix" attribute view, which
+   * reads a directory's change time in the same stat as its modification time.
+   */
+  private static final boolean UNIX = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+
+  /**
+   * A listing, or the reason it failed, together with the directory's
+   * timestamps and file key it was valid for.
+   */
+  private static final class CachedListing {
+    private final List<Object> version;
+    private final TreeEntry[] entries;
+    private final EntryStatus status;
+
+    private CachedListing(List<Object> version, TreeEntry[] entries, EntryStatus status) {
+      this.version = version;
+      this.entries = entries;
+      this.status = status;
+    }
+  }
+
+  /**
+   * The lister used when a directory is not cached or has changed.
+   */
+  private final DirectoryLister delegate;
+
+  /**
+   * Cached listings in least-recently-used order. Guarded by itself.
+   */
+  private final Map<Path, CachedListing> cache;
+
+  /**
+   * Constructs a CachingLister with the default capacity.
+   *
+   * @param delegate the lister used to read directories that are not cached
+   */
+  public CachingLister(DirectoryLister delegate) {
+    this(delegate, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a CachingLister that holds at most the given number of listings.
+   *
+   * @param delegate the lister used to read directories that are not cached
+   * @param capacity the maximum number of directories to cache
+   */
+  public CachingLister(DirectoryLister delegate, int capacity) {
+    this.delegate = delegate;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Path, CachedListing> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Lists the children of the given directory, reusing the cached listing if
+   * the directory has not been modified or replaced since it was cached.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted children of the directory, or null if it cannot be read
+   */
+  @Override
+  public TreeEntry[] list(TreeEntry directory) {
+    return DirectoryLister.drain(open(directory));
+  }
+
+  /**
+   * Opens the children of the given directory, reusing the cached listing, or
+   * the cached reason it failed, if the directory has not changed since.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted children of the directory, or a failed listing
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory) {
+    return open(directory, null);
+  }
+
+  /**
+   * Opens the children of the given directory from names already read,
+   * reusing the cached listing if the directory has not changed since, and
+   * otherwise handing the names to the delegate so it need not read the
+   * directory again.
+   *
+   * @param directory the directory entry to list
+   * @param names     the names of every child, in the order the file system returned them
+   * @return the sorted children of the directory, or a failed listing
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory, List<String> names) {
+    Path dir = directory.getPath();
+    List<Object> version;
+    try {
+      version = version(dir);
+    } catch (IOException e) {
+      return names == null ? delegate.open(directory) : delegate.open(directory, names);
+    }
+
+    CachedListing cached;
+    synchronized (cache) {
+      cached = cache.get(dir);
+    }
+    if (cached != null && cached.version.equals(version)) {
+      return cached.status.isError() ? DirectoryListing.failed(cached.status)
+          : DirectoryListing.of(copyAtDepth(cached.entries, directory.getDepth() + 1));
+    }
+
+    DirectoryListing listing = names == null ? delegate.open(directory) : delegate.open(directory, names);
+    // Streaming and collapsed listings do not hold their children, so they are not cached
+    if (listing != null && !listing.isStreaming()
+        && (listing.getStatus() == EntryStatus.OK || listing.getStatus().isError())) {
+      synchronized (cache) {
+        cache.put(dir, new CachedListing(version, listing.getEntries().clone(), listing.getStatus()));
+      }
+    }
+    return listing;
+  }
+
+  /**
+   * Reads what identifies the current contents and permissions of a
+   * directory, in one stat: its modification time, its change time where the
+   * platform has one, and its file key.
+   */
+  private static List<Object> version(Path dir) throws IOException {
+    if (UNIX) {
+      Map<String, Object> attributes = Files.readAttributes(dir, "unix:lastModifiedTime,ctime,fileKey");
+      return Arrays.asList(attributes.get("lastModifiedTime"), attributes.get("ctime"), attributes.get("fileKey"));
+    }
+    BasicFileAttributes attributes = Files.readAttributes(dir, BasicFileAttributes.class);
+    return Arrays.asList(attributes.lastModifiedTime(), attributes.fileKey());
+  }
+
+  /**
+   * Copies a cached listing so callers cannot disturb the cache, moving the
+   * entries to a different depth if the directory was reached from another root.
+   */
+  private static TreeEntry[] copyAtDepth(TreeEntry[] entries, int depth) {
+    if (entries.length == 0 || entries[0].getDepth() == depth) {
+      return entries.clone();
+    }
+    TreeEntry[] moved = new TreeEntry[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      TreeEntry entry = entries[i];
+      moved[i] = new TreeEntry(entry.getPath(), entry.getName(), depth, entry.getAttributes())
+          .withStatus(entry.getStatus());
+    }
+    return moved;
+  }
+}
@@ -0,0 +1,151 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CachingListerTest {
+
+  /**
+   * A lister that counts how many times it is asked to read a directory, and
+   * how many times it is handed names already read.
+   */
+  private static final class CountingLister implements DirectoryLister {
+    private final DirectoryLister fileSystem = new FileSystemLister();
+    private final AtomicInteger listings = new AtomicInteger();
+
+    private final AtomicInteger fromNames = new AtomicInteger();
+
+    @Override
+    public TreeEntry[] list(TreeEntry directory) {
+      listings.incrementAndGet();
+      return fileSystem.list(directory);
+    }
+
+    @Override
+    public DirectoryListing open(TreeEntry directory, List<String> names) {
+      fromNames.incrementAndGet();
+      return fileSystem.open(directory, names);
+    }
+  }
+
+  @Test
+  void testUnchangedDirectoryIsServedFromCache(@TempDir File tempDir) throws IOException {
+    new File(tempDir, "a.txt").createNewFile();
+    new File(tempDir, "b.txt").createNewFile();
+    CountingLister counting = new CountingLister();
+    CachingLister cache = new CachingLister(counting);
+    TreeEntry root = FileSystemLister.entry(tempDir, 0);
+
+    TreeEntry[] first = cache.list(root);
+    TreeEntry[] second = cache.list(root);
+
+    assertEquals(1, counting.listings.get());
+    assertEquals(2, second.length);
+    assertEquals(first[0].getPath(), second[0].getPath());
+    assertEquals(1, second[0].getDepth());
+  }
+
+  @Test
+  void testModifiedDirectoryIsListedAgain(@TempDir File tempDir) throws IOException {
+    new File(tempDir, "a.txt").createNewFile();
+    CountingLister counting = new CountingLister();
+    CachingLister cache = new CachingLister(counting);
+    TreeEntry root = FileSystemLister.entry(tempDir, 0);
+    cache.list(root);
+
+    new File(tempDir, "b.txt").createNewFile();
+    // Make the change visible even on file systems with coarse timestamps
+    tempDir.setLastModified(tempDir.lastModified() + 2000);
+    TreeEntry[] listed = cache.list(root);
+
+    assertEquals(2, counting.listings.get());
+    assertEquals(2, listed.length);
+  }
+
+  @Test
+  void testReplacedDirectoryIsListedAgain(@TempDir File tempDir) throws IOException {
+    File directory = new File(tempDir, "directory");
+    directory.mkdir();
+    new File(directory, "a.txt").createNewFile();
+    CountingLister counting = new CountingLister();
+    CachingLister cache = new CachingLister(counting);
+    TreeEntry root = FileSystemLister.entry(directory, 0);
+    cache.list(root);
+
+    // Swap in another directory that carries the same modification time
+    File replacement = new File(tempDir, "replacement");
+    replacement.mkdir();
+    new File(replacement, "b.txt").createNewFile();
+    new File(replacement, "c.txt").createNewFile();
+    FileTime modified = Files.getLastModifiedTime(directory.toPath());
+    Files.delete(directory.toPath().resolve("a.txt"));
+    Files.move(replacement.toPath(), directory.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Files.setLastModifiedTime(directory.toPath(), modified);
+    TreeEntry[] listed = cache.list(root);
+
+    assertEquals(2, counting.listings.get());
+    assertEquals(2, listed.length);
+  }
+
+  @Test
+  void testFailedListingKeepsItsStatus(@TempDir File tempDir) throws IOException {
+    AtomicInteger listings = new AtomicInteger();
+    DirectoryLister denied = new DirectoryLister() {
+      @Override
+      public TreeEntry[] list(TreeEntry directory) {
+        return null;
+      }
+
+      @Override
+      public DirectoryListing open(TreeEntry directory) {
+        listings.incrementAndGet();
+        return DirectoryListing.failed(EntryStatus.PERMISSION_DENIED);
+      }
+    };
+    CachingLister cache = new CachingLister(denied);
+    TreeEntry root = FileSystemLister.entry(tempDir, 0);
+
+    assertEquals(EntryStatus.PERMISSION_DENIED, cache.open(root).getStatus());
+    assertEquals(EntryStatus.PERMISSION_DENIED, cache.open(root).getStatus());
+    assertNull(cache.list(root));
+    assertEquals(1, listings.get());
+  }
+
+  @Test
+  void testNamesAlreadyReadAreHandedToTheDelegate(@TempDir File tempDir) throws IOException {
+    new File(tempDir, "a.txt").createNewFile();
+    CountingLister counting = new CountingLister();
+    CachingLister cache = new CachingLister(counting);
+    TreeEntry root = FileSystemLister.entry(tempDir, 0);
+
+    DirectoryListing first = cache.open(root, List.of("a.txt"));
+    DirectoryListing second = cache.open(root, List.of("a.txt"));
+
+    assertEquals(0, counting.listings.get());
+    assertEquals(1, counting.fromNames.get());
+    assertEquals("a.txt", first.getEntries()[0].getName());
+    assertEquals("a.txt", second.getEntries()[0].getName());
+  }
+
+  @Test
+  void testCachedListingMovesToNewDepth(@TempDir File tempDir) throws IOException {
+    File child = new File(tempDir, "child");
+    child.mkdir();
+    new File(child, "a.txt").createNewFile();
+    CachingLister cache = new CachingLister(new FileSystemLister());
+    cache.list(FileSystemLister.entry(child, 1));
+
+    TreeEntry[] listed = cache.list(FileSystemLister.entry(child, 0));
+
+    assertEquals(1, listed[0].getDepth());
+  }
+}
@@ -0,0 +1,43 @@
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A handle for stopping a tree walk from another thread.
+ * 
+ * Once cancelled, the printTree call the handle was given to stops printing at
+ * the next entry, and any listing that call waits on through a TimeoutLister
+ * is abandoned at once instead of when its timeout runs out. Other calls on
+ * the same TruffulaPrinter carry on. A handle cannot be reset, so give each
+ * call its own.
+ */
+public class CancellationHandle {
+
+  /**
+   * Completed when the handle is cancelled, so waits can finish early.
+   */
+  private final CompletableFuture<Void> cancelled = new CompletableFuture<>();
+
+  /**
+   * Cancels the walk. Calling this more than once has no further effect.
+   */
+  public void cancel() {
+    cancelled.complete(null);
+  }
+
+  /**
+   * Indicates whether the walk has been cancelled.
+   *
+   * @return true if cancel has been called; false otherwise
+   */
+  public boolean isCancelled() {
+    return cancelled.isDone();
+  }
+
+  /**
+   * Returns a future that completes when the handle is cancelled.
+   *
+   * @return the cancellation future
+   */
+  CompletableFuture<Void> asFuture() {
+    return cancelled;
+  }
+}
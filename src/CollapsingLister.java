@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DirectoryLister that counts the entries of very large directories
+ * instead of listing them, as used by the --collapse mode.
+ * 
+ * Each directory is read once, in a streaming pass over a DirectoryStream
+ * that only looks at names: no TreeEntry or attributes are created, and
+ * nothing is sorted. While the count is within the threshold the names are
+ * kept, and a directory that stays within it is listed by the delegate from
+ * those names, so it is not read a second time. Once the count passes the
+ * threshold the names are dropped and the pass only counts. Such a directory
+ * is returned as a collapsed DirectoryListing that holds only the number of
+ * files and subdirectories, and the walk does not descend into it.
+ * 
+ * Subdirectories of a collapsed directory are counted the way the walk
+ * would show them: symbolic links are followed, so a link to a directory
+ * counts as a directory. That takes a second pass which reads the attributes
+ * of each entry, one stat per entry, made only for collapsed directories; a
+ * DirectoryStream gives no file types, so the names alone cannot tell. The
+ * directory's link count is not used as a shortcut, since it does not
+ * include links.
+ * 
+ * A delegate that does not read the file system, such as a TarArchive, has
+ * no directories to stream names from. Its listings are counted instead:
+ * the delegate lists the directory as usual, and one with more than the
+ * threshold is collapsed using the attributes its entries already hold. A
+ * streaming listing from such a delegate is passed on without counting.
+ */
+public class CollapsingLister implements DirectoryLister {
+
+  /**
+   * The lister used for directories that are not collapsed.
+   */
+  private final DirectoryLister delegate;
+
+  /**
+   * The most entries a directory may have and still be listed.
+   */
+  private final int threshold;
+
+  /**
+   * Whether hidden names are counted; they are not when hidden files are not shown.
+   */
+  private final boolean countHidden;
+
+  /**
+   * Whether the delegate lists directories of the file system, so they can be
+   * counted from their names before anything is listed.
+   */
+  private final boolean onFileSystem;
+
+  /**
+   * Constructs a CollapsingLister.
+   *
+   * @param delegate    the lister used for directories that are not collapsed
+   * @param threshold   the most entries a directory may have and still be listed
+   * @param countHidden whether names starting with a dot are counted
+   */
+  public CollapsingLister(DirectoryLister delegate, int threshold, boolean countHidden) {
+    this(delegate, threshold, countHidden, true);
+  }
+
+  /**
+   * Constructs a CollapsingLister over a delegate that may not read the file system.
+   *
+   * @param delegate     the lister used for directories that are not collapsed
+   * @param threshold    the most entries a directory may have and still be listed
+   * @param countHidden  whether names starting with a dot are counted
+   * @param onFileSystem whether the delegate lists directories of the file system
+   */
+  public CollapsingLister(DirectoryLister delegate, int threshold, boolean countHidden, boolean onFileSystem) {
+    this.delegate = delegate;
+    this.threshold = threshold;
+    this.countHidden = countHidden;
+    this.onFileSystem = onFileSystem;
+  }
+
+  /**
+   * Lists the children of the given directory, or returns an empty array if
+   * it has more than the threshold number of entries.
+   *
+   * @param directory the directory entry to list
+   * @return the children of the directory, an empty array if it is collapsed,
+   *         or null if it cannot be read
+   */
+  @Override
+  public TreeEntry[] list(TreeEntry directory) {
+    return DirectoryLister.drain(open(directory));
+  }
+
+  /**
+   * Opens the children of the given directory, or counts them if there are
+   * more than the threshold.
+   *
+   * @param directory the directory entry to list
+   * @return the delegate's listing, a collapsed listing holding the counts,
+   *         or null if the directory cannot be read
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory) {
+    if (!onFileSystem) {
+      return countListing(directory);
+    }
+    Path dir = directory.getPath();
+    List<String> names = new ArrayList<>();
+    long entries = 0;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (Path child : stream) {
+        String name = child.getFileName().toString();
+        if (countHidden || !name.startsWith(".")) {
+          entries++;
+        }
+        if (names != null) {
+          // Hidden names are kept too; they are filtered out above this lister
+          names.add(name);
+          if (entries > threshold) {
+            names = null;
+          }
+        }
+      }
+    } catch (IOException | DirectoryIteratorException e) {
+      return delegate.open(directory);
+    }
+    if (names != null) {
+      return delegate.open(directory, names);
+    }
+
+    long directories;
+    try {
+      directories = countSubdirectories(dir);
+    } catch (IOException | DirectoryIteratorException e) {
+      return delegate.open(directory);
+    }
+    return DirectoryListing.collapsed(new DirectoryCounts(entries - directories, directories));
+  }
+
+  /**
+   * Lists a directory through the delegate and collapses the listing if it
+   * has more than the threshold number of entries, counting subdirectories
+   * from the attributes the entries already hold.
+   */
+  private DirectoryListing countListing(TreeEntry directory) {
+    DirectoryListing listing = delegate.open(directory);
+    if (listing == null || listing.getStatus() != EntryStatus.OK || listing.isStreaming()) {
+      return listing;
+    }
+    long entries = 0;
+    long directories = 0;
+    for (TreeEntry child : listing.getEntries()) {
+      if (countHidden || !child.getName().startsWith(".")) {
+        entries++;
+        if (child.isDirectory()) {
+          directories++;
+        }
+      }
+    }
+    if (entries <= threshold) {
+      return listing;
+    }
+    listing.close();
+    return DirectoryListing.collapsed(new DirectoryCounts(entries - directories, directories));
+  }
+
+  /**
+   * Counts the subdirectories of a directory by checking each entry,
+   * following symbolic links as the walk does.
+   */
+  private long countSubdirectories(Path dir) throws IOException {
+    long directories = 0;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, child -> Files.isDirectory(child))) {
+      for (Path child : stream) {
+        if (countHidden || !child.getFileName().toString().startsWith(".")) {
+          directories++;
+        }
+      }
+    }
+    return directories;
+  }
+}
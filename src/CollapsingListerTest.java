@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CollapsingListerTest {
+
+  /**
+   * Builds myFolder/ with small/ holding two files and big/ holding thirty
+   * files, three subdirectories and one hidden file.
+   */
+  private static File buildTree(File tempDir) throws IOException {
+    File myFolder = new File(tempDir, "myFolder");
+    File small = new File(myFolder, "small");
+    File big = new File(myFolder, "big");
+    small.mkdirs();
+    big.mkdirs();
+    new File(small, "a.txt").createNewFile();
+    new File(small, "b.txt").createNewFile();
+    for (int i = 0; i < 30; i++) {
+      new File(big, "file" + i + ".txt").createNewFile();
+    }
+    for (int i = 0; i < 3; i++) {
+      new File(big, "dir" + i).mkdir();
+    }
+    new File(big, ".cache").createNewFile();
+    return myFolder;
+  }
+
+  @Test
+  void testLargeDirectoryIsCounted(@TempDir File tempDir) throws IOException {
+    File big = new File(buildTree(tempDir), "big");
+    CollapsingLister lister = new CollapsingLister(new FileSystemLister(), 10, true);
+
+    DirectoryListing listing = lister.open(FileSystemLister.entry(big, 1));
+
+    assertEquals(EntryStatus.COLLAPSED, listing.getStatus());
+    assertEquals(0, listing.getEntries().length);
+    assertEquals(31, listing.getCounts().getFiles());
+    assertEquals(3, listing.getCounts().getDirectories());
+  }
+
+  @Test
+  void testHiddenNamesAreNotCountedWhenHidden(@TempDir File tempDir) throws IOException {
+    File big = new File(buildTree(tempDir), "big");
+    CollapsingLister lister = new CollapsingLister(new FileSystemLister(), 10, false);
+
+    DirectoryListing listing = lister.open(FileSystemLister.entry(big, 1));
+
+    assertEquals(30, listing.getCounts().getFiles());
+    assertEquals(3, listing.getCounts().getDirectories());
+  }
+
+  @Test
+  void testSmallDirectoryIsListed(@TempDir File tempDir) throws IOException {
+    File small = new File(buildTree(tempDir), "small");
+    CollapsingLister lister = new CollapsingLister(new FileSystemLister(), 10, true);
+
+    DirectoryListing listing = lister.open(FileSystemLister.entry(small, 1));
+
+    assertEquals(EntryStatus.OK, listing.getStatus());
+    assertNull(listing.getCounts());
+    assertEquals(2, listing.getEntries().length);
+  }
+
+  @Test
+  void testPrinterShowsCountsInsteadOfContents(@TempDir File tempDir) throws IOException {
+    File myFolder = buildTree(tempDir);
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", "--collapse", "10", myFolder.getPath()});
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new TruffulaPrinter(options, new PrintStream(output)).printTree();
+
+    String nl = System.lineSeparator();
+    StringBuilder expected = new StringBuilder();
+    for (String line : new String[] {"myFolder/", "   big/ [30 files, 3 dirs]", "   small/", "      a.txt", "      b.txt"}) {
+      expected.append(ConsoleColor.WHITE).append(line).append(nl).append(ConsoleColor.RESET);
+    }
+    assertEquals(expected.toString(), output.toString());
+  }
+
+  @Test
+  void testSmallDirectoryIsListedFromCountedNames(@TempDir File tempDir) throws IOException {
+    File small = new File(buildTree(tempDir), "small");
+    AtomicInteger reads = new AtomicInteger();
+    FileSystemLister fileSystem = new FileSystemLister() {
+      @Override
+      public DirectoryListing open(TreeEntry directory) {
+        reads.incrementAndGet();
+        return super.open(directory);
+      }
+    };
+    CollapsingLister lister = new CollapsingLister(fileSystem, 10, true);
+
+    DirectoryListing listing = lister.open(FileSystemLister.entry(small, 1));
+
+    assertEquals(0, reads.get());
+    assertEquals("a.txt", listing.getEntries()[0].getName());
+    assertEquals("b.txt", listing.getEntries()[1].getName());
+    assertEquals(2, listing.getEntries()[0].getDepth());
+  }
+
+  @Test
+  void testLinkToDirectoryCountsAsDirectory(@TempDir File tempDir) throws IOException {
+    File big = new File(buildTree(tempDir), "big");
+    try {
+      Files.createSymbolicLink(big.toPath().resolve("link"), big.toPath().resolve("dir0"));
+    } catch (UnsupportedOperationException | IOException e) {
+      assumeTrue(false, "symbolic links are not supported here");
+    }
+    CollapsingLister lister = new CollapsingLister(new FileSystemLister(), 10, true);
+
+    DirectoryListing listing = lister.open(FileSystemLister.entry(big, 1));
+
+    assertEquals(31, listing.getCounts().getFiles());
+    assertEquals(4, listing.getCounts().getDirectories());
+  }
+}
@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CollationSorterTest {
+
+  private static TreeEntry[] entries(String... names) {
+    TreeEntry[] entries = new TreeEntry[names.length];
+    for (int i = 0; i < names.length; i++) {
+      entries[i] = new TreeEntry(Path.of("entry" + i), names[i], 1, null);
+    }
+    return entries;
+  }
+
+  private static List<String> names(TreeEntry[] entries) {
+    List<String> names = new ArrayList<>();
+    for (TreeEntry entry : entries) {
+      names.add(entry.getName());
+    }
+    return names;
+  }
+
+  @Test
+  void testGermanSortsUmlautsWithTheirBaseLetter() {
+    TreeEntry[] sorted = new CollationSorter(Locale.GERMAN)
+        .sort(entries("zebra", "\u00c4pfel", "banana", "apple"));
+
+    assertEquals(List.of("\u00c4pfel", "apple", "banana", "zebra"), names(sorted));
+  }
+
+  @Test
+  void testSwedishSortsUmlautsAfterZ() {
+    TreeEntry[] sorted = new CollationSorter(Locale.forLanguageTag("sv-SE"))
+        .sort(entries("zebra", "\u00c4pfel", "banana", "apple"));
+
+    assertEquals(List.of("apple", "banana", "zebra", "\u00c4pfel"), names(sorted));
+  }
+
+  @Test
+  void testEqualKeysAreOrderedByName() {
+    // The collator ignores the control character, so both names have the same key
+    CollationSorter sorter = new CollationSorter(Locale.ENGLISH);
+
+    assertEquals(List.of("a\u0001b", "ab"), names(sorter.sort(entries("ab", "a\u0001b"))));
+    assertEquals(List.of("a\u0001b", "ab"), names(sorter.sort(entries("a\u0001b", "ab"))));
+  }
+
+  @Test
+  void testAlphabeticalFileSorterDiffersFromCollation() {
+    TreeEntry[] sorted = AlphabeticalFileSorter.sort(entries("zebra", "\u00c4pfel", "banana", "apple"));
+
+    assertEquals(List.of("apple", "banana", "zebra", "\u00c4pfel"), names(sorted));
+  }
+
+  @Test
+  void testLocaleOptionOrdersPrintedTree(@TempDir File tempDir) throws IOException {
+    // Collation ignores the hyphen when comparing letters; compareToIgnoreCase does not
+    new File(tempDir, "ad.txt").createNewFile();
+    new File(tempDir, "a-c.txt").createNewFile();
+    new File(tempDir, "ab.txt").createNewFile();
+    TruffulaOptions options = new TruffulaOptions(new String[] {"--locale", "en", tempDir.getAbsolutePath()});
+
+    List<String> printed = new ArrayList<>();
+    TruffulaTree.stream(options).skip(1).forEach(entry -> printed.add(entry.getName()));
+
+    assertEquals(List.of("ab.txt", "a-c.txt", "ad.txt"), printed);
+  }
+}
@@ -7,7 +7,8 @@ import java.io.PrintStream;
  * to the specified output stream. The color can be reset after each print or kept active
  * based on the provided parameters.
  * 
- * Colors are managed using the ConsoleColor enum, which defines standard ANSI color codes.
+ * Colors are managed using the ConsoleColor enum, which defines standard ANSI color codes,
+ * or any other TextColor, such as an AnsiColor from the 256-color palette.
  * 
  * Example Usage:
  * 
@@ -21,7 +22,7 @@ public class ColorPrinter {
   /**
    * The current color used for printing.
    */
-  private ConsoleColor currentColor;
+  private TextColor currentColor;
 
   /**
    * The PrintStream to which the colored output will be written.
@@ -31,9 +32,9 @@ public class ColorPrinter {
   /**
    * Returns the current color set for the printer.
    * 
-   * @return the current ConsoleColor
+   * @return the current TextColor
    */
-  public ConsoleColor getCurrentColor() {
+  public TextColor getCurrentColor() {
     return currentColor;
   }
 
@@ -41,9 +42,9 @@ public class ColorPrinter {
    * Sets the current color for the printer. All subsequent print operations will use this color
    * until it is changed or reset.
    * 
-   * @param color the ConsoleColor to set as the current color
+   * @param color the ConsoleColor or other TextColor to set as the current color
    */
-  public void setCurrentColor(ConsoleColor color) {
+  public void setCurrentColor(TextColor color) {
     this.currentColor = color;
   }
 
@@ -106,9 +107,9 @@ public class ColorPrinter {
    * Constructs a ColorPrinter with the specified PrintStream and initial color.
    * 
    * @param printStream the PrintStream to which output will be written
-   * @param color       the initial ConsoleColor to use for printing
+   * @param color       the initial ConsoleColor or other TextColor to use for printing
    */
-  public ColorPrinter(PrintStream printStream, ConsoleColor color) {
+  public ColorPrinter(PrintStream printStream, TextColor color) {
     this.printStream = printStream;
     this.currentColor = color;
   }
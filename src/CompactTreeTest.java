@@ -0,0 +1,116 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CompactTreeTest {
+
+  /**
+   * Builds a small tree:
+   * 
+   * root/
+   *    a.txt
+   *    B/
+   *       c.txt
+   *       d/
+   *          a.txt
+   *    f/
+   */
+  private static File buildTree(File tempDir) throws IOException {
+    File root = new File(tempDir, "root");
+    new File(root, "B/d").mkdirs();
+    new File(root, "f").mkdirs();
+    new File(root, "a.txt").createNewFile();
+    new File(root, "B/c.txt").createNewFile();
+    new File(root, "B/d/a.txt").createNewFile();
+    return root;
+  }
+
+  @Test
+  void testStructureMatchesWalk(@TempDir File tempDir) throws IOException {
+    File root = buildTree(tempDir);
+    CompactTree tree;
+    try (Stream<TreeEntry> walk = TruffulaTree.stream(root)) {
+      tree = CompactTree.of(walk);
+    }
+
+    // 0 root, 1 a.txt, 2 B, 3 c.txt, 4 d, 5 a.txt, 6 f
+    assertEquals(7, tree.size());
+    assertEquals(1, tree.getFirstChild(0));
+    assertEquals(2, tree.getNextSibling(1));
+    assertEquals(6, tree.getNextSibling(2));
+    assertEquals(-1, tree.getNextSibling(6));
+    assertEquals(-1, tree.getFirstChild(6));
+    assertEquals(4, tree.getParent(5));
+    assertEquals(3, tree.getDepth(5));
+    assertEquals("a.txt", tree.getName(5));
+    assertTrue(tree.isDirectory(4));
+    assertEquals(root.toPath().resolve(Path.of("B", "d", "a.txt")), tree.getPath(5));
+  }
+
+  @Test
+  void testPrintsLikePrintTree(@TempDir File tempDir) throws IOException {
+    File root = buildTree(tempDir);
+    TruffulaOptions options = new TruffulaOptions(root, false, true);
+
+    ByteArrayOutputStream walked = new ByteArrayOutputStream();
+    new TruffulaPrinter(options, new PrintStream(walked)).printTree();
+
+    CompactTree tree;
+    try (Stream<TreeEntry> walk = TruffulaTree.stream(root)) {
+      tree = CompactTree.of(walk);
+    }
+    ByteArrayOutputStream compact = new ByteArrayOutputStream();
+    new TruffulaPrinter(options, new PrintStream(compact)).printTree(tree);
+
+    assertEquals(walked.toString(), compact.toString());
+  }
+
+  @Test
+  void testFootprintPerEntry() {
+    // A wide, fairly deep tree: 200 directories of 2,500 files, names drawn from 1,000
+    int directories = 200;
+    int files = 2_500;
+    Path base = Path.of("root");
+    Stream<TreeEntry> walk = Stream.concat(
+        Stream.of(new TreeEntry(base, "root", 0, null)),
+        IntStream.range(0, directories).boxed().flatMap(d -> Stream.concat(
+            Stream.of(new TreeEntry(base.resolve("dir" + d), "dir" + d, 1, null)),
+            IntStream.range(0, files).mapToObj(f -> {
+              String name = "file" + (f % 1_000) + ".txt";
+              return new TreeEntry(base.resolve(name), name, 2, null);
+            }))));
+
+    // Measure what the tree retains from the lengths of its arrays, which must have been trimmed
+    CompactTree tree = CompactTree.of(walk);
+    long bytesPerEntry = tree.footprint() / tree.size();
+
+    assertEquals(1 + directories + directories * files, tree.size());
+    assertTrue(bytesPerEntry <= 40, "CompactTree retains " + bytesPerEntry + " bytes per entry");
+  }
+
+  @Test
+  void testDeepTree() {
+    Path path = Path.of("root");
+    TreeEntry[] chain = new TreeEntry[100];
+    for (int depth = 0; depth < chain.length; depth++) {
+      chain[depth] = new TreeEntry(path, "level" + depth, depth, null);
+      path = path.resolve("level" + (depth + 1));
+    }
+
+    CompactTree tree = CompactTree.of(Stream.of(chain));
+
+    assertEquals(100, tree.size());
+    assertEquals(98, tree.getParent(99));
+    assertEquals(99, tree.getDepth(99));
+  }
+}
@@ -17,8 +17,10 @@
  * - CYAN    : Cyan text
  * - WHITE   : White text
  * - RESET   : Resets the text color to default
+ * 
+ * Colors beyond these eight can be given as an AnsiColor; both are TextColors.
  */
-public enum ConsoleColor {
+public enum ConsoleColor implements TextColor {
   /**
    * Black text color (ANSI code: \033[0;30m).
    */
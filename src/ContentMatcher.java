@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.regex.Pattern;
+
+/**
+ * Decides whether the contents of a file match a regular expression, as used
+ * by the --grep mode.
+ * 
+ * Files smaller than MAP_THRESHOLD are read into memory in one call; larger
+ * files are memory-mapped, a window at a time, so they are searched straight
+ * from the page cache without being copied onto the heap. A file whose first
+ * block contains a NUL byte is taken to be binary and never matches.
+ * 
+ * Contents are searched as raw bytes rather than decoded. The pattern is
+ * compiled from its own UTF-8 bytes, one char per byte, so a pattern of
+ * literal text, ASCII or not, matches the same text in a UTF-8 file. Character
+ * classes over non-ASCII characters are not supported. The pattern is applied
+ * with MULTILINE, so ^ and $ match at line boundaries as they do in grep.
+ * 
+ * A ContentMatcher holds no state besides its pattern, so one instance can be
+ * used from many threads at once.
+ */
+public class ContentMatcher {
+
+  /**
+   * The number of bytes at the start of a file that are checked for a NUL byte.
+   */
+  static final int SNIFF_LENGTH = 8192;
+
+  /**
+   * Files at least this large are memory-mapped instead of read.
+   */
+  static final long MAP_THRESHOLD = 1 << 20;
+
+  /**
+   * The most bytes of a file mapped at once.
+   */
+  private static final int WINDOW = 1 << 30;
+
+  /**
+   * How far consecutive windows overlap, so that matches shorter than this
+   * are found even where they cross the end of a window.
+   */
+  private static final int OVERLAP = 1 << 16;
+
+  /**
+   * The pattern, compiled over the UTF-8 bytes of the original.
+   */
+  private final Pattern pattern;
+
+  /**
+   * Constructs a ContentMatcher for the given regular expression.
+   *
+   * @param regex the regular expression to search for
+   * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+   */
+  public ContentMatcher(String regex) {
+    String bytes = new String(regex.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+    this.pattern = Pattern.compile(bytes, Pattern.MULTILINE);
+  }
+
+  /**
+   * Indicates whether the given entry is a text file whose contents match.
+   * Directories, binary files and files that cannot be read never match.
+   *
+   * @param entry the entry to search
+   * @return true if the entry is a regular text file containing a match; false otherwise
+   */
+  public boolean matches(TreeEntry entry) {
+    BasicFileAttributes attributes = entry.getAttributes();
+    if (attributes == null || !attributes.isRegularFile()) {
+      return false;
+    }
+    try {
+      if (attributes.size() < MAP_THRESHOLD) {
+        return matchesRead(entry.getPath());
+      }
+      return matchesMapped(entry.getPath());
+    } catch (IOException | UncheckedIOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Reads a small file into memory and searches it.
+   */
+  private boolean matchesRead(Path path) throws IOException {
+    ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(path));
+    if (isBinary(contents)) {
+      return false;
+    }
+    return pattern.matcher(new ByteSequence(contents, 0, contents.limit())).find();
+  }
+
+  /**
+   * Maps a large file into memory, a window at a time, and searches it.
+   */
+  private boolean matchesMapped(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      for (long position = 0; position < size; position += WINDOW - OVERLAP) {
+        int length = (int) Math.min(WINDOW, size - position);
+        ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        if (position == 0 && isBinary(window)) {
+          return false;
+        }
+        if (pattern.matcher(new ByteSequence(window, 0, length)).find()) {
+          return true;
+        }
+        if (position + length >= size) {
+          break;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Indicates whether the first block of the contents contains a NUL byte.
+   */
+  private static boolean isBinary(ByteBuffer contents) {
+    int end = Math.min(contents.limit(), SNIFF_LENGTH);
+    for (int i = 0; i < end; i++) {
+      if (contents.get(i) == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A view of a range of bytes as chars, one char per byte, without copying.
+   */
+  private static final class ByteSequence implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int start;
+    private final int end;
+
+    private ByteSequence(ByteBuffer bytes, int start, int end) {
+      this.bytes = bytes;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      return new ByteSequence(bytes, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+      byte[] copy = new byte[length()];
+      bytes.get(start, copy);
+      return new String(copy, StandardCharsets.ISO_8859_1);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ContentMatcherTest {
+
+  private static TreeEntry write(File dir, String name, byte[] contents) throws IOException {
+    Path path = dir.toPath().resolve(name);
+    Files.write(path, contents);
+    return FileSystemLister.entry(path.toFile(), 1);
+  }
+
+  @Test
+  void testMatchesTextFile(@TempDir File tempDir) throws IOException {
+    TreeEntry notes = write(tempDir, "notes.txt", "first line\nTODO: water the trees\n".getBytes(StandardCharsets.UTF_8));
+    ContentMatcher matcher = new ContentMatcher("^TODO");
+
+    assertTrue(matcher.matches(notes));
+    assertFalse(new ContentMatcher("^water").matches(notes));
+  }
+
+  @Test
+  void testSkipsBinaryFile(@TempDir File tempDir) throws IOException {
+    byte[] contents = "TODO\0\1\2".getBytes(StandardCharsets.ISO_8859_1);
+    TreeEntry binary = write(tempDir, "image.bin", contents);
+
+    assertFalse(new ContentMatcher("TODO").matches(binary));
+  }
+
+  @Test
+  void testMatchesNonAsciiLiteral(@TempDir File tempDir) throws IOException {
+    TreeEntry german = write(tempDir, "de.txt", "Gr\u00fc\u00dfe aus K\u00f6ln\n".getBytes(StandardCharsets.UTF_8));
+
+    assertTrue(new ContentMatcher("K\u00f6ln").matches(german));
+    assertFalse(new ContentMatcher("Koln").matches(german));
+  }
+
+  @Test
+  void testSearchesLargeFileThroughMapping(@TempDir File tempDir) throws IOException {
+    byte[] contents = new byte[(int) ContentMatcher.MAP_THRESHOLD * 3];
+    Arrays.fill(contents, (byte) 'x');
+    byte[] needle = "needle".getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(needle, 0, contents, contents.length - 100, needle.length);
+    TreeEntry large = write(tempDir, "large.log", contents);
+
+    assertTrue(new ContentMatcher("needle").matches(large));
+    assertFalse(new ContentMatcher("haystack").matches(large));
+  }
+
+  @Test
+  void testDirectoryNeverMatches(@TempDir File tempDir) {
+    assertFalse(new ContentMatcher(".*").matches(FileSystemLister.entry(tempDir, 0)));
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * The number of files and subdirectories in one directory, counted without
+ * listing its entries, as printed for a directory collapsed by --collapse.
+ */
+public class DirectoryCounts {
+
+  /**
+   * The number of entries that are not directories.
+   */
+  private final long files;
+
+  /**
+   * The number of subdirectories.
+   */
+  private final long directories;
+
+  /**
+   * Constructs a DirectoryCounts.
+   *
+   * @param files       the number of entries that are not directories
+   * @param directories the number of subdirectories
+   */
+  public DirectoryCounts(long files, long directories) {
+    this.files = files;
+    this.directories = directories;
+  }
+
+  /**
+   * Returns the number of entries that are not directories.
+   *
+   * @return the file count
+   */
+  public long getFiles() {
+    return files;
+  }
+
+  /**
+   * Returns the number of subdirectories.
+   *
+   * @return the directory count
+   */
+  public long getDirectories() {
+    return directories;
+  }
+
+  /**
+   * Returns the counts as printed after a collapsed directory.
+   *
+   * @return the counts, such as "[48213 files, 12 dirs]"
+   */
+  @Override
+  public String toString() {
+    return "[" + files + " files, " + directories + " dirs]";
+  }
+}
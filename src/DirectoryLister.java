@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Strategy for listing the children of a directory during a tree walk.
+ * 
+ * Implementations return the children of a directory as TreeEntry objects whose
+ * depth is one greater than the directory's, already sorted in the order they
+ * should be visited. Like File.listFiles, a lister returns null rather than
+ * throwing when the directory cannot be read.
+ * 
+ * Listers that can produce very large directories without holding every child
+ * in memory override open to return a streaming DirectoryListing; TreeSpliterator
+ * always lists through open.
+ */
+public interface DirectoryLister {
+
+  /**
+   * Lists the children of the given directory.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted children of the directory, or null if it cannot be read
+   */
+  TreeEntry[] list(TreeEntry directory);
+
+  /**
+   * Opens the children of the given directory for a single pass. The default
+   * implementation wraps the array returned by list.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted children of the directory, or null if it cannot be read
+   */
+  default DirectoryListing open(TreeEntry directory) {
+    TreeEntry[] entries = list(directory);
+    return entries == null ? null : DirectoryListing.of(entries);
+  }
+
+  /**
+   * Opens the children of the given directory, whose names the caller has
+   * already read in one pass over it, as CollapsingLister does while counting.
+   * Listers that read the default file system build the listing from the
+   * names rather than reading the directory a second time. The default
+   * implementation ignores the names and calls open.
+   *
+   * @param directory the directory entry to list
+   * @param names     the names of every child, in the order the file system returned them
+   * @return the sorted children of the directory, or null if it cannot be read
+   */
+  default DirectoryListing open(TreeEntry directory, List<String> names) {
+    return open(directory);
+  }
+
+  /**
+   * Reads every remaining child of a listing into an array and closes it.
+   * Streaming listers use this to implement list.
+   *
+   * @param listing the listing to drain, or null
+   * @return the children of the listing, or null if the listing was null or
+   *         the directory could not be read or sorted, even part way through
+   */
+  static TreeEntry[] drain(DirectoryListing listing) {
+    if (listing == null || isFailure(listing.getStatus())) {
+      return null;
+    }
+    try (listing) {
+      if (!listing.isStreaming()) {
+        return listing.getEntries();
+      }
+      List<TreeEntry> entries = new ArrayList<>();
+      for (Iterator<TreeEntry> it = listing.iterator(); it.hasNext(); ) {
+        entries.add(it.next());
+      }
+      return isFailure(listing.getStatus()) ? null : entries.toArray(new TreeEntry[0]);
+    }
+  }
+
+  private static boolean isFailure(EntryStatus status) {
+    return status.isError() || status == EntryStatus.SORT_FAILED;
+  }
+}
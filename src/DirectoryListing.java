@@ -0,0 +1,184 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * The sorted children of one directory, as returned by DirectoryLister.open.
+ * 
+ * Most listings hold their children in an array, which lets a TreeSpliterator
+ * split them between threads. A streaming listing instead produces its
+ * children one at a time from a cursor, for directories too large to hold in
+ * memory at once; it may own open files, so it must be closed once it has been
+ * read or abandoned. Closing an array listing does nothing.
+ * 
+ * A failed listing has no children and a status other than EntryStatus.OK,
+ * telling the walk why the directory could not be listed. A collapsed listing
+ * has no children either, only their counts.
+ * 
+ * A streaming listing can also fail part way through, after some children
+ * were produced. Its cursor then simply ends, without throwing, and once it
+ * has ended getStatus says why the rest of the children were not produced.
+ */
+public class DirectoryListing implements AutoCloseable {
+
+  /**
+   * A cursor over the children of a streaming listing that can end part way
+   * through. Once hasNext has answered false, getStatus tells whether every
+   * child was produced or why the rest were not.
+   */
+  public interface Cursor extends Iterator<TreeEntry> {
+
+    /**
+     * Returns why the cursor ended before its last child.
+     *
+     * @return EntryStatus.OK unless the cursor ended early, and then the reason
+     */
+    EntryStatus getStatus();
+  }
+
+  /**
+   * The children, or null if this listing is streamed.
+   */
+  private final TreeEntry[] entries;
+
+  /**
+   * The cursor over the children, or null if they are held in an array.
+   */
+  private final Iterator<TreeEntry> cursor;
+
+  /**
+   * The resource released when the listing is closed, or null.
+   */
+  private final Closeable resource;
+
+  /**
+   * Why the children could not be listed, or EntryStatus.OK.
+   */
+  private final EntryStatus status;
+
+  /**
+   * The counts of the children of a collapsed listing, or null.
+   */
+  private final DirectoryCounts counts;
+
+  private DirectoryListing(TreeEntry[] entries, Iterator<TreeEntry> cursor, Closeable resource,
+      EntryStatus status, DirectoryCounts counts) {
+    this.entries = entries;
+    this.cursor = cursor;
+    this.resource = resource;
+    this.status = status;
+    this.counts = counts;
+  }
+
+  /**
+   * Returns a listing of children held in memory.
+   *
+   * @param entries the sorted children
+   * @return a listing over the array
+   */
+  public static DirectoryListing of(TreeEntry[] entries) {
+    return new DirectoryListing(entries, null, null, EntryStatus.OK, null);
+  }
+
+  /**
+   * Returns a listing whose children are produced one at a time.
+   *
+   * @param cursor   the cursor producing the sorted children
+   * @param resource the resource to release when the listing is closed, or null
+   * @return a streaming listing
+   */
+  public static DirectoryListing streaming(Iterator<TreeEntry> cursor, Closeable resource) {
+    return new DirectoryListing(null, cursor, resource, EntryStatus.OK, null);
+  }
+
+  /**
+   * Returns an empty listing for a directory whose children could not be listed.
+   *
+   * @param status why the children could not be listed
+   * @return an empty listing with the given status
+   */
+  public static DirectoryListing failed(EntryStatus status) {
+    return new DirectoryListing(new TreeEntry[0], null, null, status, null);
+  }
+
+  /**
+   * Returns an empty listing for a directory whose children were counted
+   * instead of listed.
+   *
+   * @param counts the counts of the children
+   * @return an empty listing with status EntryStatus.COLLAPSED
+   */
+  public static DirectoryListing collapsed(DirectoryCounts counts) {
+    return new DirectoryListing(new TreeEntry[0], null, null, EntryStatus.COLLAPSED, counts);
+  }
+
+  /**
+   * Returns the counts of the children of a collapsed listing.
+   *
+   * @return the counts, or null if the children were not counted
+   */
+  public DirectoryCounts getCounts() {
+    return counts;
+  }
+
+  /**
+   * Returns whether the children were listed, and if not, why. For a
+   * streaming listing whose cursor is a Cursor, this includes a failure part
+   * way through, once the cursor has ended.
+   *
+   * @return EntryStatus.OK, or the reason the listing failed
+   */
+  public EntryStatus getStatus() {
+    if (status == EntryStatus.OK && cursor instanceof Cursor) {
+      return ((Cursor) cursor).getStatus();
+    }
+    return status;
+  }
+
+  /**
+   * Indicates whether the children are produced one at a time rather than
+   * held in an array.
+   *
+   * @return true if this listing is streamed; false otherwise
+   */
+  public boolean isStreaming() {
+    return cursor != null;
+  }
+
+  /**
+   * Returns the children held in memory.
+   *
+   * @return the sorted children, or null if this listing is streamed
+   */
+  public TreeEntry[] getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns an iterator over the children. A streaming listing can only be
+   * iterated once.
+   *
+   * @return an iterator over the sorted children
+   */
+  public Iterator<TreeEntry> iterator() {
+    return cursor != null ? cursor : Arrays.asList(entries).iterator();
+  }
+
+  /**
+   * Releases any files held open by a streaming listing.
+   *
+   * @throws UncheckedIOException if the resource cannot be released
+   */
+  @Override
+  public void close() {
+    if (resource != null) {
+      try {
+        resource.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
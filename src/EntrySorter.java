@@ -0,0 +1,18 @@
+/**
+ * Strategy for ordering the entries of one directory.
+ * 
+ * SortOrder provides the built-in orders; CollationSorter orders names by the
+ * rules of a particular locale. Listers apply a sorter to each listing before
+ * returning it. Implementations are used by several threads at once and must
+ * be safe to share.
+ */
+public interface EntrySorter {
+
+  /**
+   * Sorts an array of entries in place.
+   *
+   * @param entries the array of entries to be sorted
+   * @return the sorted array of entries
+   */
+  TreeEntry[] sort(TreeEntry[] entries);
+}
@@ -0,0 +1,92 @@
+/**
+ * Enum representing what happened when the walk tried to read an entry or
+ * list a directory.
+ * 
+ * Statuses are plain values carried on each TreeEntry, so a walk can record a
+ * directory it could not list and carry on without throwing.
+ * 
+ * Supported Statuses:
+ * - OK                : The entry was read normally
+ * - TIMED_OUT         : Listing the directory took longer than allowed, so its
+ *                       contents were skipped
+ * - COLLAPSED         : The directory had too many entries to print, so only their
+ *                       counts were taken
+ * - PERMISSION_DENIED : The directory could not be listed, or the entry could not
+ *                       be read, for lack of permission
+ * - VANISHED          : The entry was removed between being listed and being read
+ * - UNREADABLE        : The directory could not be listed for some other reason
+ * - SORT_FAILED       : The directory was read, but the temporary files used to
+ *                       sort it could not be written or read back
+ * 
+ * A directory whose streamed listing ended part way through is followed by a
+ * "..." entry carrying the reason, since the directory itself was already
+ * reported by then.
+ */
+public enum EntryStatus {
+  /**
+   * The entry was read normally.
+   */
+  OK(""),
+
+  /**
+   * Listing the directory took longer than allowed.
+   */
+  TIMED_OUT("[timed out]"),
+
+  /**
+   * The directory was counted instead of listed. Entries that carry their
+   * DirectoryCounts print those instead of this marker.
+   */
+  COLLAPSED("[collapsed]"),
+
+  /**
+   * The entry could not be read for lack of permission.
+   */
+  PERMISSION_DENIED("[permission denied]"),
+
+  /**
+   * The entry no longer existed when it was read.
+   */
+  VANISHED("[vanished]"),
+
+  /**
+   * The directory could not be listed for another reason, such as an I/O error.
+   */
+  UNREADABLE("[unreadable]"),
+
+  /**
+   * The directory's children could not be sorted because of a problem with
+   * the temporary files of an external sort, not with the directory itself.
+   */
+  SORT_FAILED("[sort failed]");
+
+  private final String marker;
+
+  /**
+   * Constructs an EntryStatus with the marker printed after affected entries.
+   *
+   * @param marker the text printed after the entry's name, or "" for none
+   */
+  EntryStatus(String marker) {
+    this.marker = marker;
+  }
+
+  /**
+   * Returns the marker printed after the name of an entry with this status.
+   *
+   * @return the marker, such as "[timed out]", or "" if nothing is printed
+   */
+  public String getMarker() {
+    return marker;
+  }
+
+  /**
+   * Indicates whether this status means the entry could not be read, as
+   * opposed to being left unread on purpose.
+   *
+   * @return true for PERMISSION_DENIED, VANISHED and UNREADABLE; false otherwise
+   */
+  public boolean isError() {
+    return this == PERMISSION_DENIED || this == VANISHED || this == UNREADABLE;
+  }
+}
@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ErrorSummaryTest {
+
+  @Test
+  void testSummaryCountsEachReason(@TempDir Path tempDir) {
+    TreeEntry entry = FileSystemLister.entry(tempDir.toFile(), 0);
+    ErrorSummary errors = new ErrorSummary();
+
+    errors.record(entry);
+    errors.record(entry.withStatus(EntryStatus.TIMED_OUT));
+    for (int i = 0; i < 2300; i++) {
+      errors.record(entry.withStatus(EntryStatus.PERMISSION_DENIED));
+    }
+    errors.record(entry.withStatus(EntryStatus.VANISHED));
+
+    assertEquals(2301, errors.getTotal());
+    assertEquals("Could not read 2,301 entries: 2,300 permission denied, 1 vanished", errors.toString());
+  }
+
+  @Test
+  void testVanishedDirectoryGivesFailedListing(@TempDir Path tempDir) throws IOException {
+    // Arrange: list a directory that is removed after it was found
+    Path gone = Files.createDirectory(tempDir.resolve("gone"));
+    TreeEntry entry = FileSystemLister.entry(gone.toFile(), 1);
+    Files.delete(gone);
+
+    // Act & Assert
+    assertEquals(EntryStatus.VANISHED, new FileSystemLister().open(entry).getStatus());
+    assertEquals(EntryStatus.VANISHED, new UnsortedLister().open(entry).getStatus());
+    assertEquals(null, new FileSystemLister().list(entry));
+  }
+
+  @Test
+  void testUnreadableDirectoryIsMarkedOnlyWhenAsked(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    Path root = Files.createDirectory(tempDir.resolve("root"));
+    File locked = Files.createDirectory(root.resolve("locked")).toFile();
+    Files.createFile(root.resolve("locked").resolve("secret.txt"));
+    locked.setReadable(false, false);
+    try {
+      // Permissions do not stop the superuser, or apply on every platform
+      assumeFalse(locked.canRead());
+
+      // Act
+      String marked = print(new String[] {"-nc", "--show-errors", root.toString()});
+      String plain = print(new String[] {"-nc", root.toString()});
+
+      // Assert
+      assertTrue(marked.contains("locked/ [permission denied]"));
+      assertFalse(marked.contains("secret.txt"));
+      assertTrue(plain.contains("locked/" + System.lineSeparator()));
+    } finally {
+      locked.setReadable(true, false);
+    }
+  }
+
+  @Test
+  void testSummaryGoesToTheReportStream(@TempDir Path tempDir) throws IOException {
+    // Arrange: a lister that cannot list "locked", whoever runs the test
+    Path root = Files.createDirectory(tempDir.resolve("root"));
+    Files.createDirectory(root.resolve("locked"));
+    DirectoryLister lister = new FileSystemLister() {
+      @Override
+      public DirectoryListing open(TreeEntry directory) {
+        return directory.getName().equals("locked") ? DirectoryListing.failed(EntryStatus.PERMISSION_DENIED)
+            : super.open(directory);
+      }
+    };
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ByteArrayOutputStream report = new ByteArrayOutputStream();
+    TruffulaPrinter printer = new TruffulaPrinter(new TruffulaOptions(new String[] {"-nc", "--show-errors",
+        root.toString()}), new PrintStream(output, true, StandardCharsets.UTF_8), lister);
+
+    // Act
+    printer.printTree(new PrintStream(output, true, StandardCharsets.UTF_8),
+        new PrintStream(report, true, StandardCharsets.UTF_8), new CancellationHandle());
+
+    // Assert
+    assertTrue(output.toString(StandardCharsets.UTF_8).contains("locked/ [permission denied]"));
+    assertFalse(output.toString(StandardCharsets.UTF_8).contains("Could not read"));
+    assertEquals("Could not read 1 entry: 1 permission denied" + System.lineSeparator(),
+        report.toString(StandardCharsets.UTF_8));
+  }
+
+  private static String print(String[] args) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new TruffulaPrinter(new TruffulaOptions(args), new PrintStream(output, true, StandardCharsets.UTF_8)).printTree();
+    return output.toString(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,383 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * A DirectoryLister for directories too large to sort in memory.
+ * 
+ * Names are streamed from a DirectoryStream and collected until the budget of
+ * names held in memory is reached. Each full batch is sorted and spilled to a
+ * temporary file as a sorted run, and the runs are merged back together with
+ * a k-way merge as the walk reads the listing. Only the names are held while
+ * listing, and each child's attributes are read when the merge reaches it, so
+ * memory stays bounded by the budget no matter how large the directory is.
+ * 
+ * No merge reads more than MAX_FAN_IN runs at once. When a directory spills
+ * more runs than that, consecutive groups of them are first merged into
+ * larger runs, pass after pass, so the open files and read buffers of the
+ * final merge stay bounded however small the budget is.
+ * 
+ * Directories that fit within the budget are sorted in memory as usual.
+ * Entries are ordered exactly as AlphabeticalFileSorter would order them:
+ * by name ignoring case, with ties kept in the order the file system
+ * returned them.
+ * 
+ * Nothing is thrown for a failure. A directory that cannot be read gives a
+ * failed listing with the reason, as FileSystemLister does. A problem with
+ * the runs themselves, such as a full temp directory, is not the listed
+ * directory's fault: it gives EntryStatus.SORT_FAILED instead, either as the
+ * status of the listing or, if a run cannot be read back during the walk, by
+ * ending the listing there with that status.
+ */
+public class ExternalSortLister implements DirectoryLister {
+
+  /**
+   * The most runs read at once by a single merge.
+   */
+  static final int MAX_FAN_IN = 64;
+
+  /**
+   * The maximum number of names held in memory per directory.
+   */
+  private final int budget;
+
+  /**
+   * The directory in which sorted runs are written.
+   */
+  private final Path tempDirectory;
+
+  /**
+   * Constructs an ExternalSortLister that spills runs to the system temp directory.
+   *
+   * @param budget the maximum number of names held in memory per directory
+   */
+  public ExternalSortLister(int budget) {
+    this(budget, Path.of(System.getProperty("java.io.tmpdir")));
+  }
+
+  /**
+   * Constructs an ExternalSortLister that spills runs to the given directory.
+   *
+   * @param budget        the maximum number of names held in memory per directory
+   * @param tempDirectory the directory in which sorted runs are written
+   */
+  public ExternalSortLister(int budget, Path tempDirectory) {
+    if (budget < 1) {
+      throw new IllegalArgumentException("Sort budget must be positive");
+    }
+    this.budget = budget;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Lists the children of the given directory into an array. This holds every
+   * child in memory; walks use open instead.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted children of the directory, or null if it cannot be read
+   */
+  @Override
+  public TreeEntry[] list(TreeEntry directory) {
+    return DirectoryLister.drain(open(directory));
+  }
+
+  /**
+   * Opens the children of the given directory, spilling sorted runs to disk
+   * if there are more of them than the budget allows.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted children of the directory, or a failed listing if it cannot be read
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory) {
+    Path dir = directory.getPath();
+    List<Path> runs = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (Path child : stream) {
+        if (names.size() == budget) {
+          try {
+            runs.add(spill(names));
+          } catch (IOException e) {
+            deleteQuietly(runs);
+            return DirectoryListing.failed(EntryStatus.SORT_FAILED);
+          }
+          names.clear();
+        }
+        names.add(child.getFileName().toString());
+      }
+    } catch (IOException e) {
+      deleteQuietly(runs);
+      return DirectoryListing.failed(FileSystemLister.statusOf(e));
+    } catch (DirectoryIteratorException e) {
+      deleteQuietly(runs);
+      return DirectoryListing.failed(FileSystemLister.statusOf(e.getCause()));
+    }
+
+    if (runs.isEmpty()) {
+      return sortInMemory(directory, names);
+    }
+
+    try {
+      if (!names.isEmpty()) {
+        runs.add(spill(names));
+      }
+      runs = mergeDown(runs);
+      MergeCursor merge = new MergeCursor(directory, runs);
+      return DirectoryListing.streaming(merge, merge);
+    } catch (IOException e) {
+      deleteQuietly(runs);
+      return DirectoryListing.failed(EntryStatus.SORT_FAILED);
+    }
+  }
+
+  /**
+   * Opens the children of the given directory from names already read. If
+   * they fit within the budget they are sorted in memory without reading the
+   * directory again; otherwise it is read again and spilled as usual.
+   *
+   * @param directory the directory entry to list
+   * @param names     the names of every child, in the order the file system returned them
+   * @return the sorted children of the directory, or a failed listing if it cannot be read
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory, List<String> names) {
+    return names.size() <= budget ? sortInMemory(directory, names) : open(directory);
+  }
+
+  /**
+   * Sorts the children of a directory that fit within the budget in memory.
+   */
+  private static DirectoryListing sortInMemory(TreeEntry directory, List<String> names) {
+    TreeEntry[] entries = new TreeEntry[names.size()];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = FileSystemLister.child(directory, names.get(i));
+    }
+    return DirectoryListing.of(AlphabeticalFileSorter.sort(entries));
+  }
+
+  /**
+   * Merges consecutive groups of runs into larger runs until no more than
+   * MAX_FAN_IN are left. Groups keep the order the runs were spilled in, so
+   * names that compare equal stay in the order the file system returned them.
+   *
+   * @param runs the runs, in the order they were spilled; emptied if a merge fails
+   * @return at most MAX_FAN_IN runs holding the same names
+   * @throws IOException if a run cannot be read or written; every run is deleted
+   */
+  private List<Path> mergeDown(List<Path> runs) throws IOException {
+    while (runs.size() > MAX_FAN_IN) {
+      List<Path> merged = new ArrayList<>();
+      try {
+        while (!runs.isEmpty()) {
+          List<Path> group = runs.subList(0, Math.min(MAX_FAN_IN, runs.size()));
+          merged.add(group.size() == 1 ? group.get(0) : mergeRuns(new ArrayList<>(group)));
+          group.clear();
+        }
+      } catch (IOException e) {
+        deleteQuietly(merged);
+        deleteQuietly(runs);
+        runs.clear();
+        throw e;
+      }
+      runs = merged;
+    }
+    return runs;
+  }
+
+  /**
+   * Merges the given runs into one new run, deleting them.
+   *
+   * @param group the runs to merge, in the order they were spilled
+   * @return the merged run
+   * @throws IOException if a run cannot be read or written; the given runs are deleted
+   */
+  private Path mergeRuns(List<Path> group) throws IOException {
+    Path run;
+    try {
+      run = Files.createTempFile(tempDirectory, "truffula-run", ".tmp");
+    } catch (IOException e) {
+      deleteQuietly(group);
+      throw e;
+    }
+    try (MergeCursor merge = new MergeCursor(null, group);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+      out.writeInt(merge.size);
+      while (merge.hasNext()) {
+        out.writeUTF(merge.nextName());
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(run);
+      throw e;
+    }
+    return run;
+  }
+
+  /**
+   * Sorts a batch of names and writes it to a new run file.
+   *
+   * @param names the names to spill
+   * @return the run file
+   * @throws IOException if the run cannot be written
+   */
+  private Path spill(List<String> names) throws IOException {
+    names.sort(String.CASE_INSENSITIVE_ORDER);
+    Path run = Files.createTempFile(tempDirectory, "truffula-run", ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+      out.writeInt(names.size());
+      for (String name : names) {
+        out.writeUTF(name);
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(run);
+      throw e;
+    }
+    return run;
+  }
+
+  private static void deleteQuietly(List<Path> runs) {
+    for (Path run : runs) {
+      try {
+        Files.deleteIfExists(run);
+      } catch (IOException e) {
+        // Left for the operating system to clean out of the temp directory
+      }
+    }
+  }
+
+  /**
+   * One sorted run being read back during the merge.
+   */
+  private static final class Run {
+    private final DataInputStream in;
+    private final int index;
+    private int remaining;
+    private String current;
+
+    private Run(Path file, int index) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+      this.index = index;
+      try {
+        this.remaining = in.readInt();
+      } catch (IOException e) {
+        in.close();
+        throw e;
+      }
+    }
+
+    /**
+     * Reads the next name of the run into current.
+     *
+     * @return false if the run is exhausted
+     */
+    private boolean advance() throws IOException {
+      if (remaining == 0) {
+        return false;
+      }
+      remaining--;
+      current = in.readUTF();
+      return true;
+    }
+  }
+
+  /**
+   * Merges the sorted runs of one directory. Runs are compared by their
+   * current name and then by the order they were spilled in, which keeps the
+   * merge stable. Closing the cursor deletes the runs. If a run cannot be
+   * read, the cursor ends with EntryStatus.SORT_FAILED.
+   */
+  private static final class MergeCursor implements DirectoryListing.Cursor, Closeable {
+    private final TreeEntry directory;
+    private final List<Path> files;
+    private int size;
+    private EntryStatus status = EntryStatus.OK;
+    private final List<Run> runs = new ArrayList<>();
+    private final PriorityQueue<Run> queue = new PriorityQueue<>((a, b) -> {
+      int result = a.current.compareToIgnoreCase(b.current);
+      return result != 0 ? result : Integer.compare(a.index, b.index);
+    });
+
+    private MergeCursor(TreeEntry directory, List<Path> files) throws IOException {
+      this.directory = directory;
+      this.files = files;
+      try {
+        for (int i = 0; i < files.size(); i++) {
+          Run run = new Run(files.get(i), i);
+          runs.add(run);
+          size += run.remaining;
+          if (run.advance()) {
+            queue.add(run);
+          }
+        }
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public TreeEntry next() {
+      Run head = queue.peek();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      String name = head.current;
+      try {
+        nextName();
+      } catch (IOException e) {
+        // The name is already read, but nothing after it can be merged in order
+        status = EntryStatus.SORT_FAILED;
+        queue.clear();
+      }
+      return FileSystemLister.child(directory, name);
+    }
+
+    @Override
+    public EntryStatus getStatus() {
+      return status;
+    }
+
+    /**
+     * Returns the next name in merged order.
+     */
+    private String nextName() throws IOException {
+      Run run = queue.poll();
+      if (run == null) {
+        throw new NoSuchElementException();
+      }
+      String name = run.current;
+      if (run.advance()) {
+        queue.add(run);
+      }
+      return name;
+    }
+
+    @Override
+    public void close() throws IOException {
+      queue.clear();
+      for (Run run : runs) {
+        run.in.close();
+      }
+      runs.clear();
+      for (Path file : files) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+}
@@ -0,0 +1,170 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ExternalSortListerTest {
+
+  /**
+   * Creates a directory holding the given number of files whose names mix
+   * upper and lower case, so the sort has to ignore case.
+   */
+  private static File wideDirectory(File parent, int files) throws IOException {
+    File wide = new File(parent, "wide");
+    wide.mkdir();
+    for (int i = 0; i < files; i++) {
+      String name = (i % 3 == 0 ? "File" : "file") + ((i * 37) % files) + ".txt";
+      new File(wide, name).createNewFile();
+    }
+    return wide;
+  }
+
+  private static List<String> names(TreeEntry[] entries) {
+    List<String> names = new ArrayList<>();
+    for (TreeEntry entry : entries) {
+      names.add(entry.getName());
+    }
+    return names;
+  }
+
+  @Test
+  void testMergedRunsMatchInMemorySort(@TempDir File tempDir) throws IOException {
+    File wide = wideDirectory(tempDir, 50);
+    File spill = new File(tempDir, "spill");
+    spill.mkdir();
+    TreeEntry directory = FileSystemLister.entry(wide, 0);
+    ExternalSortLister lister = new ExternalSortLister(7, spill.toPath());
+
+    List<String> merged = new ArrayList<>();
+    try (DirectoryListing listing = lister.open(directory)) {
+      assertTrue(listing.isStreaming());
+      assertEquals(8, spill.list().length);
+      for (Iterator<TreeEntry> it = listing.iterator(); it.hasNext(); ) {
+        TreeEntry entry = it.next();
+        assertEquals(1, entry.getDepth());
+        merged.add(entry.getName());
+      }
+    }
+
+    assertEquals(names(new FileSystemLister().list(directory)), merged);
+    assertEquals(0, spill.list().length);
+  }
+
+  @Test
+  void testManyRunsAreMergedInPasses(@TempDir File tempDir) throws IOException {
+    File wide = wideDirectory(tempDir, 150);
+    File spill = new File(tempDir, "spill");
+    spill.mkdir();
+    TreeEntry directory = FileSystemLister.entry(wide, 0);
+    ExternalSortLister lister = new ExternalSortLister(1, spill.toPath());
+
+    List<String> merged = new ArrayList<>();
+    try (DirectoryListing listing = lister.open(directory)) {
+      // 150 runs of one name are merged into groups of at most MAX_FAN_IN first
+      assertEquals(3, spill.list().length);
+      listing.iterator().forEachRemaining(entry -> merged.add(entry.getName()));
+    }
+
+    assertEquals(names(new FileSystemLister().list(directory)), merged);
+    assertEquals(0, spill.list().length);
+  }
+
+  @Test
+  void testSpillFailureGivesFailedListing(@TempDir File tempDir) throws IOException {
+    File wide = wideDirectory(tempDir, 20);
+    TreeEntry directory = FileSystemLister.entry(wide, 0);
+    ExternalSortLister lister = new ExternalSortLister(4, tempDir.toPath().resolve("missing"));
+
+    DirectoryListing listing = lister.open(directory);
+
+    // The temp directory is at fault, not the listed one
+    assertEquals(EntryStatus.SORT_FAILED, listing.getStatus());
+    assertEquals(0, listing.getEntries().length);
+  }
+
+  @Test
+  void testRunReadFailureEndsTheWalkedListing(@TempDir File tempDir) throws IOException {
+    // Two runs of 40 long names each, larger than the buffer a run is read through
+    File wide = new File(tempDir, "wide");
+    wide.mkdir();
+    for (int i = 0; i < 80; i++) {
+      new File(wide, String.format("%03d", i) + "x".repeat(200)).createNewFile();
+    }
+    File spill = new File(tempDir, "spill");
+    spill.mkdir();
+    ExternalSortLister lister = new ExternalSortLister(40, spill.toPath());
+
+    List<TreeEntry> walked = new ArrayList<>();
+    try (Stream<TreeEntry> tree = TruffulaTree.stream(FileSystemLister.entry(wide, 0), lister)) {
+      Iterator<TreeEntry> it = tree.iterator();
+      walked.add(it.next());
+      // Cut every run short once the merge has started reading them
+      for (File run : spill.listFiles()) {
+        try (FileChannel channel = FileChannel.open(run.toPath(), StandardOpenOption.WRITE)) {
+          channel.truncate(4096);
+        }
+      }
+      it.forEachRemaining(walked::add);
+    }
+
+    TreeEntry last = walked.get(walked.size() - 1);
+    assertTrue(walked.size() < 82, "walked " + walked.size());
+    assertEquals("...", last.getName());
+    assertEquals(EntryStatus.SORT_FAILED, last.getStatus());
+    assertEquals(0, spill.list().length);
+  }
+
+  @Test
+  void testSmallDirectoryIsSortedInMemory(@TempDir File tempDir) throws IOException {
+    File wide = wideDirectory(tempDir, 5);
+    TreeEntry directory = FileSystemLister.entry(wide, 0);
+
+    DirectoryListing listing = new ExternalSortLister(10, tempDir.toPath()).open(directory);
+
+    assertFalse(listing.isStreaming());
+    assertEquals(names(new FileSystemLister().list(directory)), names(listing.getEntries()));
+  }
+
+  @Test
+  void testClosingAbandonedWalkDeletesRuns(@TempDir File tempDir) throws IOException {
+    File wide = wideDirectory(tempDir, 30);
+    File spill = new File(tempDir, "spill");
+    spill.mkdir();
+    ExternalSortLister lister = new ExternalSortLister(4, spill.toPath());
+
+    try (Stream<TreeEntry> tree = TruffulaTree.stream(FileSystemLister.entry(wide, 0), lister)) {
+      tree.skip(3).findFirst();
+      assertTrue(spill.list().length > 0);
+    }
+
+    assertEquals(0, spill.list().length);
+  }
+
+  @Test
+  void testSortBudgetOptionPrintsSameTree(@TempDir File tempDir) throws IOException {
+    File wide = wideDirectory(tempDir, 40);
+    new File(wide, "sub").mkdir();
+    new File(wide, "sub/inner.txt").createNewFile();
+
+    ByteArrayOutputStream inMemory = new ByteArrayOutputStream();
+    new TruffulaPrinter(new TruffulaOptions(new String[] {wide.getPath()}), new PrintStream(inMemory)).printTree();
+    ByteArrayOutputStream external = new ByteArrayOutputStream();
+    new TruffulaPrinter(new TruffulaOptions(new String[] {"--sort-budget", "6", wide.getPath()}),
+        new PrintStream(external)).printTree();
+
+    assertEquals(inMemory.toString(), external.toString());
+  }
+}
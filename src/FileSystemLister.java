@@ -0,0 +1,234 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A DirectoryLister that reads directories from the default file system.
+ * 
+ * By default children are sorted with AlphabeticalFileSorter, so walks produced
+ * with this lister visit entries in the same order the tree has always been
+ * printed in; another SortOrder or EntrySorter can be given instead. The attributes of each
+ * child are read exactly once, while listing, and sorting only uses those.
+ */
+public class FileSystemLister implements DirectoryLister {
+
+  /**
+   * The attributes read for each entry: DOS attributes on Windows, where they
+   * carry the hidden flag, POSIX attributes where they carry the permissions
+   * at no extra cost, and basic attributes everywhere else.
+   */
+  private static final Class<? extends BasicFileAttributes> ATTRIBUTES =
+      System.getProperty("os.name").toLowerCase().contains("win") ? DosFileAttributes.class
+          : FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+              ? PosixFileAttributes.class : BasicFileAttributes.class;
+
+  /**
+   * The sorter that decides the order in which children are returned.
+   */
+  private final EntrySorter sorter;
+
+  /**
+   * Constructs a FileSystemLister that sorts children alphabetically.
+   */
+  public FileSystemLister() {
+    this(SortOrder.NAME);
+  }
+
+  /**
+   * Constructs a FileSystemLister that sorts children with the given sorter.
+   *
+   * @param sorter the sorter that decides the order in which children are returned
+   */
+  public FileSystemLister(EntrySorter sorter) {
+    this.sorter = sorter;
+  }
+
+  /**
+   * Lists the children of the given directory, sorted by this lister's sorter.
+   * 
+   * Children whose attributes cannot be read carry the reason as their status.
+   * If that reason is that the directory itself may not be searched, so no
+   * child can be read, the remaining children are not even tried.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted children of the directory, or null if it cannot be read
+   */
+  @Override
+  public TreeEntry[] list(TreeEntry directory) {
+    Path dir = directory.getPath();
+    String[] names = dir.toFile().list();
+    if (names == null) {
+      return null;
+    }
+    return sorter.sort(children(directory, Arrays.asList(names)));
+  }
+
+  /**
+   * Opens the children of the given directory. A directory that cannot be
+   * read gives a failed listing whose status says why.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted children of the directory, or a failed listing
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory) {
+    TreeEntry[] entries = list(directory);
+    return entries != null ? DirectoryListing.of(entries) : DirectoryListing.failed(failureOf(directory.getPath()));
+  }
+
+  /**
+   * Opens the children of the given directory from names already read,
+   * without reading the directory again.
+   *
+   * @param directory the directory entry to list
+   * @param names     the names of every child, in the order the file system returned them
+   * @return the sorted children of the directory
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory, List<String> names) {
+    return DirectoryListing.of(sorter.sort(children(directory, names)));
+  }
+
+  /**
+   * Creates the entries for the given children of a directory, in the order
+   * of the names. If a child shows that the directory itself may not be
+   * searched, so no child can be read, the remaining children are not even tried.
+   * A name that cannot be made into a path is UNREADABLE, see child(TreeEntry, String).
+   *
+   * @param directory the directory the names were read from
+   * @param names     the names of its children
+   * @return the unsorted entries
+   */
+  static TreeEntry[] children(TreeEntry directory, List<String> names) {
+    TreeEntry[] entries = new TreeEntry[names.size()];
+    boolean searchable = true;
+    for (int i = 0; i < entries.length; i++) {
+      String name = names.get(i);
+      if (searchable) {
+        entries[i] = child(directory, name);
+        searchable = entries[i].getStatus() != EntryStatus.PERMISSION_DENIED;
+      } else {
+        entries[i] = new TreeEntry(directory.getPath(), name, directory.getDepth() + 1, null)
+            .withStatus(EntryStatus.PERMISSION_DENIED);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Creates the entry for the named child of a directory, reading its
+   * attributes. A name that the platform cannot encode as a path, such as a
+   * non-ASCII name when sun.jnu.encoding is ASCII, gives an UNREADABLE entry
+   * carrying the directory's path instead of an InvalidPathException.
+   *
+   * @param directory the directory the name was read from
+   * @param name      the name of the child
+   * @return the entry for the child
+   */
+  static TreeEntry child(TreeEntry directory, String name) {
+    int depth = directory.getDepth() + 1;
+    Path child;
+    try {
+      child = directory.getPath().resolve(name);
+    } catch (InvalidPathException e) {
+      return new TreeEntry(directory.getPath(), name, depth, null).withStatus(EntryStatus.UNREADABLE);
+    }
+    return child(child, name, depth);
+  }
+
+  /**
+   * Creates the entry for a child found while listing a directory, reading
+   * its attributes. If they cannot be read, the entry carries the reason.
+   *
+   * @param child the path of the child
+   * @param name  the name of the child
+   * @param depth the depth of the child below the root of the walk
+   * @return the entry for the child
+   */
+  static TreeEntry child(Path child, String name, int depth) {
+    BasicFileAttributes attributes = readAttributes(child);
+    TreeEntry entry = new TreeEntry(child, name, depth, attributes);
+    return attributes != null ? entry : entry.withStatus(failureOf(child));
+  }
+
+  /**
+   * Works out why a path could not be read or listed. This only happens after
+   * a failure, and uses the checks of java.io.File, which answer false instead
+   * of throwing, so a walk over thousands of unreadable entries creates no
+   * exceptions for them here.
+   *
+   * @param path the path that could not be read
+   * @return PERMISSION_DENIED, VANISHED or UNREADABLE
+   */
+  static EntryStatus failureOf(Path path) {
+    File file = path.toFile();
+    File parent = file.getParentFile();
+    if (parent != null && !parent.canExecute()) {
+      // Names in a directory without search permission cannot be looked up
+      return EntryStatus.PERMISSION_DENIED;
+    }
+    if (!file.exists()) {
+      return EntryStatus.VANISHED;
+    }
+    return file.canRead() ? EntryStatus.UNREADABLE : EntryStatus.PERMISSION_DENIED;
+  }
+
+  /**
+   * Returns the status for an exception thrown while listing a directory
+   * through java.nio, for listers that cannot avoid the exception.
+   *
+   * @param e the exception thrown
+   * @return PERMISSION_DENIED, VANISHED or UNREADABLE
+   */
+  static EntryStatus statusOf(IOException e) {
+    if (e instanceof AccessDeniedException) {
+      return EntryStatus.PERMISSION_DENIED;
+    }
+    return e instanceof NoSuchFileException ? EntryStatus.VANISHED : EntryStatus.UNREADABLE;
+  }
+
+  /**
+   * Creates an entry for the given path, reading its attributes from disk.
+   *
+   * @param file  the file or directory to create an entry for
+   * @param depth the depth of the entry below the root of the walk
+   * @return the entry for the file
+   */
+  public static TreeEntry entry(File file, int depth) {
+    Path path = file.toPath();
+    return new TreeEntry(path, file.getName(), depth, readAttributes(path));
+  }
+
+  /**
+   * Reads the attributes of a path, following symbolic links the same way
+   * File.isDirectory does. Broken links fall back to the link's own attributes.
+   * On Windows the DOS attributes are read instead, in the same call, so that
+   * hidden entries can be recognized without another stat; on Unix the POSIX
+   * attributes are, so that executables can be.
+   *
+   * @param path the path to read
+   * @return the attributes of the path, or null if it no longer exists
+   */
+  static BasicFileAttributes readAttributes(Path path) {
+    try {
+      return Files.readAttributes(path, ATTRIBUTES);
+    } catch (IOException followFailed) {
+      try {
+        return Files.readAttributes(path, ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+      } catch (IOException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileSystemListerTest {
+
+  @Test
+  void testNameOutsideThePathEncodingIsUnreadable(@TempDir File tempDir) throws Exception {
+    assumeTrue(new File("/bin/sh").canExecute());
+    File dir = new File(tempDir, "dir");
+    dir.mkdir();
+    new File(dir, "plain.txt").createNewFile();
+    // "caf\u00e9.txt" in UTF-8, written as raw bytes whatever this JVM's path encoding is
+    Process touch = new ProcessBuilder("/bin/sh", "-c", "touch \"$(printf 'caf\\303\\251.txt')\"")
+        .directory(dir).start();
+    assertEquals(0, touch.waitFor());
+
+    // The path encoding is fixed when the JVM starts, so list the directory in a new one
+    Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+    Path classes = Path.of(App.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    ProcessBuilder builder = new ProcessBuilder(java.toString(), "-Dsun.jnu.encoding=ANSI_X3.4-1968",
+        "-cp", classes.toString(), "App", "-nc", "--show-errors", dir.getPath());
+    builder.environment().put("LC_ALL", "C");
+    builder.redirectErrorStream(true);
+    Process process = builder.start();
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+    assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+
+    assertEquals(0, process.exitValue(), output);
+    assertTrue(output.contains("plain.txt"), output);
+    assertTrue(output.contains("[unreadable]"), output);
+  }
+
+  @Test
+  void testChildWithUnencodableNameKeepsItsName(@TempDir File tempDir) throws IOException {
+    TreeEntry directory = FileSystemLister.entry(tempDir, 0);
+
+    // NUL cannot appear in a path on any platform
+    TreeEntry child = FileSystemLister.child(directory, "bad\u0000name");
+
+    assertEquals("bad\u0000name", child.getName());
+    assertEquals(1, child.getDepth());
+    assertEquals(EntryStatus.UNREADABLE, child.getStatus());
+  }
+}
@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a gzip file, compressing on a background thread.
+ *
+ * Bytes written to the stream are collected in fixed-size buffers. Each full
+ * buffer is handed to a compressor thread, which deflates it into the file
+ * while the writing thread carries on walking the tree, so compression does
+ * not add to the time the walk takes. The buffers are recycled between the
+ * two threads: when all of them are waiting to be compressed the writer
+ * blocks, so a slow disk never fills the heap.
+ *
+ * Flushing hands over the bytes written so far without waiting for them to
+ * be compressed. Close the stream to finish the file; it waits for the
+ * compressor and reports any error it hit.
+ */
+public class GzipWriter extends OutputStream {
+
+  /**
+   * The size of each buffer handed to the compressor.
+   */
+  static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * The number of buffers shared between the writer and the compressor.
+   */
+  static final int BUFFER_COUNT = 4;
+
+  /**
+   * The buffer that tells the compressor to finish the file, compared by identity.
+   */
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  /**
+   * Buffers waiting to be compressed, in the order they were written.
+   */
+  private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+
+  /**
+   * Compressed buffers ready to be written to again.
+   */
+  private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+
+  /**
+   * The thread deflating buffers into the file.
+   */
+  private final Thread compressor;
+
+  /**
+   * The exception or error that stopped the compressor, or null. Written
+   * before the compressor stops, so close sees it after joining the thread.
+   */
+  private volatile Throwable failure;
+
+  /**
+   * The buffer being written to, or null once the stream is closed.
+   */
+  private ByteBuffer current;
+
+  /**
+   * Constructs a GzipWriter that creates or replaces the given file.
+   *
+   * @param file  the file to write
+   * @param level the deflate level, from 0 to 9, or -1 for the default
+   * @throws IOException if the file cannot be opened
+   */
+  public GzipWriter(Path file, int level) throws IOException {
+    this(Channels.newOutputStream(FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)), level);
+  }
+
+  /**
+   * Constructs a GzipWriter that writes the compressed bytes to the given
+   * stream, which is closed when the file is finished.
+   *
+   * @param target the stream the gzip file is written to
+   * @param level  the deflate level, from 0 to 9, or -1 for the default
+   * @throws IOException if the gzip header cannot be written
+   */
+  GzipWriter(OutputStream target, int level) throws IOException {
+    GZIPOutputStream gzip;
+    try {
+      gzip = new GZIPOutputStream(target, BUFFER_SIZE) {
+        {
+          def.setLevel(level);
+        }
+      };
+    } catch (IOException | IllegalArgumentException e) {
+      target.close();
+      throw e;
+    }
+    for (int i = 1; i < BUFFER_COUNT; i++) {
+      free.add(ByteBuffer.allocate(BUFFER_SIZE));
+    }
+    current = ByteBuffer.allocate(BUFFER_SIZE);
+    compressor = new Thread(() -> compress(gzip), "truffula-gzip");
+    compressor.setDaemon(true);
+    compressor.start();
+  }
+
+  /**
+   * Deflates each buffer handed over until END, then finishes the file. After
+   * any failure, including a RuntimeException or Error from the deflater,
+   * buffers are still taken and recycled so the writer never blocks.
+   */
+  private void compress(GZIPOutputStream gzip) {
+    try (gzip) {
+      ByteBuffer next;
+      while ((next = full.take()) != END) {
+        if (failure == null) {
+          try {
+            gzip.write(next.array(), 0, next.position());
+          } catch (Throwable e) {
+            failure = e;
+          }
+        }
+        next.clear();
+        free.add(next);
+      }
+    } catch (InterruptedException e) {
+      failure = new InterruptedIOException("Compression was interrupted");
+    } catch (Throwable e) {
+      if (failure == null) {
+        failure = e;
+      }
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureOpen();
+    if (!current.hasRemaining()) {
+      handOver();
+    }
+    current.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    ensureOpen();
+    while (length > 0) {
+      if (!current.hasRemaining()) {
+        handOver();
+      }
+      int chunk = Math.min(length, current.remaining());
+      current.put(bytes, offset, chunk);
+      offset += chunk;
+      length -= chunk;
+    }
+  }
+
+  /**
+   * Hands the bytes written so far to the compressor, without waiting for
+   * them to be compressed.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if (current.position() > 0) {
+      handOver();
+    }
+  }
+
+  /**
+   * Hands over the remaining bytes, waits for the compressor to finish the
+   * file, and reports the first error it hit.
+   */
+  @Override
+  public void close() throws IOException {
+    if (current == null) {
+      return;
+    }
+    try {
+      if (current.position() > 0) {
+        full.put(current);
+      }
+      current = null;
+      full.put(END);
+      compressor.join();
+    } catch (InterruptedException e) {
+      compressor.interrupt();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while finishing the compressed output");
+    }
+    throwFailure();
+  }
+
+  /**
+   * Queues the current buffer for compression and takes a free one to write
+   * to, waiting if the compressor is behind.
+   */
+  private void handOver() throws IOException {
+    throwFailure();
+    try {
+      full.put(current);
+      current = free.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the compressor");
+    }
+  }
+
+  /**
+   * Reports the failure that stopped the compressor, if any, as an IOException.
+   */
+  private void throwFailure() throws IOException {
+    Throwable stopped = failure;
+    if (stopped instanceof IOException) {
+      throw (IOException) stopped;
+    }
+    if (stopped != null) {
+      throw new IOException("Compression failed", stopped);
+    }
+  }
+
+  /**
+   * Fails if the stream has been closed.
+   */
+  private void ensureOpen() throws IOException {
+    if (current == null) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GzipWriterTest {
+
+  @Test
+  void testOutputDecompressesToWhatWasWritten(@TempDir Path tempDir) throws IOException {
+    // Arrange: more text than all the buffers hold, written in odd-sized pieces
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 40000; i++) {
+      text.append("\u251c\u2500\u2500 file").append(i).append(".txt\n");
+    }
+    byte[] expected = text.toString().getBytes(StandardCharsets.UTF_8);
+    Path file = tempDir.resolve("tree.txt.gz");
+
+    // Act
+    try (GzipWriter out = new GzipWriter(file, Deflater.BEST_SPEED)) {
+      out.write(expected[0]);
+      for (int offset = 1; offset < expected.length; offset += 1000) {
+        out.write(expected, offset, Math.min(1000, expected.length - offset));
+        if (offset % 7 == 0) {
+          out.flush();
+        }
+      }
+    }
+
+    // Assert
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      assertArrayEquals(expected, in.readAllBytes());
+    }
+  }
+
+  @Test
+  void testPrintedTreeIsCompressed(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    Path root = Files.createDirectory(tempDir.resolve("root"));
+    Files.createFile(root.resolve("a.txt"));
+    Files.createDirectory(root.resolve("sub"));
+    Files.createFile(root.resolve("sub").resolve("b.txt"));
+    Path file = tempDir.resolve("tree.gz");
+    TruffulaOptions options = new TruffulaOptions(root.toFile(), false, false);
+
+    // Act
+    PrintStream out = new PrintStream(new GzipWriter(file, Deflater.DEFAULT_COMPRESSION), false, StandardCharsets.UTF_8);
+    new TruffulaPrinter(options, out).printTree();
+    out.close();
+
+    // Assert
+    String expected = ConsoleColor.WHITE + "root/" + System.lineSeparator() + ConsoleColor.RESET
+        + ConsoleColor.WHITE + "   a.txt" + System.lineSeparator() + ConsoleColor.RESET
+        + ConsoleColor.WHITE + "   sub/" + System.lineSeparator() + ConsoleColor.RESET
+        + ConsoleColor.WHITE + "      b.txt" + System.lineSeparator() + ConsoleColor.RESET;
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), in.readAllBytes());
+    }
+  }
+
+  @Test
+  void testWriteAfterCloseFails(@TempDir Path tempDir) throws IOException {
+    GzipWriter out = new GzipWriter(tempDir.resolve("empty.gz"), Deflater.DEFAULT_COMPRESSION);
+    out.close();
+    out.close();
+
+    assertThrows(IOException.class, () -> out.write(1));
+  }
+
+  @Test
+  void testUncheckedCompressorFailureDoesNotHang() {
+    // A target that takes the gzip header, then fails the way a broken deflater might
+    OutputStream failing = new OutputStream() {
+      private boolean headerWritten;
+
+      @Override
+      public void write(int b) {
+        write(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) {
+        if (headerWritten) {
+          throw new IllegalStateException("deflater broke");
+        }
+        headerWritten = true;
+      }
+    };
+    byte[] noise = new byte[GzipWriter.BUFFER_SIZE * (GzipWriter.BUFFER_COUNT + 4)];
+    new Random(1).nextBytes(noise);
+
+    IOException thrown = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class, () -> {
+      try (GzipWriter out = new GzipWriter(failing, Deflater.BEST_SPEED)) {
+        out.write(noise, 0, noise.length);
+      }
+    }));
+    assertInstanceOf(IllegalStateException.class, thrown.getCause());
+  }
+}
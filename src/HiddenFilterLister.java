@@ -0,0 +1,111 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A DirectoryLister that leaves hidden entries out of every listing.
+ * 
+ * Because hidden directories never appear in a listing, a walk through this
+ * lister never descends into them, so folders such as .git are skipped as a
+ * whole rather than listed and then hidden. Whether an entry is hidden is
+ * decided by TreeEntry.isHidden from its name, or on Windows from the DOS
+ * attributes read while listing, so filtering costs no extra stat calls.
+ */
+public class HiddenFilterLister implements DirectoryLister {
+
+  /**
+   * The lister whose listings are filtered.
+   */
+  private final DirectoryLister delegate;
+
+  /**
+   * Constructs a HiddenFilterLister that filters the given lister.
+   *
+   * @param delegate the lister whose listings are filtered
+   */
+  public HiddenFilterLister(DirectoryLister delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Lists the children of the given directory that are not hidden.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted, visible children of the directory, or null if it cannot be read
+   */
+  @Override
+  public TreeEntry[] list(TreeEntry directory) {
+    return visible(delegate.list(directory));
+  }
+
+  /**
+   * Removes the hidden entries from an array of entries.
+   */
+  private static TreeEntry[] visible(TreeEntry[] entries) {
+    if (entries == null) {
+      return null;
+    }
+
+    int visible = 0;
+    for (TreeEntry entry : entries) {
+      if (!entry.isHidden()) {
+        entries[visible++] = entry;
+      }
+    }
+    return visible == entries.length ? entries : Arrays.copyOf(entries, visible);
+  }
+
+  /**
+   * Opens the children of the given directory that are not hidden. Streaming
+   * listings are filtered as they are read.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted, visible children of the directory, or null if it cannot be read
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory) {
+    DirectoryListing listing = delegate.open(directory);
+    if (listing != null && listing.getStatus() != EntryStatus.OK) {
+      return listing;
+    }
+    if (listing == null || !listing.isStreaming()) {
+      return listing == null ? null : DirectoryListing.of(visible(listing.getEntries()));
+    }
+
+    Iterator<TreeEntry> all = listing.iterator();
+    DirectoryListing.Cursor visible = new DirectoryListing.Cursor() {
+      private TreeEntry next = advance();
+
+      private TreeEntry advance() {
+        while (all.hasNext()) {
+          TreeEntry entry = all.next();
+          if (!entry.isHidden()) {
+            return entry;
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public TreeEntry next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        TreeEntry entry = next;
+        next = advance();
+        return entry;
+      }
+
+      @Override
+      public EntryStatus getStatus() {
+        return listing.getStatus();
+      }
+    };
+    return DirectoryListing.streaming(visible, listing::close);
+  }
+}
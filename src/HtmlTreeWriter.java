@@ -0,0 +1,235 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Writes a tree as HTML, one entry at a time, as used by the --format html mode.
+ *
+ * Every directory becomes a details element whose summary is the directory's
+ * name, so readers can fold directories away; files become div elements
+ * inside it. Entries are written as soon as the walk reaches them, in walk
+ * order, and a directory's details element is closed when the walk reaches
+ * an entry that is not below it. So only the depths of the open directories
+ * are remembered, and a page of millions of entries starts streaming out at
+ * once. The writer itself never needs the tree in memory; when several roots
+ * are printed, though, the roots waiting behind the one being written are
+ * held in memory by TruffulaPrinter, as for text output.
+ *
+ * A message that takes the place of a tree, such as "invalid directory", is
+ * written escaped in a div of class "message", never as terminal text.
+ *
+ * Each entry carries a CSS class named after its color, such as "purple",
+ * and the page's style sheet gives every ConsoleColor a color on a dark
+ * background, so the page looks like the colored terminal output. Colors
+ * from LS_COLORS have no class; TruffulaPrinter gives those entries the class
+ * of their depth color instead.
+ *
+ * Names are escaped in a single pass: each name is copied into a char buffer
+ * that is reused between entries, and runs of characters that need no
+ * escaping are written straight from it. A page is framed by writeHeader and
+ * writeFooter; one HtmlTreeWriter writes the trees in between, and is used by
+ * one thread at a time.
+ */
+public class HtmlTreeWriter {
+
+  /**
+   * The style sheet of the page: a dark background, nested directories
+   * indented, and one class per ConsoleColor.
+   */
+  private static final String STYLE = "body{background:#1e1e1e;color:#e5e5e5;font-family:monospace}"
+      + "details details,details>div{margin-left:1.5em}"
+      + "summary{cursor:pointer}"
+      + ".black{color:#767676}.red{color:#f14c4c}.green{color:#23d18b}.yellow{color:#f5f543}"
+      + ".blue{color:#3b8eea}.purple{color:#d670d6}.cyan{color:#29b8db}.white{color:#e5e5e5}"
+      + ".marker{color:#a0a0a0}.message{color:#f14c4c}";
+
+  /**
+   * The stream the HTML is written to, encoded as UTF-8.
+   */
+  private final Writer out;
+
+  /**
+   * The buffer names are copied into to be escaped, grown as needed.
+   */
+  private char[] buffer = new char[256];
+
+  /**
+   * The depths of the directories whose details elements are still open,
+   * from the outermost in, and how many of them there are.
+   */
+  private int[] open = new int[16];
+  private int openCount;
+
+  /**
+   * Constructs an HtmlTreeWriter that writes to the given stream.
+   *
+   * @param sink the stream the HTML is written to
+   */
+  public HtmlTreeWriter(PrintStream sink) {
+    this.out = new OutputStreamWriter(sink, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the start of a page, up to where the trees begin.
+   *
+   * @param sink  the stream to write to
+   * @param title the title of the page, escaped here
+   */
+  public static void writeHeader(PrintStream sink, String title) {
+    HtmlTreeWriter header = new HtmlTreeWriter(sink);
+    header.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>");
+    header.escape(title);
+    header.write("</title>\n<style>" + STYLE + "</style>\n</head>\n<body>\n");
+    header.flush();
+  }
+
+  /**
+   * Writes the end of a page, after the last tree.
+   *
+   * @param sink the stream to write to
+   */
+  public static void writeFooter(PrintStream sink) {
+    sink.print("</body>\n</html>\n");
+    sink.flush();
+  }
+
+  /**
+   * Writes one entry of a tree, first closing the directories the walk has left.
+   *
+   * @param depth     the depth of the entry below the root of its tree
+   * @param name      the name of the entry
+   * @param directory whether the entry is a directory
+   * @param marker    text written after the name, such as "[timed out]", or ""
+   * @param cssClass  the class of the entry's color, or null for none
+   */
+  public void entry(int depth, String name, boolean directory, String marker, String cssClass) {
+    closeTo(depth);
+    write(directory ? "<details open><summary" : "<div");
+    if (cssClass != null) {
+      write(" class=\"");
+      write(cssClass);
+      write("\"");
+    }
+    write(">");
+    escape(name);
+    if (directory) {
+      write("/");
+    }
+    if (!marker.isEmpty()) {
+      write(" <span class=\"marker\">");
+      escape(marker);
+      write("</span>");
+    }
+    if (directory) {
+      write("</summary>\n");
+      if (openCount == open.length) {
+        open = Arrays.copyOf(open, openCount * 2);
+      }
+      open[openCount++] = depth;
+    } else {
+      write("</div>\n");
+    }
+  }
+
+  /**
+   * Writes a message in place of a tree, after closing any open directories.
+   *
+   * @param text the message, escaped here
+   */
+  public void message(String text) {
+    closeTo(Integer.MIN_VALUE);
+    write("<div class=\"message\">");
+    escape(text);
+    write("</div>\n");
+    flush();
+  }
+
+  /**
+   * Closes every directory still open and flushes what has been written, at
+   * the end of a tree.
+   */
+  public void endTree() {
+    closeTo(Integer.MIN_VALUE);
+    flush();
+  }
+
+  /**
+   * Returns the CSS class for a color: the lower case name of a ConsoleColor,
+   * or null for any other color.
+   *
+   * @param color the color of an entry
+   * @return the class name, or null
+   */
+  public static String cssClass(TextColor color) {
+    return color instanceof ConsoleColor ? ((ConsoleColor) color).name().toLowerCase(Locale.ROOT) : null;
+  }
+
+  /**
+   * Closes the details elements of open directories at the given depth or deeper.
+   */
+  private void closeTo(int depth) {
+    while (openCount > 0 && open[openCount - 1] >= depth) {
+      openCount--;
+      write("</details>\n");
+    }
+  }
+
+  /**
+   * Writes text escaped for HTML in one pass over a reused char buffer,
+   * writing each run of characters that needs no escaping in one call.
+   */
+  private void escape(String text) {
+    int length = text.length();
+    if (buffer.length < length) {
+      buffer = new char[Math.max(length, buffer.length * 2)];
+    }
+    text.getChars(0, length, buffer, 0);
+    try {
+      int run = 0;
+      for (int i = 0; i < length; i++) {
+        String entity;
+        switch (buffer[i]) {
+          case '&': entity = "&amp;"; break;
+          case '<': entity = "&lt;"; break;
+          case '>': entity = "&gt;"; break;
+          case '"': entity = "&quot;"; break;
+          case '\'': entity = "&#39;"; break;
+          default: continue;
+        }
+        out.write(buffer, run, i - run);
+        out.write(entity);
+        run = i + 1;
+      }
+      out.write(buffer, run, length - run);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Writes markup that needs no escaping.
+   */
+  private void write(String markup) {
+    try {
+      out.write(markup);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Pushes everything written so far through to the stream.
+   */
+  private void flush() {
+    try {
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
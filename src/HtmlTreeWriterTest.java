@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class HtmlTreeWriterTest {
+
+  @Test
+  void testNamesAreEscaped() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    HtmlTreeWriter writer = new HtmlTreeWriter(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+    writer.entry(0, "a<b>&\"c'\u00e9", false, "", null);
+    writer.endTree();
+
+    assertEquals("<div>a&lt;b&gt;&amp;&quot;c&#39;\u00e9</div>\n", output.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testDirectoriesCloseWhenTheWalkLeavesThem() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    HtmlTreeWriter writer = new HtmlTreeWriter(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+    writer.entry(0, "root", true, "", "white");
+    writer.entry(1, "sub", true, "[2]", "purple");
+    writer.entry(2, "deep.txt", false, "", "green");
+    writer.entry(1, "top.txt", false, "", "purple");
+    writer.endTree();
+
+    assertEquals("<details open><summary class=\"white\">root/</summary>\n"
+        + "<details open><summary class=\"purple\">sub/ <span class=\"marker\">[2]</span></summary>\n"
+        + "<div class=\"green\">deep.txt</div>\n"
+        + "</details>\n"
+        + "<div class=\"purple\">top.txt</div>\n"
+        + "</details>\n", output.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testPrinterWritesAWholePage(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    Path root = Files.createDirectory(tempDir.resolve("root"));
+    Files.createDirectory(root.resolve("docs"));
+    Files.createFile(root.resolve("docs").resolve("<notes>.txt"));
+    Files.createFile(root.resolve("readme.md"));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // Act
+    new TruffulaPrinter(new TruffulaOptions(new String[] {"--format", "html", root.toString()}),
+        new PrintStream(output, true, StandardCharsets.UTF_8)).printTree();
+
+    // Assert
+    String page = output.toString(StandardCharsets.UTF_8);
+    assertTrue(page.startsWith("<!DOCTYPE html>"));
+    assertTrue(page.endsWith("</body>\n</html>\n"));
+    assertTrue(page.contains("&lt;notes&gt;.txt</div>"));
+    assertTrue(page.contains(">readme.md</div>"));
+    assertEquals(count(page, "<details"), count(page, "</details>"));
+    assertTrue(!page.contains("\u001b["));
+  }
+
+  @Test
+  void testBadRootsAreReportedInThePage(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    Path archive = Files.write(tempDir.resolve("broken.tar"), "<not a tar>".getBytes(StandardCharsets.UTF_8));
+    Path gone = Files.createDirectory(tempDir.resolve("gone"));
+    TruffulaOptions options = new TruffulaOptions(new String[] {"--format", "html", archive.toString(), gone.toString()});
+    Files.delete(gone);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // Act
+    new TruffulaPrinter(options, new PrintStream(output, true, StandardCharsets.UTF_8)).printTree();
+
+    // Assert
+    String page = output.toString(StandardCharsets.UTF_8);
+    assertTrue(page.contains("<div class=\"message\">invalid archive: "), page);
+    assertTrue(page.contains("<div class=\"message\">invalid directory</div>"), page);
+    assertTrue(!page.contains("\u001b["), page);
+  }
+
+  @Test
+  void testLsColorsEntriesKeepTheirDepthClass(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    Path root = Files.createDirectory(tempDir.resolve("root"));
+    Files.createDirectory(root.resolve("docs"));
+    Files.createFile(root.resolve("docs").resolve("notes.txt"));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // Act
+    new TruffulaPrinter(new TruffulaOptions(new String[] {"--ls-colors", "--format", "html", root.toString()}),
+        new PrintStream(output, true, StandardCharsets.UTF_8)).printTree();
+
+    // Assert
+    String page = output.toString(StandardCharsets.UTF_8);
+    assertTrue(page.contains("<summary class=\"purple\">docs/</summary>"), page);
+    assertTrue(page.contains("<div class=\"yellow\">notes.txt</div>"), page);
+    assertEquals(count(page, "<summary"), count(page, "<summary class="));
+  }
+
+  private static int count(String text, String part) {
+    int count = 0;
+    for (int at = text.indexOf(part); at >= 0; at = text.indexOf(part, at + 1)) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,221 @@
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Colors entries by file type and name, as configured by the LS_COLORS
+ * environment variable that GNU ls and dircolors use.
+ * 
+ * LS_COLORS is a colon-separated list of KEY=SGR pairs, for example
+ * "di=01;34:ln=01;36:ex=01;32:*.tar=01;31:*.tar.gz=01;31:*~=00;90".
+ * The keys understood here are:
+ * - di  : Directories
+ * - ln  : Symbolic links
+ * - ex  : Executable regular files
+ * - fi  : Any other regular file
+ * - *SUFFIX : Files whose names end with SUFFIX, ignoring case
+ * Other keys, and values that are not SGR parameters, are ignored.
+ * 
+ * The list is parsed once into a lookup table. Suffixes of the common form
+ * "*.ext" go in a hash map keyed by the lowercased extension; all others,
+ * such as "*.tar.gz" or "*~", go in a trie of reversed suffixes, walked from
+ * the end of a name. Picking a color is therefore linear in the length of the
+ * name and never uses a regular expression. The longest matching suffix wins.
+ * 
+ * As in GNU ls, links take precedence over directories, directories over
+ * executables, and executables over suffixes. Recognizing a symbolic link
+ * takes one extra lstat per entry, so it is only done when "ln" is set.
+ */
+public class LsColors {
+
+  /**
+   * The colors used when LS_COLORS is not set.
+   */
+  public static final String DEFAULT = "di=01;34:ln=01;36:ex=01;32";
+
+  /**
+   * A node of the reversed-suffix trie. Children are kept as a linked list,
+   * since most nodes have very few.
+   */
+  private static final class Node {
+    private final char key;
+    private Node firstChild;
+    private Node nextSibling;
+    private TextColor color;
+
+    private Node(char key) {
+      this.key = key;
+    }
+
+    private Node child(char c) {
+      for (Node child = firstChild; child != null; child = child.nextSibling) {
+        if (child.key == c) {
+          return child;
+        }
+      }
+      return null;
+    }
+
+    private Node addChild(char c) {
+      Node child = child(c);
+      if (child == null) {
+        child = new Node(c);
+        child.nextSibling = firstChild;
+        firstChild = child;
+      }
+      return child;
+    }
+  }
+
+  private TextColor directory;
+  private TextColor link;
+  private TextColor executable;
+  private TextColor file;
+
+  /**
+   * The colors of "*.ext" suffixes, by lowercased extension without the dot.
+   */
+  private final Map<String, TextColor> extensions = new HashMap<>();
+
+  /**
+   * The root of the trie of every other suffix, lowercased and reversed.
+   */
+  private final Node suffixes = new Node('\0');
+
+  private LsColors() {
+  }
+
+  /**
+   * Parses an LS_COLORS specification.
+   *
+   * @param spec the colon-separated KEY=SGR pairs
+   * @return the compiled lookup
+   */
+  public static LsColors parse(String spec) {
+    LsColors colors = new LsColors();
+    for (String pair : spec.split(":")) {
+      int equals = pair.indexOf('=');
+      if (equals <= 0) {
+        continue;
+      }
+      String key = pair.substring(0, equals);
+      TextColor color;
+      try {
+        color = new AnsiColor(pair.substring(equals + 1));
+      } catch (IllegalArgumentException e) {
+        continue;
+      }
+
+      if (key.startsWith("*")) {
+        colors.addSuffix(key.substring(1).toLowerCase(Locale.ROOT), color);
+      } else if (key.equals("di")) {
+        colors.directory = color;
+      } else if (key.equals("ln")) {
+        colors.link = color;
+      } else if (key.equals("ex")) {
+        colors.executable = color;
+      } else if (key.equals("fi")) {
+        colors.file = color;
+      }
+    }
+    return colors;
+  }
+
+  /**
+   * Parses the LS_COLORS environment variable, or DEFAULT if it is not set.
+   *
+   * @return the compiled lookup
+   */
+  public static LsColors fromEnvironment() {
+    String spec = System.getenv("LS_COLORS");
+    return parse(spec == null || spec.isEmpty() ? DEFAULT : spec);
+  }
+
+  private void addSuffix(String suffix, TextColor color) {
+    if (suffix.isEmpty()) {
+      return;
+    }
+    if (suffix.charAt(0) == '.' && suffix.indexOf('.', 1) < 0) {
+      extensions.put(suffix.substring(1), color);
+      return;
+    }
+    Node node = suffixes;
+    for (int i = suffix.length() - 1; i >= 0; i--) {
+      node = node.addChild(suffix.charAt(i));
+    }
+    node.color = color;
+  }
+
+  /**
+   * Returns the color for the given entry.
+   *
+   * @param entry the entry to color
+   * @return the configured color, or null if nothing in LS_COLORS applies
+   */
+  public TextColor colorFor(TreeEntry entry) {
+    if (link != null && Files.isSymbolicLink(entry.getPath())) {
+      return link;
+    }
+    if (entry.isDirectory()) {
+      return directory;
+    }
+    if (executable != null && isExecutable(entry)) {
+      return executable;
+    }
+    TextColor byName = colorForName(entry.getName());
+    return byName != null ? byName : file;
+  }
+
+  /**
+   * Returns the color configured for the suffix of a file name, taking the
+   * longest matching suffix.
+   *
+   * @param name the file name
+   * @return the suffix color, or null if no suffix matches
+   */
+  TextColor colorForName(String name) {
+    // Longest match in the trie, walking back from the end of the name
+    TextColor found = null;
+    int foundLength = 0;
+    Node node = suffixes;
+    for (int i = name.length() - 1; i >= 0 && node != null; i--) {
+      node = node.child(Character.toLowerCase(name.charAt(i)));
+      if (node != null && node.color != null) {
+        found = node.color;
+        foundLength = name.length() - i;
+      }
+    }
+
+    int dot = name.lastIndexOf('.');
+    if (dot >= 0 && name.length() - dot > foundLength && !extensions.isEmpty()) {
+      TextColor byExtension = extensions.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+      if (byExtension != null) {
+        return byExtension;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Indicates whether an entry is a regular file that anyone may execute,
+   * using the permissions read while listing when they are available.
+   */
+  private static boolean isExecutable(TreeEntry entry) {
+    BasicFileAttributes attributes = entry.getAttributes();
+    if (attributes == null || !attributes.isRegularFile()) {
+      return false;
+    }
+    if (attributes instanceof PosixFileAttributes) {
+      Set<PosixFilePermission> permissions = ((PosixFileAttributes) attributes).permissions();
+      return permissions.contains(PosixFilePermission.OWNER_EXECUTE)
+          || permissions.contains(PosixFilePermission.GROUP_EXECUTE)
+          || permissions.contains(PosixFilePermission.OTHERS_EXECUTE);
+    }
+    return Files.isExecutable(entry.getPath());
+  }
+}
@@ -0,0 +1,63 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LsColorsTest {
+
+  private static final LsColors COLORS = LsColors.parse(
+      "rs=0:di=01;34:ln=01;36:ex=01;32:fi=00:*.tar=01;31:*.gz=38;5;208:*.tar.gz=38;2;255;128;0"
+      + ":*~=00;90:*README=04:*.bad=red:broken");
+
+  @Test
+  void testExtensionsIgnoreCase() {
+    assertEquals(new AnsiColor("01;31"), COLORS.colorForName("backup.tar"));
+    assertEquals(new AnsiColor("01;31"), COLORS.colorForName("BACKUP.TAR"));
+    assertNull(COLORS.colorForName("notes.txt"));
+    assertNull(COLORS.colorForName("tar"));
+  }
+
+  @Test
+  void testLongestSuffixWins() {
+    assertEquals(AnsiColor.rgb(255, 128, 0), COLORS.colorForName("release.tar.gz"));
+    assertEquals(AnsiColor.palette(208), COLORS.colorForName("access.log.gz"));
+    assertEquals(new AnsiColor("00;90"), COLORS.colorForName("draft.txt~"));
+    assertEquals(new AnsiColor("04"), COLORS.colorForName("README"));
+  }
+
+  @Test
+  void testInvalidValuesAreIgnored() {
+    assertNull(COLORS.colorForName("file.bad"));
+  }
+
+  @Test
+  void testFileTypes(@TempDir File tempDir) throws IOException {
+    File dir = new File(tempDir, "src.tar");
+    dir.mkdir();
+    File script = new File(tempDir, "build.tar");
+    script.createNewFile();
+    script.setExecutable(true);
+    File plain = new File(tempDir, "notes.txt");
+    plain.createNewFile();
+    File link = new File(tempDir, "latest");
+    Files.createSymbolicLink(link.toPath(), dir.toPath());
+
+    assertEquals(new AnsiColor("01;34"), COLORS.colorFor(FileSystemLister.entry(dir, 1)));
+    assertEquals(new AnsiColor("01;32"), COLORS.colorFor(FileSystemLister.entry(script, 1)));
+    assertEquals(new AnsiColor("00"), COLORS.colorFor(FileSystemLister.entry(plain, 1)));
+    assertEquals(new AnsiColor("01;36"), COLORS.colorFor(FileSystemLister.entry(link, 1)));
+  }
+
+  @Test
+  void testMissingKeysFallBack(@TempDir File tempDir) throws IOException {
+    File plain = new File(tempDir, "notes.txt");
+    plain.createNewFile();
+
+    assertNull(LsColors.parse("*.tar=01;31").colorFor(FileSystemLister.entry(plain, 1)));
+  }
+}
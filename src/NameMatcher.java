@@ -0,0 +1,41 @@
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+
+/**
+ * Decides whether the name of an entry matches a glob, as used by the --find mode.
+ * 
+ * The glob uses the syntax of FileSystem.getPathMatcher, so "*.java" matches
+ * every Java file and "{README,LICENSE}*" matches both files. It is matched
+ * against the entry's name only, never its parent directories, so directories
+ * match too when their names do. A NameMatcher holds no state besides its
+ * glob, so one instance can be used from many threads at once.
+ */
+public class NameMatcher {
+
+  /**
+   * The compiled glob.
+   */
+  private final PathMatcher glob;
+
+  /**
+   * Constructs a NameMatcher for the given glob.
+   *
+   * @param glob the glob that names must match
+   * @throws IllegalArgumentException if the glob is invalid
+   */
+  public NameMatcher(String glob) {
+    this.glob = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+  }
+
+  /**
+   * Indicates whether the name of the given entry matches the glob.
+   *
+   * @param entry the entry to test
+   * @return true if the entry's name matches; false otherwise
+   */
+  public boolean matches(TreeEntry entry) {
+    Path name = entry.getPath().getFileName();
+    return name != null && glob.matches(name);
+  }
+}
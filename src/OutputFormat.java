@@ -0,0 +1,55 @@
+/**
+ * Enum representing the formats a tree can be printed in.
+ * 
+ * Supported Formats:
+ * - TEXT : Indented lines, colored with ANSI escape codes (the default)
+ * - HTML : An HTML page of nested, collapsible directories, colored with
+ *          CSS classes named after the same colors (see HtmlTreeWriter)
+ */
+public enum OutputFormat {
+  /**
+   * Indented lines for a terminal.
+   */
+  TEXT("text"),
+
+  /**
+   * An HTML page.
+   */
+  HTML("html");
+
+  private final String flag;
+
+  /**
+   * Constructs an OutputFormat with the given command-line name.
+   *
+   * @param flag the name used to select this format with --format
+   */
+  OutputFormat(String flag) {
+    this.flag = flag;
+  }
+
+  /**
+   * Returns the name used to select this format on the command line.
+   *
+   * @return the command-line name, such as "html"
+   */
+  public String getFlag() {
+    return flag;
+  }
+
+  /**
+   * Returns the format with the given command-line name.
+   *
+   * @param flag the command-line name, such as "text" or "html"
+   * @return the matching format
+   * @throws IllegalArgumentException if no format has that name
+   */
+  public static OutputFormat fromFlag(String flag) throws IllegalArgumentException {
+    for (OutputFormat format : values()) {
+      if (format.flag.equals(flag)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown output format: " + flag);
+  }
+}
@@ -0,0 +1,176 @@
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports how far a long walk has got, as used by the --progress mode.
+ *
+ * The walk calls visit for every entry it reaches. That only bumps a striped
+ * LongAdder, which threads walking in parallel update without contending,
+ * and stores the entry in a field with plain opaque writes: no locks, no
+ * fences and no I/O on the walk's path. A daemon thread samples both at a
+ * fixed interval and writes one line to the report stream, such as
+ *
+ * 1,204,331 entries, 48,210/s, 0:00:25, at src/main/java/org/example
+ *
+ * where the rate is over the last interval. Closing the reporter stops the
+ * thread and writes a final line with the total. The report stream is meant
+ * to be standard error, so the tree itself can be redirected to a file.
+ */
+public class ProgressReporter implements AutoCloseable {
+
+  /**
+   * How often a line is written when no interval is given.
+   */
+  public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+  private static final VarHandle CURRENT;
+
+  static {
+    try {
+      CURRENT = MethodHandles.lookup().findVarHandle(ProgressReporter.class, "current", TreeEntry.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /**
+   * The number of entries visited so far.
+   */
+  private final LongAdder visited = new LongAdder();
+
+  /**
+   * The entry visited most recently, written and read only through CURRENT
+   * in opaque mode. The sampler may see a slightly older entry; it is a hint.
+   */
+  @SuppressWarnings("unused")
+  private TreeEntry current;
+
+  /**
+   * The stream the lines are written to.
+   */
+  private final PrintStream report;
+
+  /**
+   * The time between lines.
+   */
+  private final long intervalMillis;
+
+  /**
+   * When the walk started, from System.nanoTime.
+   */
+  private final long started;
+
+  /**
+   * The thread writing the lines.
+   */
+  private final Thread sampler;
+
+  /**
+   * Set when the reporter is closed, telling the sampler to stop.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Constructs a ProgressReporter and starts writing a line every interval.
+   *
+   * @param report         the stream to write the lines to, such as System.err
+   * @param intervalMillis the time between lines, in milliseconds
+   */
+  public ProgressReporter(PrintStream report, long intervalMillis) {
+    this.report = report;
+    this.intervalMillis = intervalMillis;
+    this.started = System.nanoTime();
+    this.sampler = new Thread(this::sample, "truffula-progress");
+    sampler.setDaemon(true);
+    sampler.start();
+  }
+
+  /**
+   * Records that the walk has reached an entry. Safe to call from any number
+   * of threads at once.
+   *
+   * @param entry the entry reached
+   */
+  public void visit(TreeEntry entry) {
+    visited.increment();
+    CURRENT.setOpaque(this, entry);
+  }
+
+  /**
+   * Returns the number of entries visited so far.
+   *
+   * @return the count of calls to visit
+   */
+  public long getVisited() {
+    return visited.sum();
+  }
+
+  /**
+   * Writes a line every interval until the reporter is closed.
+   */
+  private void sample() {
+    long lastCount = 0;
+    long lastTime = started;
+    while (!closed) {
+      try {
+        Thread.sleep(intervalMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+      long now = System.nanoTime();
+      long count = visited.sum();
+      double rate = (count - lastCount) * 1e9 / Math.max(1, now - lastTime);
+      TreeEntry entry = (TreeEntry) CURRENT.getOpaque(this);
+      report.println(formatLine(count, rate, now - started, entry == null ? null : entry.getPath().toString()));
+      lastCount = count;
+      lastTime = now;
+    }
+  }
+
+  /**
+   * Stops the sampler and writes the total number of entries and the time taken.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    sampler.interrupt();
+    try {
+      sampler.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    long elapsed = System.nanoTime() - started;
+    long count = visited.sum();
+    report.println(String.format(Locale.ROOT, "done: %,d entries in %s, %,.0f/s", count,
+        formatElapsed(elapsed), count * 1e9 / Math.max(1, elapsed)));
+  }
+
+  /**
+   * Formats one progress line.
+   *
+   * @param count        the entries visited so far
+   * @param rate         the entries visited per second lately
+   * @param elapsedNanos the time since the walk started
+   * @param path         the path of the entry visited most recently, or null
+   * @return the line, without a line separator
+   */
+  static String formatLine(long count, double rate, long elapsedNanos, String path) {
+    String line = String.format(Locale.ROOT, "%,d entries, %,.0f/s, %s", count, rate, formatElapsed(elapsedNanos));
+    return path == null ? line : line + ", at " + path;
+  }
+
+  /**
+   * Formats a duration as hours, minutes and seconds, such as "1:02:05".
+   */
+  private static String formatElapsed(long nanos) {
+    long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+    return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+  }
+}
@@ -0,0 +1,53 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class ProgressReporterTest {
+
+  @Test
+  void testLineShowsCountRateElapsedAndPath() {
+    String line = ProgressReporter.formatLine(1_204_331, 48_210.4, TimeUnit.SECONDS.toNanos(3725), "src/main");
+
+    assertEquals("1,204,331 entries, 48,210/s, 1:02:05, at src/main", line);
+  }
+
+  @Test
+  void testVisitsAreSampledAndTotalled() throws InterruptedException {
+    // Arrange
+    ByteArrayOutputStream report = new ByteArrayOutputStream();
+    PrintStream err = new PrintStream(report, true, StandardCharsets.UTF_8);
+    TreeEntry entry = FileSystemLister.entry(new File("src"), 0);
+
+    // Act: visit from several threads, and give the sampler time to write a line
+    try (ProgressReporter progress = new ProgressReporter(err, 20)) {
+      Thread[] walkers = new Thread[4];
+      for (int i = 0; i < walkers.length; i++) {
+        walkers[i] = new Thread(() -> {
+          for (int j = 0; j < 10_000; j++) {
+            progress.visit(entry);
+          }
+        });
+        walkers[i].start();
+      }
+      for (Thread walker : walkers) {
+        walker.join();
+      }
+      assertEquals(40_000, progress.getVisited());
+      Thread.sleep(200);
+    }
+
+    // Assert
+    String[] lines = report.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+    assertTrue(lines.length >= 2, "expected a sample and a total");
+    assertTrue(lines[lines.length - 2].startsWith("40,000 entries, "));
+    assertTrue(lines[lines.length - 2].endsWith(", at src"));
+    assertTrue(lines[lines.length - 1].startsWith("done: 40,000 entries in 0:00:00, "));
+  }
+}
@@ -0,0 +1,382 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Fails the normal test run when walking, printing or sorting large trees
+ * starts to allocate much more, or to hold much more of the heap, than it does
+ * now.
+ *
+ * The trees are made by TreeGenerator from a fixed seed, so every run sees
+ * the same shapes: one very wide directory, one very deep chain, a skewed
+ * tree where a few directories hold most of the files, and names from many
+ * scripts. Allocation is counted per thread, so the walk, which TreePipeline
+ * runs on its own thread while printing, is measured separately from the
+ * printing. The heap high-water mark is the most heap still in use after a
+ * full collection, sampled a few times as the output is written.
+ *
+ * The bounds are a few times what the code needs today, so they catch a
+ * change that makes memory grow with the tree, or doubles the garbage per
+ * entry, without failing on noise between JVMs.
+ */
+public class ScalabilityTest {
+
+  /**
+   * The most bytes the walk may allocate per entry, for listing, sorting and
+   * making the entries.
+   */
+  private static final long WALK_BYTES_PER_ENTRY = 2048;
+
+  /**
+   * The most bytes printing may allocate per entry on the printing thread.
+   */
+  private static final long PRINT_BYTES_PER_ENTRY = 1536;
+
+  /**
+   * The most bytes sorting may allocate per entry.
+   */
+  private static final long SORT_BYTES_PER_ENTRY = 16;
+
+  /**
+   * The most heap printing may hold at once beyond what was in use before.
+   * The walk's queue and the widest listing, which take about 2 MB here, are
+   * meant to be all it holds; nothing may grow with the size of the tree.
+   */
+  private static final long PRINT_HEAP_BYTES = 8L << 20;
+
+  /**
+   * How many times the heap is sampled while printing. Each sample runs a
+   * full collection, which takes tens of milliseconds on a large heap.
+   */
+  private static final int HEAP_SAMPLES = 4;
+
+  @TempDir
+  static Path tempDir;
+
+  private static Path root;
+  private static int entries;
+
+  @BeforeAll
+  static void generate() throws IOException {
+    root = Files.createDirectory(tempDir.resolve("generated"));
+    TreeGenerator generator = new TreeGenerator(root, 42);
+    generator.wide("wide", 6000);
+    generator.deep("deep", 150);
+    generator.skewed("skewed", 60, 6000);
+    generator.unicode("unicode", 1500);
+    entries = generator.getCount() + 1;
+  }
+
+  @Test
+  void testGeneratorIsDeterministic(@TempDir Path other) throws IOException {
+    TreeGenerator first = new TreeGenerator(Files.createDirectory(other.resolve("a")), 7);
+    TreeGenerator second = new TreeGenerator(Files.createDirectory(other.resolve("b")), 7);
+    first.skewed("s", 10, 300);
+    second.skewed("s", 10, 300);
+
+    assertEquals(first.getCount(), second.getCount());
+    assertEquals(names(other.resolve("a")), names(other.resolve("b")));
+  }
+
+  @Test
+  void testWalkAllocationPerEntry() throws IOException {
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", root.toString()});
+    walk(options);
+
+    long before = allocatedBytes();
+    long walked = walk(options);
+    long allocated = allocatedBytes() - before;
+
+    assertEquals(entries, walked);
+    assertBelow("walk bytes per entry", WALK_BYTES_PER_ENTRY, allocated / walked);
+  }
+
+  @Test
+  void testPrintAllocationAndHeapHighWaterMark() throws IOException {
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", root.toString()});
+    print(options, new HeapSampler(Integer.MAX_VALUE));
+
+    // Each sample is a full collection, so take only a few, spread over the tree
+    HeapSampler sampler = new HeapSampler(entries / HEAP_SAMPLES);
+    long before = allocatedBytes();
+    long printed = print(options, sampler);
+    long allocated = allocatedBytes() - before;
+
+    assertEquals(entries, printed);
+    assertBelow("print bytes per entry", PRINT_BYTES_PER_ENTRY, allocated / printed);
+    assertTrue(sampler.getSamples() >= HEAP_SAMPLES);
+    assertBelow("print heap high-water mark", PRINT_HEAP_BYTES, sampler.getHighWaterMark());
+  }
+
+  @Test
+  void testSorterAllocationPerEntry() {
+    TreeGenerator names = new TreeGenerator(root, 99);
+    TreeEntry[] entries = new TreeEntry[100_000];
+    File[] files = new File[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      String name = names.nextName(i % 5 == 0);
+      entries[i] = new TreeEntry(root.resolve("x"), name, 1, null);
+      files[i] = new File(name);
+    }
+    AlphabeticalFileSorter.sort(entries.clone());
+    AlphabeticalFileSorter.sort(files.clone());
+
+    long before = allocatedBytes();
+    AlphabeticalFileSorter.sort(entries);
+    long sortedEntries = allocatedBytes() - before;
+    before = allocatedBytes();
+    AlphabeticalFileSorter.sort(files);
+    long sortedFiles = allocatedBytes() - before;
+
+    for (int i = 1; i < entries.length; i++) {
+      assertTrue(entries[i - 1].getName().compareToIgnoreCase(entries[i].getName()) <= 0);
+    }
+    assertBelow("entry sort bytes per entry", SORT_BYTES_PER_ENTRY, sortedEntries / entries.length);
+    assertBelow("file sort bytes per entry", SORT_BYTES_PER_ENTRY, sortedFiles / files.length);
+  }
+
+  /**
+   * Walks the tree the options name on this thread, returning the number of entries.
+   */
+  private static long walk(TruffulaOptions options) {
+    try (Stream<TreeEntry> tree = TruffulaTree.stream(options)) {
+      return tree.count();
+    }
+  }
+
+  /**
+   * Prints the tree the options name into the sampler, returning the number of lines.
+   */
+  private static long print(TruffulaOptions options, HeapSampler sampler) {
+    PrintStream sink = new PrintStream(sampler, false, StandardCharsets.UTF_8);
+    new TruffulaPrinter(options, sink).printTree();
+    sink.flush();
+    return sampler.getLines();
+  }
+
+  /**
+   * Returns the bytes this thread has allocated so far, skipping the test if
+   * the JVM cannot count them.
+   */
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+    assumeTrue(counting.isThreadAllocatedMemorySupported() && counting.isThreadAllocatedMemoryEnabled());
+    return counting.getCurrentThreadAllocatedBytes();
+  }
+
+  private static void assertBelow(String what, long bound, long actual) {
+    assertTrue(actual <= bound, what + " was " + actual + ", over the bound of " + bound);
+  }
+
+  private static List<String> names(Path dir) throws IOException {
+    List<String> names = new ArrayList<>();
+    try (Stream<Path> walk = Files.walk(dir)) {
+      walk.map(path -> dir.relativize(path).toString()).sorted().forEach(names::add);
+    }
+    return names;
+  }
+
+  /**
+   * An output stream that throws the output away, counting its lines, and
+   * every so many lines runs a full collection and records the heap still in
+   * use. The first sample is taken when it is constructed, as the baseline.
+   */
+  private static class HeapSampler extends OutputStream {
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final int interval;
+    private final long baseline;
+    private long lines;
+    private long highWaterMark;
+    private int samples;
+
+    HeapSampler(int interval) {
+      this.interval = interval;
+      this.baseline = liveHeap();
+    }
+
+    @Override
+    public void write(int b) {
+      if (b == '\n' && ++lines % interval == 0) {
+        highWaterMark = Math.max(highWaterMark, liveHeap() - baseline);
+        samples++;
+      }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      for (int i = offset; i < offset + length; i++) {
+        if (bytes[i] == '\n') {
+          write('\n');
+        }
+      }
+    }
+
+    private long liveHeap() {
+      System.gc();
+      return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    long getLines() {
+      return lines;
+    }
+
+    long getHighWaterMark() {
+      return highWaterMark;
+    }
+
+    int getSamples() {
+      return samples;
+    }
+  }
+
+  /**
+   * Makes trees of empty files and directories on disk from a seeded Random,
+   * so the same seed always makes the same tree on the same platform.
+   */
+  static class TreeGenerator {
+
+    /**
+     * Characters names are drawn from: ASCII, accented Latin, Greek,
+     * Cyrillic, CJK, and an emoji outside the Basic Multilingual Plane.
+     */
+    private static final String[] ALPHABETS = {
+        "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-_",
+        "\u00e0\u00e1\u00e9\u00e8\u00ef\u00f1\u00f6\u00fc\u00df\u00c5\u00c9\u00d8",
+        "\u03b1\u03b2\u03b3\u03b4\u03bb\u03c3\u03c9\u0391\u0394\u03a3",
+        "\u0430\u0431\u0432\u0433\u0434\u0436\u044f\u0416\u042f",
+        "\u6728\u68ee\u6797\u5c71\u5ddd\u6587\u5b57\u8a9e",
+        "\ud83c\udf33\ud83c\udf32"};
+
+    private final Path root;
+    private final Random random;
+    private int count;
+
+    TreeGenerator(Path root, long seed) {
+      this.root = root;
+      this.random = new Random(seed);
+    }
+
+    /**
+     * Makes a directory holding the given number of files.
+     */
+    void wide(String name, int files) throws IOException {
+      Path dir = directory(root, name);
+      for (int i = 0; i < files; i++) {
+        file(dir, nextName(false));
+      }
+    }
+
+    /**
+     * Makes a chain of directories the given number of levels deep, with a
+     * file at every level.
+     */
+    void deep(String name, int levels) throws IOException {
+      Path dir = directory(root, name);
+      for (int i = 0; i < levels; i++) {
+        file(dir, nextName(false));
+        dir = directory(dir, "d" + i);
+      }
+    }
+
+    /**
+     * Makes the given number of directories sharing the given number of
+     * files, so that each directory holds about half as many as the one
+     * before it.
+     */
+    void skewed(String name, int directories, int files) throws IOException {
+      Path dir = directory(root, name);
+      int left = files;
+      for (int i = 0; i < directories; i++) {
+        Path sub = directory(dir, "s" + i + "-" + nextName(false));
+        int share = i == directories - 1 ? left : Math.max(1, left / 2);
+        for (int j = 0; j < share && left > 0; j++, left--) {
+          file(sub, nextName(false));
+        }
+      }
+    }
+
+    /**
+     * Makes a directory of files and subdirectories whose names mix scripts.
+     */
+    void unicode(String name, int files) throws IOException {
+      Path dir = directory(root, name);
+      Path sub = dir;
+      for (int i = 0; i < files; i++) {
+        if (i % 50 == 0) {
+          sub = directory(dir, nextName(true));
+        }
+        file(sub, nextName(true));
+      }
+    }
+
+    /**
+     * Returns a new name of 4 to 24 characters, drawn from ASCII only, or
+     * from every alphabet. Names that differ in case, or from another only
+     * by a number, are likely.
+     */
+    String nextName(boolean unicode) {
+      StringBuilder name = new StringBuilder();
+      int length = 4 + random.nextInt(21);
+      while (name.length() < length) {
+        String alphabet = ALPHABETS[unicode ? random.nextInt(ALPHABETS.length) : 0];
+        int at = random.nextInt(alphabet.length());
+        if (Character.isHighSurrogate(alphabet.charAt(at))) {
+          name.append(alphabet, at, at + 2);
+        } else if (!Character.isLowSurrogate(alphabet.charAt(at))) {
+          name.append(alphabet.charAt(at));
+        }
+      }
+      return name.append('-').append(count).toString();
+    }
+
+    int getCount() {
+      return count;
+    }
+
+    private Path directory(Path parent, String name) throws IOException {
+      count++;
+      return Files.createDirectory(resolve(parent, name));
+    }
+
+    private void file(Path parent, String name) throws IOException {
+      count++;
+      Files.createFile(resolve(parent, name));
+    }
+
+    /**
+     * Resolves a name, spelling it in ASCII code points when the platform
+     * cannot encode it as a file name.
+     */
+    private static Path resolve(Path parent, String name) {
+      try {
+        return parent.resolve(name);
+      } catch (InvalidPathException e) {
+        StringBuilder ascii = new StringBuilder();
+        name.codePoints().forEach(c -> ascii.append(c < 128 ? Character.toString(c) : "u" + Integer.toHexString(c)));
+        return parent.resolve(ascii.toString());
+      }
+    }
+  }
+}
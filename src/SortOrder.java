@@ -0,0 +1,218 @@
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Enum representing the orders in which the entries of a directory can be sorted.
+ * 
+ * Supported Orders:
+ * - NAME       : Alphabetical, ignoring case (the default, see AlphabeticalFileSorter)
+ * - SIZE       : Largest first
+ * - MTIME      : Most recently modified first
+ * - DIRS_FIRST : Directories before files
+ * - NATURAL    : Alphabetical, but runs of digits compare as numbers (file2 before file10)
+ * 
+ * Entries that compare equal under an order fall back to NAME order. To sort
+ * names by the rules of a particular language, use CollationSorter instead.
+ * 
+ * Sort keys come from the attributes read while listing. Every order other than
+ * NAME computes the key of each entry once, before sorting, so comparisons only
+ * look at precomputed values and never touch the file system.
+ */
+public enum SortOrder implements EntrySorter {
+  /**
+   * Alphabetical, ignoring case.
+   */
+  NAME("name"),
+
+  /**
+   * Largest first.
+   */
+  SIZE("size"),
+
+  /**
+   * Most recently modified first.
+   */
+  MTIME("mtime"),
+
+  /**
+   * Directories before files.
+   */
+  DIRS_FIRST("dirs-first"),
+
+  /**
+   * Alphabetical, with runs of digits compared by their numeric value.
+   */
+  NATURAL("natural");
+
+  private final String flag;
+
+  /**
+   * Constructs a SortOrder with the given command-line name.
+   *
+   * @param flag the name used to select this order with --sort
+   */
+  SortOrder(String flag) {
+    this.flag = flag;
+  }
+
+  /**
+   * Returns the name used to select this order on the command line.
+   *
+   * @return the command-line name of this order
+   */
+  public String getFlag() {
+    return flag;
+  }
+
+  /**
+   * Returns the order with the given command-line name.
+   *
+   * @param flag the command-line name, such as "size" or "dirs-first"
+   * @return the matching order
+   * @throws IllegalArgumentException if no order has that name
+   */
+  public static SortOrder fromFlag(String flag) throws IllegalArgumentException {
+    for (SortOrder order : values()) {
+      if (order.flag.equals(flag)) {
+        return order;
+      }
+    }
+    throw new IllegalArgumentException("Unknown sort order: " + flag);
+  }
+
+  /**
+   * Sorts an array of entries in this order.
+   *
+   * @param entries the array of entries to be sorted
+   * @return the sorted array of entries
+   */
+  @Override
+  public TreeEntry[] sort(TreeEntry[] entries) {
+    if (this == NAME) {
+      return AlphabeticalFileSorter.sort(entries);
+    }
+
+    SortKey[] keys = new SortKey[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      keys[i] = new SortKey(entries[i], this);
+    }
+    Arrays.sort(keys);
+    for (int i = 0; i < keys.length; i++) {
+      entries[i] = keys[i].entry;
+    }
+    return entries;
+  }
+
+  /**
+   * An entry together with the key it is sorted by, computed once.
+   */
+  private static final class SortKey implements Comparable<SortKey> {
+    private final TreeEntry entry;
+
+    /**
+     * The primary key; entries with a larger rank sort first.
+     */
+    private final long rank;
+
+    /**
+     * The lower-cased name, used by NATURAL order only.
+     */
+    private final String folded;
+
+    private SortKey(TreeEntry entry, SortOrder order) {
+      this.entry = entry;
+      BasicFileAttributes attributes = entry.getAttributes();
+      switch (order) {
+        case SIZE:
+          rank = attributes == null ? 0 : attributes.size();
+          break;
+        case MTIME:
+          rank = attributes == null ? Long.MIN_VALUE : attributes.lastModifiedTime().toMillis();
+          break;
+        case DIRS_FIRST:
+          rank = entry.isDirectory() ? 1 : 0;
+          break;
+        default:
+          rank = 0;
+      }
+      folded = order == NATURAL ? entry.getName().toLowerCase(Locale.ROOT) : null;
+    }
+
+    @Override
+    public int compareTo(SortKey other) {
+      int result = Long.compare(other.rank, rank);
+      if (result == 0 && folded != null) {
+        result = compareNatural(folded, other.folded);
+      }
+      if (result == 0) {
+        result = entry.getName().compareToIgnoreCase(other.entry.getName());
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Compares two names chunk by chunk, where runs of digits are compared by
+   * numeric value and everything else character by character. Leading zeros
+   * are ignored and numbers of any length are supported.
+   *
+   * @param a the first name
+   * @param b the second name
+   * @return a negative number, zero, or a positive number as a sorts before, with, or after b
+   */
+  static int compareNatural(String a, String b) {
+    int i = 0;
+    int j = 0;
+    while (i < a.length() && j < b.length()) {
+      char ca = a.charAt(i);
+      char cb = b.charAt(j);
+      if (isDigit(ca) && isDigit(cb)) {
+        int startA = skipZeros(a, i);
+        int startB = skipZeros(b, j);
+        int endA = skipDigits(a, startA);
+        int endB = skipDigits(b, startB);
+
+        // A longer number without leading zeros is the larger number
+        int lengthA = endA - startA;
+        int lengthB = endB - startB;
+        if (lengthA != lengthB) {
+          return lengthA - lengthB;
+        }
+        for (int k = 0; k < lengthA; k++) {
+          int digit = a.charAt(startA + k) - b.charAt(startB + k);
+          if (digit != 0) {
+            return digit;
+          }
+        }
+        i = endA;
+        j = endB;
+      } else {
+        if (ca != cb) {
+          return ca - cb;
+        }
+        i++;
+        j++;
+      }
+    }
+    return (a.length() - i) - (b.length() - j);
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static int skipZeros(String s, int from) {
+    while (from < s.length() - 1 && s.charAt(from) == '0' && isDigit(s.charAt(from + 1))) {
+      from++;
+    }
+    return from;
+  }
+
+  private static int skipDigits(String s, int from) {
+    while (from < s.length() && isDigit(s.charAt(from))) {
+      from++;
+    }
+    return from;
+  }
+}
@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+public class SortOrderTest {
+
+  /**
+   * Attributes that exist only in memory, so any attempt to read the file
+   * system while sorting would find nothing at the entries' paths.
+   */
+  private static BasicFileAttributes attributes(boolean directory, long size, long modified) {
+    FileTime time = FileTime.fromMillis(modified);
+    return new BasicFileAttributes() {
+      public FileTime lastModifiedTime() { return time; }
+      public FileTime lastAccessTime() { return time; }
+      public FileTime creationTime() { return time; }
+      public boolean isRegularFile() { return !directory; }
+      public boolean isDirectory() { return directory; }
+      public boolean isSymbolicLink() { return false; }
+      public boolean isOther() { return false; }
+      public long size() { return size; }
+      public Object fileKey() { return null; }
+    };
+  }
+
+  private static TreeEntry entry(String name, boolean directory, long size, long modified) {
+    return new TreeEntry(Path.of("does-not-exist", name), name, 1, attributes(directory, size, modified));
+  }
+
+  private static List<String> names(TreeEntry[] entries) {
+    List<String> names = new ArrayList<>();
+    for (TreeEntry entry : entries) {
+      names.add(entry.getName());
+    }
+    return names;
+  }
+
+  private static TreeEntry[] sample() {
+    return new TreeEntry[] {
+      entry("file10.txt", false, 300, 1000),
+      entry("docs", true, 4096, 5000),
+      entry("File2.txt", false, 100, 3000),
+      entry("file1.txt", false, 200, 2000),
+    };
+  }
+
+  @Test
+  void testNameOrderMatchesAlphabeticalFileSorter() {
+    assertEquals(List.of("docs", "file1.txt", "file10.txt", "File2.txt"),
+        names(SortOrder.NAME.sort(sample())));
+  }
+
+  @Test
+  void testSizeOrderIsLargestFirst() {
+    assertEquals(List.of("docs", "file10.txt", "file1.txt", "File2.txt"),
+        names(SortOrder.SIZE.sort(sample())));
+  }
+
+  @Test
+  void testMtimeOrderIsNewestFirst() {
+    assertEquals(List.of("docs", "File2.txt", "file1.txt", "file10.txt"),
+        names(SortOrder.MTIME.sort(sample())));
+  }
+
+  @Test
+  void testDirsFirstKeepsNamesInOrder() {
+    TreeEntry[] entries = {
+      entry("b.txt", false, 0, 0),
+      entry("zoo", true, 0, 0),
+      entry("A.txt", false, 0, 0),
+      entry("apps", true, 0, 0),
+    };
+    assertEquals(List.of("apps", "zoo", "A.txt", "b.txt"), names(SortOrder.DIRS_FIRST.sort(entries)));
+  }
+
+  @Test
+  void testNaturalOrderComparesNumbers() {
+    assertEquals(List.of("docs", "file1.txt", "File2.txt", "file10.txt"),
+        names(SortOrder.NATURAL.sort(sample())));
+  }
+
+  @Test
+  void testNaturalOrderIgnoresDefaultLocale() {
+    // A Turkish default locale would fold "I" to a dotless "\u0131", which sorts after "j"
+    TreeEntry[] entries = {
+      entry("jar", false, 0, 0),
+      entry("Image1.png", false, 0, 0),
+      entry("index", false, 0, 0),
+    };
+    Locale defaultLocale = Locale.getDefault();
+    try {
+      Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+      assertEquals(List.of("Image1.png", "index", "jar"), names(SortOrder.NATURAL.sort(entries)));
+    } finally {
+      Locale.setDefault(defaultLocale);
+    }
+  }
+
+  @Test
+  void testNaturalCompareHandlesLeadingZerosAndLongNumbers() {
+    assertTrue(SortOrder.compareNatural("v1.9", "v1.10") < 0);
+    assertTrue(SortOrder.compareNatural("img007", "img8") < 0);
+    assertTrue(SortOrder.compareNatural("a99999999999999999999", "a100000000000000000000") < 0);
+    assertTrue(SortOrder.compareNatural("a", "a1") < 0);
+    assertEquals(0, SortOrder.compareNatural("x12y", "x12y"));
+  }
+
+  @Test
+  void testFromFlag() {
+    assertEquals(SortOrder.DIRS_FIRST, SortOrder.fromFlag("dirs-first"));
+    assertThrows(IllegalArgumentException.class, () -> SortOrder.fromFlag("color"));
+  }
+}
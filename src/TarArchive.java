@@ -0,0 +1,556 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The tree inside a tar or tar.gz archive, read without extracting it.
+ *
+ * The archive is read in one sequential pass over its headers. The body of
+ * each entry is skipped rather than read: on an uncompressed archive the skip
+ * moves the file position, and on a compressed one the body is inflated into
+ * a small scratch buffer and dropped, so even a huge backup is read with a
+ * constant amount of memory besides the tree itself. Compression is detected
+ * from the gzip magic number, not from the file name.
+ *
+ * Only the names, types, sizes and modification times of the entries are
+ * kept, as one small node per entry. Directories that the archive never lists
+ * themselves, only files below them, are created as they are needed. A path
+ * the archive holds more than once is listed once, as extracting it would leave it.
+ *
+ * A TarArchive is a DirectoryLister over its own nodes: the attributes of
+ * every entry it returns are its node, so the tree inside the archive walks,
+ * sorts and prints exactly like a directory tree on disk. The paths of the
+ * entries are the archive's path with the entry's path inside it appended;
+ * nothing exists on disk at those paths.
+ *
+ * Ustar, GNU (long names) and pax (path, size and mtime records) headers are
+ * understood. Links and special files are listed as entries but not followed.
+ */
+public class TarArchive implements DirectoryLister {
+
+  /**
+   * The size of a header and the unit entry bodies are padded to.
+   */
+  private static final int BLOCK = 512;
+
+  /**
+   * The longest GNU long name or pax header read into memory.
+   */
+  private static final int MAX_HEADER_BODY = 1 << 20;
+
+  /**
+   * One file, directory or other entry in the archive. A node is the
+   * attributes of the TreeEntry made for it.
+   */
+  static final class Node implements BasicFileAttributes {
+    private final String name;
+    private final char type;
+    private long size;
+    private long modified;
+    private final List<Node> children;
+
+    private Node(String name, char type, long size, long modified) {
+      this.name = name;
+      this.type = type;
+      this.size = size;
+      this.modified = modified;
+      this.children = type == '5' ? new ArrayList<>() : null;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+      return FileTime.fromMillis(modified);
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+      return lastModifiedTime();
+    }
+
+    @Override
+    public FileTime creationTime() {
+      return lastModifiedTime();
+    }
+
+    @Override
+    public boolean isRegularFile() {
+      return type == '0' || type == '1' || type == '7';
+    }
+
+    @Override
+    public boolean isDirectory() {
+      return children != null;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+      return type == '2';
+    }
+
+    @Override
+    public boolean isOther() {
+      return !isRegularFile() && !isDirectory() && !isSymbolicLink();
+    }
+
+    @Override
+    public long size() {
+      return size;
+    }
+
+    @Override
+    public Object fileKey() {
+      return null;
+    }
+  }
+
+  /**
+   * The path of the archive on disk.
+   */
+  private final Path file;
+
+  /**
+   * The node standing for the archive itself, the root of the tree.
+   */
+  private final Node root;
+
+  /**
+   * The sorter applied to each directory as it is listed, or null to list
+   * entries in the order they appear in the archive.
+   */
+  private final EntrySorter sorter;
+
+  private TarArchive(Path file, Node root, EntrySorter sorter) {
+    this.file = file;
+    this.root = root;
+    this.sorter = sorter;
+  }
+
+  /**
+   * Indicates whether a file looks like a tar archive by its name: a regular
+   * file ending in ".tar", ".tar.gz" or ".tgz".
+   *
+   * @param file the file to check
+   * @return true if the file should be read as an archive; false otherwise
+   */
+  public static boolean isArchive(File file) {
+    String name = file.getName().toLowerCase(Locale.ROOT);
+    return (name.endsWith(".tar") || name.endsWith(".tar.gz") || name.endsWith(".tgz")) && file.isFile();
+  }
+
+  /**
+   * Reads the headers of the archive at the given path.
+   *
+   * @param file   the tar or gzip compressed tar file
+   * @param sorter the order to list each directory in, or null for archive order
+   * @return the tree inside the archive
+   * @throws IOException if the file cannot be read or is not a valid tar archive
+   */
+  public static TarArchive read(Path file, EntrySorter sorter) throws IOException {
+    try (InputStream in = open(file)) {
+      return new TarArchive(file, readTree(in), sorter);
+    }
+  }
+
+  /**
+   * Opens the archive for reading, inflating it if it starts with the gzip
+   * magic number.
+   */
+  private static InputStream open(Path file) throws IOException {
+    // Skipping on a channel stream moves the position instead of reading
+    InputStream in = new BufferedInputStream(Channels.newInputStream(FileChannel.open(file)), 1 << 16);
+    try {
+      in.mark(2);
+      int first = in.read();
+      int second = in.read();
+      in.reset();
+      if (first == 0x1f && second == 0x8b) {
+        return new GZIPInputStream(in, 1 << 16);
+      }
+      return in;
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the entry for the archive itself, the root of the tree.
+   *
+   * @param name the name the root is printed with, such as the archive's file name
+   * @return the root entry at depth 0
+   */
+  public TreeEntry getRoot(String name) {
+    return new TreeEntry(file, name, 0, root);
+  }
+
+  @Override
+  public TreeEntry[] list(TreeEntry directory) {
+    if (!(directory.getAttributes() instanceof Node)) {
+      return null;
+    }
+    Node node = (Node) directory.getAttributes();
+    if (node.children == null) {
+      return null;
+    }
+    TreeEntry[] entries = new TreeEntry[node.children.size()];
+    for (int i = 0; i < entries.length; i++) {
+      Node child = node.children.get(i);
+      entries[i] = new TreeEntry(childPath(directory.getPath(), child.name), child.name,
+          directory.getDepth() + 1, child);
+    }
+    return sorter == null ? entries : sorter.sort(entries);
+  }
+
+  /**
+   * Appends a name to a path, keeping the parent's path if the name cannot be
+   * represented on this platform. The path is only informative inside an archive.
+   */
+  private static Path childPath(Path parent, String name) {
+    try {
+      return parent.resolve(name);
+    } catch (InvalidPathException e) {
+      return parent;
+    }
+  }
+
+  /**
+   * Reads every header of the archive and builds its tree, skipping the
+   * bodies of the entries.
+   */
+  private static Node readTree(InputStream in) throws IOException {
+    Node root = new Node("", '5', 0, 0);
+    // Directories by their path in the archive, needed only while reading
+    Map<String, Node> directories = new HashMap<>();
+    directories.put("", root);
+    byte[] header = new byte[BLOCK];
+    String longName = null;
+    Map<String, String> pax = null;
+    boolean first = true;
+
+    while (true) {
+      int read = in.readNBytes(header, 0, BLOCK);
+      if (read == 0 || (read == BLOCK && isZero(header))) {
+        break;
+      }
+      if (read < BLOCK) {
+        throw new EOFException("Truncated tar header");
+      }
+      if (!checksumMatches(header)) {
+        throw new IOException(first ? "Not a tar archive" : "Corrupt tar header");
+      }
+      first = false;
+
+      char type = header[156] == 0 ? '0' : (char) header[156];
+      long size = parseNumber(header, 124, 12);
+      if (type == 'L' || type == 'x') {
+        byte[] body = readBody(in, size);
+        if (type == 'L') {
+          longName = trimNul(new String(body, StandardCharsets.UTF_8));
+        } else {
+          pax = parsePax(body);
+        }
+        continue;
+      }
+      if (type == 'K' || type == 'g') {
+        skipBody(in, size);
+        continue;
+      }
+
+      String path = longName != null ? longName : headerName(header);
+      long modified = parseNumber(header, 136, 12) * 1000;
+      if (pax != null) {
+        path = pax.getOrDefault("path", path);
+        try {
+          if (pax.containsKey("size")) {
+            size = Long.parseLong(pax.get("size"));
+          }
+          if (pax.containsKey("mtime")) {
+            modified = (long) (Double.parseDouble(pax.get("mtime")) * 1000);
+          }
+        } catch (NumberFormatException e) {
+          throw new IOException("Corrupt pax header");
+        }
+        if (size < 0) {
+          throw new IOException("Corrupt pax header");
+        }
+      }
+      longName = null;
+      pax = null;
+
+      if (path.endsWith("/") && type == '0') {
+        type = '5';
+      }
+      // Hard links and directories have no body of their own
+      skipBody(in, type == '1' || type == '5' ? 0 : size);
+      add(directories, normalize(path), type, size, modified);
+    }
+    removeDuplicates(root);
+    return root;
+  }
+
+  /**
+   * Leaves one node per name in each directory, as extracting the archive
+   * would. An archive may hold the same path more than once, such as a file
+   * appended again, or a file that a later entry uses as a directory. A later
+   * entry replaces an earlier file, and a directory is kept over any file of
+   * the same name, so everything below it stays in the tree. Each directory
+   * is checked on its own, so this needs memory for the largest directory only.
+   */
+  private static void removeDuplicates(Node root) {
+    List<Node> pending = new ArrayList<>();
+    pending.add(root);
+    while (!pending.isEmpty()) {
+      Node directory = pending.remove(pending.size() - 1);
+      Map<String, Integer> seen = new HashMap<>();
+      List<Node> kept = new ArrayList<>(directory.children.size());
+      for (Node child : directory.children) {
+        Integer at = seen.putIfAbsent(child.name, kept.size());
+        if (at == null) {
+          kept.add(child);
+        } else if (!kept.get(at).isDirectory()) {
+          kept.set(at, child);
+        }
+      }
+      if (kept.size() < directory.children.size()) {
+        directory.children.clear();
+        directory.children.addAll(kept);
+      }
+      for (Node child : kept) {
+        if (child.isDirectory()) {
+          pending.add(child);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds one entry to the tree, creating any directories above it that the
+   * archive has not listed. An entry for a directory that already exists only
+   * updates its modification time.
+   */
+  private static void add(Map<String, Node> directories, String path, char type, long size, long modified) {
+    if (path.isEmpty()) {
+      return;
+    }
+    Node existing = directories.get(path);
+    if (existing != null) {
+      if (type == '5') {
+        existing.modified = modified;
+      }
+      return;
+    }
+    int slash = path.lastIndexOf('/');
+    Node parent = directory(directories, slash < 0 ? "" : path.substring(0, slash));
+    Node node = new Node(path.substring(slash + 1), type, type == '5' ? 0 : size, modified);
+    parent.children.add(node);
+    if (type == '5') {
+      directories.put(path, node);
+    }
+  }
+
+  /**
+   * Returns the directory at the given path, creating it and its parents if
+   * the archive has not listed them yet.
+   */
+  private static Node directory(Map<String, Node> directories, String path) {
+    Node node = directories.get(path);
+    if (node == null) {
+      int slash = path.lastIndexOf('/');
+      Node parent = directory(directories, slash < 0 ? "" : path.substring(0, slash));
+      node = new Node(path.substring(slash + 1), '5', 0, 0);
+      parent.children.add(node);
+      directories.put(path, node);
+    }
+    return node;
+  }
+
+  /**
+   * Removes empty and "." segments and leading or trailing slashes from a
+   * path in the archive, so "./src//a.txt" and "src/a.txt" are the same entry.
+   */
+  private static String normalize(String path) {
+    StringBuilder normal = new StringBuilder(path.length());
+    for (String segment : path.split("/")) {
+      if (segment.isEmpty() || segment.equals(".")) {
+        continue;
+      }
+      if (normal.length() > 0) {
+        normal.append('/');
+      }
+      normal.append(segment);
+    }
+    return normal.toString();
+  }
+
+  /**
+   * Returns the name in a header, joined to the ustar prefix if there is one.
+   */
+  private static String headerName(byte[] header) {
+    String name = field(header, 0, 100);
+    boolean ustar = header[257] == 'u' && header[258] == 's' && header[259] == 't'
+        && header[260] == 'a' && header[261] == 'r';
+    if (ustar && header[345] != 0) {
+      return field(header, 345, 155) + "/" + name;
+    }
+    return name;
+  }
+
+  /**
+   * Reads a NUL-terminated text field of a header.
+   */
+  private static String field(byte[] header, int offset, int length) {
+    int end = offset;
+    while (end < offset + length && header[end] != 0) {
+      end++;
+    }
+    return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a numeric field of a header: octal digits padded with spaces or
+   * NULs, or, if the high bit of the first byte is set, a big-endian binary
+   * number as GNU tar writes for sizes of 8 GiB and more.
+   */
+  private static long parseNumber(byte[] header, int offset, int length) throws IOException {
+    if ((header[offset] & 0x80) != 0) {
+      long value = header[offset] & 0x7f;
+      for (int i = offset + 1; i < offset + length; i++) {
+        value = (value << 8) | (header[i] & 0xff);
+      }
+      return value;
+    }
+    long value = 0;
+    for (int i = offset; i < offset + length; i++) {
+      byte b = header[i];
+      if (b >= '0' && b <= '7') {
+        value = (value << 3) | (b - '0');
+      } else if (b != ' ' && b != 0) {
+        throw new IOException("Corrupt tar header");
+      } else if (value != 0) {
+        break;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Checks the header checksum: the sum of the header's bytes with the
+   * checksum field itself counted as spaces.
+   */
+  private static boolean checksumMatches(byte[] header) {
+    long expected;
+    try {
+      expected = parseNumber(header, 148, 8);
+    } catch (IOException e) {
+      return false;
+    }
+    long unsigned = 0;
+    long signed = 0;
+    for (int i = 0; i < BLOCK; i++) {
+      int b = i >= 148 && i < 156 ? ' ' : header[i];
+      unsigned += b & 0xff;
+      signed += b;
+    }
+    // Some old writers summed signed bytes
+    return expected == unsigned || expected == signed;
+  }
+
+  /**
+   * Parses the records of a pax extended header, each "LENGTH KEY=VALUE\n".
+   */
+  private static Map<String, String> parsePax(byte[] bytes) throws IOException {
+    Map<String, String> records = new HashMap<>();
+    int position = 0;
+    while (position < bytes.length && bytes[position] != 0) {
+      int space = position;
+      while (space < bytes.length && bytes[space] != ' ') {
+        space++;
+      }
+      int length;
+      try {
+        length = Integer.parseInt(new String(bytes, position, space - position, StandardCharsets.US_ASCII));
+      } catch (NumberFormatException e) {
+        throw new IOException("Corrupt pax header");
+      }
+      if (length <= space - position || position + length > bytes.length) {
+        throw new IOException("Corrupt pax header");
+      }
+      String record = new String(bytes, space + 1, position + length - space - 2, StandardCharsets.UTF_8);
+      int equals = record.indexOf('=');
+      if (equals > 0) {
+        records.put(record.substring(0, equals), record.substring(equals + 1));
+      }
+      position += length;
+    }
+    return records;
+  }
+
+  /**
+   * Reads the body of a GNU long name or pax header, which is small.
+   */
+  private static byte[] readBody(InputStream in, long size) throws IOException {
+    if (size > MAX_HEADER_BODY) {
+      throw new IOException("Tar header too large: " + size + " bytes");
+    }
+    byte[] body = in.readNBytes((int) size);
+    if (body.length < size) {
+      throw new EOFException("Truncated tar header");
+    }
+    skipFully(in, padding(size));
+    return body;
+  }
+
+  /**
+   * Skips the body of an entry and the padding after it, without keeping it.
+   */
+  private static void skipBody(InputStream in, long size) throws IOException {
+    skipFully(in, size + padding(size));
+  }
+
+  private static long padding(long size) {
+    return (BLOCK - size % BLOCK) % BLOCK;
+  }
+
+  private static void skipFully(InputStream in, long count) throws IOException {
+    while (count > 0) {
+      long skipped = in.skip(count);
+      if (skipped <= 0) {
+        // skip may stop short without being at the end; read one byte to tell
+        if (in.read() < 0) {
+          throw new EOFException("Truncated tar entry");
+        }
+        skipped = 1;
+      }
+      count -= skipped;
+    }
+  }
+
+  private static String trimNul(String text) {
+    int nul = text.indexOf('\0');
+    return nul < 0 ? text : text.substring(0, nul);
+  }
+
+  private static boolean isZero(byte[] block) {
+    for (byte b : block) {
+      if (b != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,200 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TarArchiveTest {
+
+  @Test
+  void testArchivePrintsLikeTheSameDirectory(@TempDir Path tempDir) throws IOException {
+    // Arrange: a directory, and an archive of it written in a scrambled order
+    // with a "./" prefix and without an entry for every directory
+    Path root = Files.createDirectory(tempDir.resolve("backup"));
+    Files.createDirectories(root.resolve("Documents").resolve("images"));
+    Files.write(root.resolve("zebra.txt"), new byte[3]);
+    Files.write(root.resolve("apple.txt"), new byte[700]);
+    Files.write(root.resolve("Documents").resolve("notes.txt"), new byte[1]);
+    Files.write(root.resolve("Documents").resolve("images").resolve("Cat.png"), new byte[0]);
+    Files.write(root.resolve("Documents").resolve("images").resolve("cat.png"), new byte[0]);
+    Files.write(root.resolve(".hidden"), new byte[0]);
+
+    Path archive = tempDir.resolve("backup.tar.gz");
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+      writeEntry(out, "./zebra.txt", '0', new byte[3]);
+      writeEntry(out, "./Documents/images/cat.png", '0', new byte[0]);
+      writeEntry(out, "./.hidden", '0', new byte[0]);
+      writeEntry(out, "./apple.txt", '0', new byte[700]);
+      writeEntry(out, "./Documents/", '5', new byte[0]);
+      writeEntry(out, "./Documents/notes.txt", '0', new byte[1]);
+      writeEntry(out, "./Documents/images/Cat.png", '0', new byte[0]);
+      out.write(new byte[1024]);
+    }
+
+    // Act
+    String fromDisk = print(new TruffulaOptions(root.toFile(), false, true));
+    String fromArchive = print(new TruffulaOptions(new String[] {archive.toString()}));
+
+    // Assert: only the name of the root differs
+    assertEquals(fromDisk.replaceFirst("backup/", "backup.tar.gz/"), fromArchive);
+  }
+
+  @Test
+  void testLongNamesAndPaxPathsAreRead(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    String longName = "deep/" + "d".repeat(120) + "/long-file-name.txt";
+    String paxName = "pax/caf\u00e9.txt";
+    byte[] paxPath = ("path=" + paxName + "\n").getBytes(StandardCharsets.UTF_8);
+    byte[] paxRecord = ((paxPath.length + 3) + " ").getBytes(StandardCharsets.UTF_8);
+
+    Path archive = tempDir.resolve("names.tar");
+    try (OutputStream out = Files.newOutputStream(archive)) {
+      writeEntry(out, "././@LongLink", 'L', (longName + "\0").getBytes(StandardCharsets.UTF_8));
+      writeEntry(out, "truncated-name", '0', new byte[100_000]);
+      writeEntry(out, "PaxHeader", 'x', concat(paxRecord, paxPath));
+      writeEntry(out, "pax/cafe.txt", '0', new byte[5]);
+      writeEntry(out, "link", '2', new byte[0]);
+      out.write(new byte[1024]);
+    }
+
+    // Act
+    TarArchive tree = TarArchive.read(archive, SortOrder.NAME);
+    TreeEntry[] top = tree.list(tree.getRoot("names.tar"));
+    TreeEntry[] deep = tree.list(tree.list(top[0])[0]);
+    TreeEntry[] pax = tree.list(top[2]);
+
+    // Assert
+    assertEquals("deep", top[0].getName());
+    assertTrue(top[1].getAttributes().isSymbolicLink());
+    assertEquals("long-file-name.txt", deep[0].getName());
+    assertEquals(100_000, deep[0].getAttributes().size());
+    assertEquals("caf\u00e9.txt", pax[0].getName());
+    assertEquals(5, pax[0].getAttributes().size());
+  }
+
+  @Test
+  void testFilesThatAreNotArchivesAreRejected(@TempDir Path tempDir) throws IOException {
+    Path notTar = tempDir.resolve("notes.tar");
+    Files.write(notTar, "not a tar archive".repeat(100).getBytes(StandardCharsets.UTF_8));
+
+    IOException e = assertThrows(IOException.class, () -> TarArchive.read(notTar, SortOrder.NAME));
+    assertEquals("Not a tar archive", e.getMessage());
+  }
+
+  @Test
+  void testMalformedPaxSizeIsReportedNotThrown(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    byte[] paxSize = "size=12x4\n".getBytes(StandardCharsets.UTF_8);
+    byte[] paxRecord = ((paxSize.length + 3) + " ").getBytes(StandardCharsets.UTF_8);
+    Path archive = tempDir.resolve("bad.tar");
+    try (OutputStream out = Files.newOutputStream(archive)) {
+      writeEntry(out, "PaxHeader", 'x', concat(paxRecord, paxSize));
+      writeEntry(out, "file.txt", '0', new byte[5]);
+      out.write(new byte[1024]);
+    }
+
+    // Act & Assert
+    IOException e = assertThrows(IOException.class, () -> TarArchive.read(archive, SortOrder.NAME));
+    assertEquals("Corrupt pax header", e.getMessage());
+    assertTrue(print(new TruffulaOptions(new String[] {"-nc", archive.toString()}))
+        .contains("invalid archive: Corrupt pax header"));
+  }
+
+  @Test
+  void testRepeatedPathsBecomeOneEntry(@TempDir Path tempDir) throws IOException {
+    // Arrange: a file later used as a directory, and a file appended twice
+    Path archive = tempDir.resolve("appended.tar");
+    try (OutputStream out = Files.newOutputStream(archive)) {
+      writeEntry(out, "a", '0', new byte[1]);
+      writeEntry(out, "a/b.txt", '0', new byte[2]);
+      writeEntry(out, "c.txt", '0', new byte[3]);
+      writeEntry(out, "c.txt", '0', new byte[4]);
+      out.write(new byte[1024]);
+    }
+
+    // Act
+    TarArchive tree = TarArchive.read(archive, SortOrder.NAME);
+    TreeEntry[] top = tree.list(tree.getRoot("appended.tar"));
+
+    // Assert
+    assertEquals(2, top.length);
+    assertEquals("a", top[0].getName());
+    assertTrue(top[0].isDirectory());
+    assertEquals("b.txt", tree.list(top[0])[0].getName());
+    assertEquals("c.txt", top[1].getName());
+    assertEquals(4, top[1].getAttributes().size());
+  }
+
+  @Test
+  void testLargeArchiveDirectoriesAreCollapsed(@TempDir Path tempDir) throws IOException {
+    // Arrange
+    Path archive = tempDir.resolve("d.tar");
+    try (OutputStream out = Files.newOutputStream(archive)) {
+      for (int i = 0; i < 6; i++) {
+        writeEntry(out, "big/file" + i + ".txt", '0', new byte[1]);
+      }
+      writeEntry(out, "big/sub0/", '5', new byte[0]);
+      writeEntry(out, "big/sub1/inner.txt", '0', new byte[1]);
+      writeEntry(out, "small/only.txt", '0', new byte[1]);
+      out.write(new byte[1024]);
+    }
+
+    // Act
+    String printed = print(new TruffulaOptions(new String[] {"-nc", "--collapse", "5", archive.toString()}));
+
+    // Assert
+    assertTrue(printed.contains("   big/ [6 files, 2 dirs]"), printed);
+    assertTrue(!printed.contains("file0.txt"), printed);
+    assertTrue(!printed.contains("inner.txt"), printed);
+    assertTrue(printed.contains("      only.txt"), printed);
+  }
+
+  private static String print(TruffulaOptions options) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new TruffulaPrinter(options, new PrintStream(output, true, StandardCharsets.UTF_8)).printTree();
+    return output.toString(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes one ustar header and its body, padded to a whole block.
+   */
+  private static void writeEntry(OutputStream out, String name, char type, byte[] body) throws IOException {
+    byte[] header = new byte[512];
+    put(header, 0, name.getBytes(StandardCharsets.UTF_8), 100);
+    put(header, 100, "0000644".getBytes(StandardCharsets.US_ASCII), 8);
+    put(header, 124, String.format("%011o", body.length).getBytes(StandardCharsets.US_ASCII), 12);
+    put(header, 136, String.format("%011o", 1_700_000_000L).getBytes(StandardCharsets.US_ASCII), 12);
+    header[156] = (byte) type;
+    put(header, 257, "ustar\u000000".getBytes(StandardCharsets.US_ASCII), 8);
+    Arrays.fill(header, 148, 156, (byte) ' ');
+    int sum = 0;
+    for (byte b : header) {
+      sum += b & 0xff;
+    }
+    put(header, 148, String.format("%06o\u0000", sum).getBytes(StandardCharsets.US_ASCII), 7);
+    out.write(header);
+    out.write(body);
+    out.write(new byte[(512 - body.length % 512) % 512]);
+  }
+
+  private static void put(byte[] header, int offset, byte[] value, int length) {
+    System.arraycopy(value, 0, header, offset, Math.min(value.length, length));
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    byte[] both = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, both, first.length, second.length);
+    return both;
+  }
+}
@@ -0,0 +1,16 @@
+/**
+ * A color that text can be printed in, given by its ANSI escape code.
+ * 
+ * ConsoleColor provides the eight standard colors. AnsiColor covers
+ * everything else a terminal understands, including bold text, the
+ * 256-color palette and 24-bit true color, as used by LS_COLORS.
+ */
+public interface TextColor {
+
+  /**
+   * Returns the ANSI escape code that switches the terminal to this color.
+   *
+   * @return the ANSI escape code as a String
+   */
+  String getCode();
+}
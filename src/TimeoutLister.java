@@ -0,0 +1,261 @@
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A DirectoryLister that gives up on directories that take too long to list.
+ * 
+ * A read from a hung network mount can block forever, and File.list cannot be
+ * interrupted. This lister therefore runs each listing on a background thread
+ * and waits for it for at most the per-directory timeout, and never past the
+ * overall deadline. A directory that does not answer in time is reported with
+ * EntryStatus.TIMED_OUT and the walk moves on; once the deadline has passed,
+ * every remaining directory is reported as timed out without being listed.
+ * Cancelling the walk's CancellationHandle ends any wait immediately.
+ * 
+ * A streaming listing, such as that of UnsortedLister or the merge of an
+ * ExternalSortLister, reads the directory and each child's attributes while
+ * the walk goes through it, not when it is opened. Such listings are read
+ * ahead in batches of up to BATCH children, each on a listing thread and each
+ * waited for the same way, so a mount that hangs part way through ends the
+ * listing with EntryStatus.TIMED_OUT instead of blocking the walk, while no
+ * more than one batch per open directory is held in memory.
+ * 
+ * Threads stuck in a hung listing cannot be reclaimed, so listings run on
+ * their own pool of daemon threads rather than on the shared WorkerPool. The
+ * pool is bounded, with a bounded queue in front of it, so a hung mount ties
+ * up at most LISTING_THREAD_LIMIT threads; a listing that finds the queue
+ * full is reported as timed out at once.
+ */
+public class TimeoutLister implements DirectoryLister {
+
+  /**
+   * The most threads that listings run on at once.
+   */
+  static final int LISTING_THREAD_LIMIT = 16;
+
+  /**
+   * The most children of a streaming listing read ahead by one timed task.
+   */
+  static final int BATCH = 256;
+
+  /**
+   * The threads on which listings run. Idle threads exit after a minute.
+   */
+  private static final ThreadPoolExecutor LISTING_THREADS = new ThreadPoolExecutor(
+      LISTING_THREAD_LIMIT, LISTING_THREAD_LIMIT, 60, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(4 * LISTING_THREAD_LIMIT), task -> {
+        Thread thread = new Thread(task, "truffula-listing");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  static {
+    LISTING_THREADS.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * The lister that does the actual listing.
+   */
+  private final DirectoryLister delegate;
+
+  /**
+   * The longest time to wait for one directory, in nanoseconds, or 0 for no limit.
+   */
+  private final long timeoutNanos;
+
+  /**
+   * The System.nanoTime after which no more directories are listed, or
+   * Long.MAX_VALUE for no deadline.
+   */
+  private final long deadline;
+
+  /**
+   * The handle that abandons all waits when cancelled.
+   */
+  private final CancellationHandle cancellation;
+
+  /**
+   * Constructs a TimeoutLister.
+   *
+   * @param delegate       the lister that does the actual listing
+   * @param timeoutMillis  the longest time to wait for one directory, or 0 for no limit
+   * @param deadlineMillis the longest time the whole walk may spend listing,
+   *                       counted from now, or 0 for no deadline
+   * @param cancellation   the handle that abandons all waits when cancelled
+   */
+  public TimeoutLister(DirectoryLister delegate, long timeoutMillis, long deadlineMillis,
+      CancellationHandle cancellation) {
+    this.delegate = delegate;
+    this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    this.deadline = deadlineMillis > 0
+        ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis) : Long.MAX_VALUE;
+    this.cancellation = cancellation;
+  }
+
+  /**
+   * Lists the children of the given directory, giving up if it takes too long.
+   *
+   * @param directory the directory entry to list
+   * @return the sorted children, an empty array if the listing timed out, or
+   *         null if the directory cannot be read
+   */
+  @Override
+  public TreeEntry[] list(TreeEntry directory) {
+    return DirectoryLister.drain(open(directory));
+  }
+
+  /**
+   * Opens the children of the given directory, giving up if it takes too long.
+   * A streaming listing is returned wrapped, so that reading it is timed too.
+   *
+   * @param directory the directory entry to list
+   * @return the listing, a TIMED_OUT listing if it took too long, or null if
+   *         the directory cannot be read
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory) {
+    CompletableFuture<DirectoryListing> listing = submit(() -> delegate.open(directory));
+    if (!await(listing, directory)) {
+      // Close the listing if it ever does arrive, since nobody will read it
+      listing.thenAccept(late -> {
+        if (late != null) {
+          late.close();
+        }
+      });
+      return DirectoryListing.failed(EntryStatus.TIMED_OUT);
+    }
+    DirectoryListing opened = listing.join();
+    if (opened == null || !opened.isStreaming()) {
+      return opened;
+    }
+    TimedCursor cursor = new TimedCursor(directory, opened);
+    return DirectoryListing.streaming(cursor, cursor);
+  }
+
+  /**
+   * Starts a task on a listing thread. If the pool and its queue are full,
+   * the returned future never completes, so waiting on it times out.
+   */
+  private static <T> CompletableFuture<T> submit(java.util.function.Supplier<T> task) {
+    try {
+      return CompletableFuture.supplyAsync(task, LISTING_THREADS);
+    } catch (RejectedExecutionException e) {
+      return new CompletableFuture<>();
+    }
+  }
+
+  /**
+   * Waits for a task for at most the time the next listing may take, or
+   * until the walk is cancelled.
+   *
+   * @return true if the task finished in time
+   */
+  private boolean await(CompletableFuture<?> task, TreeEntry directory) {
+    long wait = waitNanos();
+    if (wait <= 0 || cancellation.isCancelled()) {
+      return false;
+    }
+    try {
+      CompletableFuture.anyOf(task, cancellation.asFuture()).get(wait, TimeUnit.NANOSECONDS);
+      return task.isDone();
+    } catch (TimeoutException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Could not list " + directory.getPath(), e.getCause());
+    }
+  }
+
+  /**
+   * Reads a streaming listing ahead in timed batches. If a batch does not
+   * arrive in time, the cursor ends with EntryStatus.TIMED_OUT, and the
+   * listing is closed once the batch that is still being read finishes.
+   */
+  private final class TimedCursor implements DirectoryListing.Cursor, Closeable {
+    private final TreeEntry directory;
+    private final DirectoryListing listing;
+    private final Iterator<TreeEntry> children;
+    private final ArrayDeque<TreeEntry> batch = new ArrayDeque<>();
+    private CompletableFuture<Boolean> reading;
+    private boolean ended;
+    private EntryStatus status = EntryStatus.OK;
+
+    private TimedCursor(TreeEntry directory, DirectoryListing listing) {
+      this.directory = directory;
+      this.listing = listing;
+      this.children = listing.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (!batch.isEmpty()) {
+        return true;
+      }
+      if (ended) {
+        return false;
+      }
+      // The batch is filled on the listing thread and only read here once it is complete
+      ArrayDeque<TreeEntry> next = new ArrayDeque<>();
+      reading = submit(() -> {
+        while (next.size() < BATCH && children.hasNext()) {
+          next.add(children.next());
+        }
+        return children.hasNext();
+      });
+      if (!await(reading, directory)) {
+        status = EntryStatus.TIMED_OUT;
+        ended = true;
+        return false;
+      }
+      ended = !reading.join();
+      batch.addAll(next);
+      return !batch.isEmpty();
+    }
+
+    @Override
+    public TreeEntry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return batch.poll();
+    }
+
+    @Override
+    public EntryStatus getStatus() {
+      return status != EntryStatus.OK ? status : listing.getStatus();
+    }
+
+    /**
+     * Closes the listing, or, if a batch is still being read from it by a
+     * listing thread, closes it once that batch is done.
+     */
+    @Override
+    public void close() {
+      if (reading == null || reading.isDone()) {
+        listing.close();
+      } else {
+        reading.whenComplete((more, failure) -> listing.close());
+      }
+    }
+  }
+
+  /**
+   * Returns how long the next listing may take: the per-directory timeout,
+   * cut short by the overall deadline.
+   */
+  private long waitNanos() {
+    long untilDeadline = deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+    return timeoutNanos > 0 ? Math.min(timeoutNanos, untilDeadline) : untilDeadline;
+  }
+}
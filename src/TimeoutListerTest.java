@@ -0,0 +1,228 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TimeoutListerTest {
+
+  /**
+   * A stand-in for a slow mount: listing any directory whose name is in the
+   * given set blocks for the given time, and every listing signals a latch.
+   */
+  private static final class DelayingLister implements DirectoryLister {
+    private final DirectoryLister fileSystem = new FileSystemLister();
+    private final Set<String> slow;
+    private final long delayMillis;
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    DelayingLister(Set<String> slow, long delayMillis) {
+      this.slow = slow;
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public TreeEntry[] list(TreeEntry directory) {
+      if (slow.contains(directory.getName())) {
+        started.countDown();
+        try {
+          Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return fileSystem.list(directory);
+    }
+  }
+
+  /**
+   * A stand-in for a mount that hangs part way through a streaming listing:
+   * the listing of "hung" opens at once, but reading its first child blocks
+   * until the test releases it.
+   */
+  private static final class HangingStreamLister implements DirectoryLister {
+    private final DirectoryLister fileSystem = new FileSystemLister();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public TreeEntry[] list(TreeEntry directory) {
+      return fileSystem.list(directory);
+    }
+
+    @Override
+    public DirectoryListing open(TreeEntry directory) {
+      if (!directory.getName().equals("hung")) {
+        return fileSystem.open(directory);
+      }
+      TreeEntry[] children = fileSystem.list(directory);
+      Iterator<TreeEntry> cursor = new Iterator<TreeEntry>() {
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return next < children.length;
+        }
+
+        @Override
+        public TreeEntry next() {
+          return children[next++];
+        }
+      };
+      return DirectoryListing.streaming(cursor, () -> { });
+    }
+  }
+
+  /**
+   * Collects output like a ByteArrayOutputStream, and signals a latch once
+   * the given text has been written.
+   */
+  private static final class WatchedOutput extends ByteArrayOutputStream {
+    private final String awaited;
+    private final CountDownLatch written = new CountDownLatch(1);
+
+    WatchedOutput(String awaited) {
+      this.awaited = awaited;
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+      super.write(bytes, offset, length);
+      if (toString().contains(awaited)) {
+        written.countDown();
+      }
+    }
+  }
+
+  private static void createTree(File root) throws IOException {
+    for (String name : new String[] {"fast", "hung", "last"}) {
+      File dir = new File(root, name);
+      dir.mkdir();
+      new File(dir, name + ".txt").createNewFile();
+    }
+  }
+
+  @Test
+  void testSlowDirectoryIsMarkedAndSkipped(@TempDir File tempDir) throws IOException {
+    createTree(tempDir);
+    DelayingLister slow = new DelayingLister(Set.of("hung"), 10_000);
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", "--timeout", "100", tempDir.getPath()});
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    TruffulaPrinter printer = new TruffulaPrinter(options, new PrintStream(output), slow);
+
+    long start = System.nanoTime();
+    printer.printTree();
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    String nl = System.lineSeparator();
+    StringBuilder expected = new StringBuilder();
+    for (String line : new String[] {tempDir.getName() + "/", "   fast/", "      fast.txt",
+        "   hung/ [timed out]", "   last/", "      last.txt"}) {
+      expected.append(ConsoleColor.WHITE).append(line).append(nl).append(ConsoleColor.RESET);
+    }
+    assertEquals(expected.toString(), output.toString());
+    assertTrue(elapsed < 5_000, "walk waited " + elapsed + " ms for a hung directory");
+  }
+
+  @Test
+  void testStreamingListingThatHangsIsCutShort(@TempDir File tempDir) throws IOException {
+    createTree(tempDir);
+    HangingStreamLister hanging = new HangingStreamLister();
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", "--timeout", "500", tempDir.getPath()});
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    long start = System.nanoTime();
+    try {
+      new TruffulaPrinter(options, new PrintStream(output), hanging).printTree();
+    } finally {
+      hanging.release.countDown();
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    String printed = output.toString();
+    assertTrue(printed.contains("   hung/"), printed);
+    assertTrue(printed.contains("      ... [timed out]"), printed);
+    assertTrue(printed.contains("      last.txt"), printed);
+    assertTrue(elapsed < 5_000, "walk waited " + elapsed + " ms for a hung listing");
+  }
+
+  @Test
+  void testDirectoriesAfterDeadlineAreNotListed(@TempDir File tempDir) throws IOException {
+    createTree(tempDir);
+    DelayingLister slow = new DelayingLister(Set.of("fast"), 300);
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", "--deadline", "200", tempDir.getPath()});
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    new TruffulaPrinter(options, new PrintStream(output), slow).printTree();
+
+    String printed = output.toString();
+    assertTrue(printed.contains("   fast/ [timed out]"), printed);
+    assertTrue(printed.contains("   hung/ [timed out]"), printed);
+    assertTrue(printed.contains("   last/ [timed out]"), printed);
+  }
+
+  @Test
+  void testCancelStopsWaitingForListing(@TempDir File tempDir) throws Exception {
+    createTree(tempDir);
+    DelayingLister slow = new DelayingLister(Set.of("hung"), 10_000);
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", "--timeout", "60000", tempDir.getPath()});
+    WatchedOutput output = new WatchedOutput("fast.txt");
+    TruffulaPrinter printer = new TruffulaPrinter(options, new PrintStream(output), slow);
+
+    CancellationHandle cancellation = new CancellationHandle();
+
+    Thread walk = new Thread(() -> printer.printTree(new PrintStream(output, true), cancellation));
+    walk.start();
+    // The walk runs ahead of printing, so wait for both the hung listing and the entries before it
+    assertTrue(slow.started.await(5, TimeUnit.SECONDS));
+    assertTrue(output.written.await(5, TimeUnit.SECONDS), output.toString());
+    cancellation.cancel();
+    walk.join(5_000);
+
+    assertTrue(!walk.isAlive(), "walk did not stop after being cancelled");
+    String printed = output.toString();
+    assertTrue(printed.contains("   fast/"), printed);
+    assertTrue(!printed.contains("last"), printed);
+  }
+
+  @Test
+  void testCancelStopsOnlyItsOwnCall(@TempDir File tempDir) throws Exception {
+    createTree(tempDir);
+    DelayingLister slow = new DelayingLister(Set.of("hung"), 1_500);
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", "--timeout", "60000", tempDir.getPath()});
+    TruffulaPrinter printer = new TruffulaPrinter(options, new PrintStream(new ByteArrayOutputStream()), slow);
+    ByteArrayOutputStream cancelledOutput = new ByteArrayOutputStream();
+    ByteArrayOutputStream concurrentOutput = new ByteArrayOutputStream();
+    ByteArrayOutputStream laterOutput = new ByteArrayOutputStream();
+    CancellationHandle cancelled = new CancellationHandle();
+
+    Thread first = new Thread(() -> printer.printTree(new PrintStream(cancelledOutput), cancelled));
+    first.start();
+    assertTrue(slow.started.await(5, TimeUnit.SECONDS));
+    Thread second = new Thread(() -> printer.printTree(new PrintStream(concurrentOutput), new CancellationHandle()));
+    second.start();
+    cancelled.cancel();
+    first.join(1_000);
+    second.join(10_000);
+    printer.printTree(new PrintStream(laterOutput), new CancellationHandle());
+
+    assertTrue(!first.isAlive(), "cancelled walk did not stop");
+    assertTrue(!second.isAlive(), "concurrent walk did not finish");
+    assertTrue(!cancelledOutput.toString().contains("last"), cancelledOutput.toString());
+    assertTrue(concurrentOutput.toString().contains("      last.txt"), concurrentOutput.toString());
+    assertEquals(concurrentOutput.toString(), laterOutput.toString());
+  }
+}
@@ -0,0 +1,180 @@
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+
+/**
+ * A single entry produced while walking a directory tree.
+ * 
+ * A TreeEntry pairs the path of a file or directory with its depth below the
+ * root of the walk and the attributes that were read when its parent directory
+ * was listed. The root of a walk has depth 0, its children depth 1, and so on.
+ * 
+ * Attributes are read once, when the entry is created, so consumers can inspect
+ * the type, size or modification time of an entry without touching the file
+ * system again. If the attributes could not be read (for example because the
+ * entry vanished between listing and reading) they are null and the entry is
+ * treated as a regular file.
+ * 
+ * A directory that could not be listed carries a status other than
+ * EntryStatus.OK, so the walk can report it without stopping. A directory
+ * that was collapsed carries the counts of its children instead.
+ */
+public class TreeEntry {
+  /**
+   * The path of the file or directory.
+   */
+  private final Path path;
+
+  /**
+   * The name of the file or directory, without any parent path.
+   */
+  private final String name;
+
+  /**
+   * The depth of this entry below the root of the walk.
+   */
+  private final int depth;
+
+  /**
+   * The attributes read when this entry was listed, or null if unavailable.
+   */
+  private final BasicFileAttributes attributes;
+
+  /**
+   * Whether this entry's children could be listed, and if not, why.
+   */
+  private final EntryStatus status;
+
+  /**
+   * The counts of the children of a collapsed directory, or null.
+   */
+  private final DirectoryCounts counts;
+
+  /**
+   * Constructs a TreeEntry.
+   *
+   * @param path       the path of the file or directory
+   * @param name       the name of the file or directory
+   * @param depth      the depth of the entry below the root of the walk
+   * @param attributes the attributes of the entry, or null if unavailable
+   */
+  public TreeEntry(Path path, String name, int depth, BasicFileAttributes attributes) {
+    this(path, name, depth, attributes, EntryStatus.OK, null);
+  }
+
+  private TreeEntry(Path path, String name, int depth, BasicFileAttributes attributes, EntryStatus status,
+      DirectoryCounts counts) {
+    this.path = path;
+    this.name = name;
+    this.depth = depth;
+    this.attributes = attributes;
+    this.status = status;
+    this.counts = counts;
+  }
+
+  /**
+   * Returns a copy of this entry with the given status.
+   *
+   * @param status the status of the copy
+   * @return this entry if it already has the status, otherwise a copy with it
+   */
+  public TreeEntry withStatus(EntryStatus status) {
+    return status == this.status ? this : new TreeEntry(path, name, depth, attributes, status, counts);
+  }
+
+  /**
+   * Returns a copy of this entry describing how its listing went: with the
+   * listing's status, and with the counts of its children if it was collapsed.
+   *
+   * @param listing the listing of this entry's children
+   * @return this entry if nothing changes, otherwise an updated copy
+   */
+  public TreeEntry withListing(DirectoryListing listing) {
+    if (listing.getCounts() == null) {
+      return withStatus(listing.getStatus());
+    }
+    return new TreeEntry(path, name, depth, attributes, listing.getStatus(), listing.getCounts());
+  }
+
+  /**
+   * Returns the path of this entry.
+   *
+   * @return the path of the file or directory
+   */
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Returns the name of this entry, as it would be printed in the tree.
+   *
+   * @return the name of the file or directory
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the depth of this entry below the root of the walk.
+   *
+   * @return the depth, where the root has depth 0
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Returns the attributes read when this entry was listed.
+   *
+   * @return the attributes of the entry, or null if they could not be read
+   */
+  public BasicFileAttributes getAttributes() {
+    return attributes;
+  }
+
+  /**
+   * Returns whether this entry's children could be listed, and if not, why.
+   *
+   * @return EntryStatus.OK, or the reason the children could not be listed
+   */
+  public EntryStatus getStatus() {
+    return status;
+  }
+
+  /**
+   * Returns the counts of the children of a collapsed directory.
+   *
+   * @return the counts, or null if this entry was not collapsed
+   */
+  public DirectoryCounts getCounts() {
+    return counts;
+  }
+
+  /**
+   * Indicates whether this entry is a directory.
+   *
+   * @return true if the entry is a directory; false otherwise
+   */
+  public boolean isDirectory() {
+    return attributes != null && attributes.isDirectory();
+  }
+
+  /**
+   * Indicates whether this entry is hidden. Names that start with a dot are
+   * hidden everywhere; on Windows, entries with the DOS hidden attribute are too.
+   * No file system access is needed, since the attributes were read while listing.
+   *
+   * @return true if the entry is hidden; false otherwise
+   */
+  public boolean isHidden() {
+    if (name.startsWith(".")) {
+      return true;
+    }
+    return attributes instanceof DosFileAttributes && ((DosFileAttributes) attributes).isHidden();
+  }
+
+  @Override
+  public String toString() {
+    return "TreeEntry [path=" + path + ", depth=" + depth + "]";
+  }
+}
@@ -0,0 +1,270 @@
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Estimates how many files, directories and bytes lie below a directory
+ * without listing all of it, as used by the --estimate mode.
+ * 
+ * The estimate is built from random probes (Knuth's estimator). A probe
+ * starts at the root and, at each directory, counts its files, subdirectories
+ * and bytes, then steps into one subdirectory picked at random, until it
+ * reaches a directory with no subdirectories. Counts found at each depth are
+ * scaled by the product of the branching factors on the way down, which makes
+ * each probe an unbiased estimate of the totals. The estimate is the mean of
+ * all probes, and its 95% confidence interval comes from their spread.
+ * 
+ * Listings are cached, so the directories near the root that every probe
+ * passes through are listed once. Probing stops when the listing budget is
+ * spent or after MAX_PROBES probes, whichever comes first, so the cost is
+ * bounded no matter how large the tree is.
+ */
+public class TreeEstimator {
+
+  /**
+   * The number of distinct directories listed by default.
+   */
+  public static final int DEFAULT_LISTING_BUDGET = 2000;
+
+  /**
+   * The most probes made, even when every listing they need is cached.
+   */
+  static final int MAX_PROBES = 20_000;
+
+  /**
+   * The z-score of a two-sided 95% confidence interval.
+   */
+  private static final double Z_95 = 1.96;
+
+  /**
+   * A value with the half-width of its 95% confidence interval.
+   */
+  public static final class Interval {
+    private final double value;
+    private final double margin;
+
+    private Interval(double value, double margin) {
+      this.value = value;
+      this.margin = margin;
+    }
+
+    /**
+     * Returns the estimated value.
+     *
+     * @return the mean over all probes
+     */
+    public double getValue() {
+      return value;
+    }
+
+    /**
+     * Returns the half-width of the 95% confidence interval.
+     *
+     * @return the margin, so the interval is value - margin to value + margin
+     */
+    public double getMargin() {
+      return margin;
+    }
+
+    /**
+     * Indicates whether the interval contains the given value.
+     *
+     * @param actual the value to check
+     * @return true if the value lies within the interval; false otherwise
+     */
+    public boolean contains(double actual) {
+      return Math.abs(actual - value) <= margin;
+    }
+  }
+
+  /**
+   * The result of an estimate: the totals below the root, not counting the
+   * root itself, and what it cost.
+   */
+  public static final class Estimate {
+    private final Interval files;
+    private final Interval directories;
+    private final Interval bytes;
+    private final int probes;
+    private final int listings;
+
+    private Estimate(Interval files, Interval directories, Interval bytes, int probes, int listings) {
+      this.files = files;
+      this.directories = directories;
+      this.bytes = bytes;
+      this.probes = probes;
+      this.listings = listings;
+    }
+
+    /**
+     * Returns the estimated number of files below the root.
+     *
+     * @return the file count with its confidence interval
+     */
+    public Interval getFiles() {
+      return files;
+    }
+
+    /**
+     * Returns the estimated number of directories below the root.
+     *
+     * @return the directory count with its confidence interval
+     */
+    public Interval getDirectories() {
+      return directories;
+    }
+
+    /**
+     * Returns the estimated total size of the files below the root.
+     *
+     * @return the size in bytes with its confidence interval
+     */
+    public Interval getBytes() {
+      return bytes;
+    }
+
+    /**
+     * Returns the number of probes the estimate is based on.
+     *
+     * @return the number of probes
+     */
+    public int getProbes() {
+      return probes;
+    }
+
+    /**
+     * Returns the number of directories listed to make the estimate.
+     *
+     * @return the number of listings
+     */
+    public int getListings() {
+      return listings;
+    }
+  }
+
+  /**
+   * The counts of one listed directory, and its subdirectories to step into.
+   */
+  private static final class Summary {
+    private long files;
+    private long bytes;
+    private final List<TreeEntry> directories = new ArrayList<>();
+  }
+
+  /**
+   * The lister used to read directories.
+   */
+  private final DirectoryLister lister;
+
+  /**
+   * The source of the random choices made by probes.
+   */
+  private final Random random;
+
+  /**
+   * The most distinct directories listed.
+   */
+  private final int listingBudget;
+
+  /**
+   * Constructs a TreeEstimator.
+   *
+   * @param lister        the lister used to read directories
+   * @param random        the source of the random choices made by probes
+   * @param listingBudget the most distinct directories listed
+   */
+  public TreeEstimator(DirectoryLister lister, Random random, int listingBudget) {
+    this.lister = lister;
+    this.random = random;
+    this.listingBudget = listingBudget;
+  }
+
+  /**
+   * Estimates the totals below the given directory.
+   *
+   * @param root the directory to estimate
+   * @return the estimate, based on at least one probe
+   */
+  public Estimate estimate(TreeEntry root) {
+    Map<Path, Summary> listed = new HashMap<>();
+    double[] sum = new double[3];
+    double[] sumOfSquares = new double[3];
+    int probes = 0;
+
+    while (probes < MAX_PROBES) {
+      double[] probe = probe(root, listed, probes == 0);
+      if (probe == null) {
+        break;
+      }
+      for (int i = 0; i < 3; i++) {
+        sum[i] += probe[i];
+        sumOfSquares[i] += probe[i] * probe[i];
+      }
+      probes++;
+    }
+
+    Interval[] totals = new Interval[3];
+    for (int i = 0; i < 3; i++) {
+      double mean = sum[i] / probes;
+      double variance = probes > 1 ? Math.max(0, (sumOfSquares[i] - probes * mean * mean) / (probes - 1)) : 0;
+      totals[i] = new Interval(mean, Z_95 * Math.sqrt(variance / probes));
+    }
+    return new Estimate(totals[0], totals[1], totals[2], probes, listed.size());
+  }
+
+  /**
+   * Makes one probe from the root down and returns its estimate of the files,
+   * directories and bytes, or null if the listing budget ran out on the way.
+   * The first probe is always completed, so there is at least one estimate.
+   */
+  private double[] probe(TreeEntry root, Map<Path, Summary> listed, boolean first) {
+    double[] totals = new double[3];
+    double weight = 1;
+    TreeEntry directory = root;
+    while (true) {
+      Summary summary = listed.get(directory.getPath());
+      if (summary == null) {
+        if (listed.size() >= listingBudget && !first) {
+          return null;
+        }
+        summary = summarize(directory);
+        listed.put(directory.getPath(), summary);
+      }
+
+      int branches = summary.directories.size();
+      totals[0] += weight * summary.files;
+      totals[1] += weight * branches;
+      totals[2] += weight * summary.bytes;
+      if (branches == 0) {
+        return totals;
+      }
+      weight *= branches;
+      directory = summary.directories.get(random.nextInt(branches));
+    }
+  }
+
+  /**
+   * Lists a directory and counts its children.
+   */
+  private Summary summarize(TreeEntry directory) {
+    Summary summary = new Summary();
+    TreeEntry[] children = DirectoryLister.drain(lister.open(directory));
+    if (children == null) {
+      return summary;
+    }
+    for (TreeEntry child : children) {
+      if (child.isDirectory()) {
+        summary.directories.add(child);
+      } else {
+        BasicFileAttributes attributes = child.getAttributes();
+        summary.files++;
+        summary.bytes += attributes == null ? 0 : attributes.size();
+      }
+    }
+    return summary;
+  }
+}
@@ -0,0 +1,120 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TreeEstimatorTest {
+
+  /**
+   * The true totals of a generated fixture, not counting its root.
+   */
+  private static final class Totals {
+    private long files;
+    private long directories;
+    private long bytes;
+  }
+
+  /**
+   * Generates a random tree below the given directory and adds up its totals.
+   * Directories near the top branch more than those further down, and file
+   * sizes vary widely, so the estimator sees an uneven tree.
+   */
+  private static void generate(File dir, int depth, Random random, Totals totals) throws IOException {
+    int files = random.nextInt(6);
+    for (int f = 0; f < files; f++) {
+      long size = random.nextInt(4) == 0 ? random.nextInt(100_000) : random.nextInt(1_000);
+      try (RandomAccessFile file = new RandomAccessFile(new File(dir, "file" + f), "rw")) {
+        file.setLength(size);
+      }
+      totals.files++;
+      totals.bytes += size;
+    }
+    if (depth == 0) {
+      return;
+    }
+    int directories = random.nextInt(depth + 2);
+    for (int d = 0; d < directories; d++) {
+      File child = new File(dir, "dir" + d);
+      child.mkdir();
+      totals.directories++;
+      generate(child, depth - 1, random, totals);
+    }
+  }
+
+  @Test
+  void testUniformTreeIsEstimatedExactly(@TempDir File tempDir) throws IOException {
+    // Three levels of three directories, every directory holding two 10 byte files
+    File root = new File(tempDir, "root");
+    root.mkdir();
+    buildUniform(root, 3);
+
+    TreeEstimator.Estimate estimate =
+        new TreeEstimator(new FileSystemLister(), new Random(1), 100).estimate(FileSystemLister.entry(root, 0));
+
+    assertEquals(80, estimate.getFiles().getValue(), 1e-9);
+    assertEquals(39, estimate.getDirectories().getValue(), 1e-9);
+    assertEquals(800, estimate.getBytes().getValue(), 1e-9);
+    assertEquals(0, estimate.getFiles().getMargin(), 1e-9);
+  }
+
+  private static void buildUniform(File dir, int depth) throws IOException {
+    for (int f = 0; f < 2; f++) {
+      try (RandomAccessFile file = new RandomAccessFile(new File(dir, "file" + f), "rw")) {
+        file.setLength(10);
+      }
+    }
+    if (depth > 0) {
+      for (int d = 0; d < 3; d++) {
+        File child = new File(dir, "dir" + d);
+        child.mkdir();
+        buildUniform(child, depth - 1);
+      }
+    }
+  }
+
+  @Test
+  void testGeneratedTreeTotalsFallWithinIntervals(@TempDir File tempDir) throws IOException {
+    File root = new File(tempDir, "root");
+    root.mkdir();
+    Totals totals = new Totals();
+    generate(root, 5, new Random(42), totals);
+
+    TreeEstimator.Estimate estimate =
+        new TreeEstimator(new FileSystemLister(), new Random(7), 10_000).estimate(FileSystemLister.entry(root, 0));
+
+    assertTrue(estimate.getFiles().contains(totals.files),
+        "files " + totals.files + " vs " + estimate.getFiles().getValue() + " +/- " + estimate.getFiles().getMargin());
+    assertTrue(estimate.getDirectories().contains(totals.directories),
+        "directories " + totals.directories + " vs " + estimate.getDirectories().getValue()
+        + " +/- " + estimate.getDirectories().getMargin());
+    assertTrue(estimate.getBytes().contains(totals.bytes),
+        "bytes " + totals.bytes + " vs " + estimate.getBytes().getValue() + " +/- " + estimate.getBytes().getMargin());
+  }
+
+  @Test
+  void testListingBudgetIsRespected(@TempDir File tempDir) throws IOException {
+    File root = new File(tempDir, "root");
+    root.mkdir();
+    Totals totals = new Totals();
+    generate(root, 6, new Random(3), totals);
+    AtomicInteger listings = new AtomicInteger();
+    DirectoryLister counting = directory -> {
+      listings.incrementAndGet();
+      return new FileSystemLister().list(directory);
+    };
+
+    TreeEstimator.Estimate estimate = new TreeEstimator(counting, new Random(5), 25).estimate(FileSystemLister.entry(root, 0));
+
+    assertTrue(totals.directories > 100, "fixture too small: " + totals.directories);
+    assertTrue(listings.get() <= 25, "listed " + listings.get() + " directories");
+    assertEquals(listings.get(), estimate.getListings());
+    assertTrue(estimate.getProbes() > 0);
+  }
+}
@@ -0,0 +1,237 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Walks a tree on a background thread, ahead of whoever is reading it.
+ * 
+ * A producer thread lists and sorts directories by walking the given stream,
+ * and hands the entries to the reader in batches through a bounded queue.
+ * While the reader is busy writing output, the producer is already waiting on
+ * the disk for the next directories, so listing and printing overlap. The
+ * queue holds a fixed number of batches; when it is full the producer blocks
+ * until the reader catches up, so a slow terminal never makes the producer
+ * run far ahead and fill the heap. Entries come out in exactly the order of
+ * the stream.
+ * 
+ * A batch is handed over when it is full, or straight away if the queue is
+ * empty, and a reader that finds the queue empty takes whatever the producer
+ * has gathered so far, so a reader that is waiting never waits for a batch to
+ * fill up, not even while the producer is itself waiting on a slow listing.
+ * 
+ * The producer runs on its own daemon thread rather than on the shared
+ * WorkerPool, because a walk started from a pool task would otherwise wait for
+ * another pool task. Close the pipeline to stop the producer and release the
+ * stream, even when it has not been read to the end.
+ */
+public class TreePipeline implements Iterator<TreeEntry>, AutoCloseable {
+
+  /**
+   * The number of entries handed over at a time.
+   */
+  static final int DEFAULT_BATCH_SIZE = 256;
+
+  /**
+   * The number of batches the producer may run ahead of the reader.
+   */
+  static final int DEFAULT_CAPACITY = 16;
+
+  /**
+   * The batch that marks the end of the walk, compared by identity.
+   */
+  private static final List<TreeEntry> END = new ArrayList<>(0);
+
+  /**
+   * The batches handed from the producer to the reader.
+   */
+  private final BlockingQueue<List<TreeEntry>> queue;
+
+  /**
+   * The thread walking the tree.
+   */
+  private final Thread producer;
+
+  /**
+   * The number of entries handed over at a time.
+   */
+  private final int batchSize;
+
+  /**
+   * Set when the pipeline is closed, telling the producer to stop.
+   */
+  private volatile boolean closed;
+
+  /**
+   * The exception or error that stopped the producer, or null. Written before
+   * END is queued, so the reader sees it once it has taken END.
+   */
+  private volatile Throwable failure;
+
+  /**
+   * The entries the producer has gathered but not yet queued, taken by
+   * whichever of the producer and the reader gets to them first.
+   */
+  private final Object lock = new Object();
+  private List<TreeEntry> pending;
+
+  /**
+   * The batch being read, and the position of the next entry in it.
+   */
+  private List<TreeEntry> batch = List.of();
+  private int index;
+  private boolean finished;
+
+  /**
+   * Constructs a TreePipeline and starts walking the given stream.
+   *
+   * @param tree the entries to walk, closed by the producer when it stops
+   */
+  public TreePipeline(Stream<TreeEntry> tree) {
+    this(tree, DEFAULT_BATCH_SIZE, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a TreePipeline with the given batch size and queue capacity.
+   *
+   * @param tree      the entries to walk, closed by the producer when it stops
+   * @param batchSize the most entries handed over at a time
+   * @param capacity  the most batches the producer may run ahead of the reader
+   */
+  TreePipeline(Stream<TreeEntry> tree, int batchSize, int capacity) {
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.batchSize = batchSize;
+    this.pending = new ArrayList<>(batchSize);
+    this.producer = new Thread(() -> produce(tree), "truffula-producer");
+    producer.setDaemon(true);
+    producer.start();
+  }
+
+  /**
+   * Walks the stream and queues its entries in batches, then queues END.
+   */
+  private void produce(Stream<TreeEntry> tree) {
+    try (tree) {
+      Iterator<TreeEntry> entries = tree.iterator();
+      while (!closed && entries.hasNext()) {
+        TreeEntry entry = entries.next();
+        List<TreeEntry> full = null;
+        synchronized (lock) {
+          pending.add(entry);
+          if (pending.size() == batchSize || queue.isEmpty()) {
+            full = takePending();
+          }
+        }
+        if (full != null) {
+          queue.put(full);
+        }
+      }
+      List<TreeEntry> rest;
+      synchronized (lock) {
+        rest = takePending();
+      }
+      if (!rest.isEmpty()) {
+        queue.put(rest);
+      }
+    } catch (InterruptedException e) {
+      // Closed while waiting for the reader; nobody is left to read END
+      return;
+    } catch (Throwable e) {
+      // Errors too, such as a StackOverflowError in a listing, so END is
+      // still queued and the reader is not left waiting for it forever
+      failure = e;
+    }
+    try {
+      queue.put(END);
+    } catch (InterruptedException e) {
+      // Closed while waiting for the reader
+    }
+  }
+
+  /**
+   * Returns the entries gathered so far and starts a new batch. Call only
+   * while holding lock.
+   */
+  private List<TreeEntry> takePending() {
+    List<TreeEntry> taken = pending;
+    pending = new ArrayList<>(batchSize);
+    return taken;
+  }
+
+  /**
+   * Indicates whether the walk has more entries, waiting for the producer if
+   * it has not reached them yet.
+   *
+   * @return true if there is another entry; false once the walk has ended
+   * @throws RuntimeException the exception that stopped the producer, if any
+   * @throws Error the error that stopped the producer, if any
+   */
+  @Override
+  public boolean hasNext() {
+    while (index == batch.size()) {
+      if (finished) {
+        return false;
+      }
+      try {
+        batch = queue.poll();
+        if (batch == null) {
+          synchronized (lock) {
+            // Nothing is queued, so whatever has been gathered comes next
+            if (queue.isEmpty() && !pending.isEmpty()) {
+              batch = takePending();
+            }
+          }
+        }
+        if (batch == null) {
+          batch = queue.take();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for the tree", e);
+      }
+      index = 0;
+      if (batch == END) {
+        finished = true;
+        if (failure instanceof RuntimeException) {
+          throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+          throw (Error) failure;
+        }
+        if (failure != null) {
+          throw new IllegalStateException("Could not walk the tree", failure);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the next entry of the walk, waiting for the producer if needed.
+   *
+   * @return the next entry
+   * @throws NoSuchElementException if the walk has ended
+   */
+  @Override
+  public TreeEntry next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return batch.get(index++);
+  }
+
+  /**
+   * Stops the producer and drops any entries it has queued. The producer
+   * closes the stream once it stops; one blocked inside a listing stops when
+   * that listing returns.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    producer.interrupt();
+    queue.clear();
+  }
+}
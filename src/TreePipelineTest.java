@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TreePipelineTest {
+
+  /**
+   * Builds a tree of the given number of directories, each holding one file.
+   */
+  private static File buildTree(File tempDir, int directories) throws IOException {
+    File root = new File(tempDir, "root");
+    for (int i = 0; i < directories; i++) {
+      File dir = new File(root, "dir" + i);
+      dir.mkdirs();
+      new File(dir, "file" + i + ".txt").createNewFile();
+    }
+    return root;
+  }
+
+  @Test
+  void testEntriesArriveInWalkOrder(@TempDir File tempDir) throws IOException {
+    File root = buildTree(tempDir, 50);
+    List<Path> expected;
+    try (Stream<TreeEntry> tree = TruffulaTree.stream(root)) {
+      expected = tree.map(TreeEntry::getPath).collect(Collectors.toList());
+    }
+
+    List<Path> piped = new ArrayList<>();
+    try (TreePipeline pipeline = new TreePipeline(TruffulaTree.stream(root), 4, 2)) {
+      pipeline.forEachRemaining(entry -> piped.add(entry.getPath()));
+    }
+
+    assertEquals(101, expected.size());
+    assertEquals(expected, piped);
+  }
+
+  @Test
+  void testProducerWaitsForSlowReader(@TempDir File tempDir) throws Exception {
+    File root = buildTree(tempDir, 200);
+    AtomicInteger listings = new AtomicInteger();
+    DirectoryLister counting = directory -> {
+      listings.incrementAndGet();
+      return new FileSystemLister().list(directory);
+    };
+
+    try (TreePipeline pipeline = new TreePipeline(
+        TruffulaTree.stream(FileSystemLister.entry(root, 0), counting), 4, 2)) {
+      pipeline.next();
+      Thread.sleep(300);
+
+      // Two queued batches, one being filled and one being read, at two entries per directory
+      assertTrue(listings.get() <= 10, "producer listed " + listings.get() + " directories ahead");
+    }
+  }
+
+  @Test
+  void testProducerFailureReachesReader(@TempDir File tempDir) throws IOException {
+    File root = buildTree(tempDir, 3);
+    DirectoryLister failing = directory -> {
+      if (directory.getDepth() > 0) {
+        throw new UncheckedIOException(new IOException("disk went away"));
+      }
+      return new FileSystemLister().list(directory);
+    };
+
+    try (TreePipeline pipeline = new TreePipeline(TruffulaTree.stream(FileSystemLister.entry(root, 0), failing))) {
+      assertThrows(UncheckedIOException.class, () -> pipeline.forEachRemaining(entry -> { }));
+    }
+  }
+
+  @Test
+  void testProducerErrorReachesReader(@TempDir File tempDir) throws IOException {
+    File root = buildTree(tempDir, 3);
+    DirectoryLister failing = directory -> {
+      if (directory.getDepth() > 0) {
+        throw new StackOverflowError("listing recursed too deep");
+      }
+      return new FileSystemLister().list(directory);
+    };
+
+    try (TreePipeline pipeline = new TreePipeline(TruffulaTree.stream(FileSystemLister.entry(root, 0), failing))) {
+      assertTimeoutPreemptively(Duration.ofSeconds(5),
+          () -> assertThrows(StackOverflowError.class, () -> pipeline.forEachRemaining(entry -> { })));
+    }
+  }
+
+  @Test
+  void testReaderGetsEntriesHeldByABlockedProducer(@TempDir File tempDir) throws Exception {
+    TreeEntry first = new TreeEntry(tempDir.toPath().resolve("a"), "a", 0, null);
+    TreeEntry second = new TreeEntry(tempDir.toPath().resolve("b"), "b", 0, null);
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Stream<TreeEntry> hanging = Stream.generate(() -> {
+      blocked.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return first;
+    }).limit(1);
+
+    try (TreePipeline pipeline = new TreePipeline(Stream.concat(Stream.of(first, second), hanging), 4, 2)) {
+      // The first entry is queued on its own; the second is still being gathered
+      assertTrue(blocked.await(5, TimeUnit.SECONDS));
+      assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+        assertEquals(first, pipeline.next());
+        assertEquals(second, pipeline.next());
+      });
+    } finally {
+      release.countDown();
+    }
+  }
+}
@@ -0,0 +1,290 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A Spliterator that walks a directory tree in depth-first, pre-order.
+ * 
+ * Directories are listed lazily: a directory is only listed when the walk
+ * reaches it, so short-circuiting operations such as findFirst or limit never
+ * list the parts of the tree they do not visit. Children are visited in the
+ * order returned by the DirectoryLister, which for FileSystemLister is the
+ * order of AlphabeticalFileSorter.
+ * 
+ * The walk is kept as a stack of frames, one per directory being visited,
+ * each holding the sorted children that have not been visited yet. The bottom
+ * frame holds the entries that come last in encounter order, so trySplit
+ * hands out a prefix by giving away the deeper frames together with the first
+ * half of the bottom frame, and keeps the second half for itself. Frames over
+ * a streaming DirectoryListing cannot be halved, only handed out whole.
+ * 
+ * A directory whose listing fails with a status other than EntryStatus.OK
+ * is reported with that status and without children, and a collapsed
+ * directory with the counts of its children. A streaming listing that ends
+ * part way through is followed by one more entry below the directory, named
+ * "...", without attributes and with the status that ended the listing,
+ * because the directory itself was reported before its children were read.
+ * 
+ * Streaming listings may hold files open until they are read to the end. Call
+ * close, or close the Stream returned by TruffulaTree, to release the listings
+ * of a walk that was abandoned early.
+ */
+public class TreeSpliterator implements Spliterator<TreeEntry>, AutoCloseable {
+
+  /**
+   * A run of sibling entries that have not been visited yet, either a range
+   * of an array or the rest of a streaming listing.
+   */
+  private static final class Frame {
+    private final TreeEntry[] entries;
+    private int next;
+    private final int end;
+    private final DirectoryListing streaming;
+    private final Iterator<TreeEntry> cursor;
+
+    /**
+     * The directory a streaming frame lists, and the entry reporting that its
+     * listing ended early, once it has, until it is reported.
+     */
+    private final TreeEntry directory;
+    private TreeEntry truncated;
+    private boolean ended;
+
+    /**
+     * If true, directories in this frame are reported without being listed
+     * because their children are already owned by another spliterator.
+     */
+    private final boolean leaves;
+
+    private Frame(TreeEntry[] entries, int next, int end, boolean leaves) {
+      this.entries = entries;
+      this.next = next;
+      this.end = end;
+      this.leaves = leaves;
+      this.streaming = null;
+      this.cursor = null;
+      this.directory = null;
+    }
+
+    private Frame(DirectoryListing streaming, TreeEntry directory) {
+      this.entries = null;
+      this.next = 0;
+      this.end = 0;
+      this.leaves = false;
+      this.streaming = streaming;
+      this.cursor = streaming.iterator();
+      this.directory = directory;
+    }
+
+    private boolean isExhausted() {
+      if (cursor == null) {
+        return next == end;
+      }
+      if (truncated != null || cursor.hasNext()) {
+        return false;
+      }
+      if (!ended) {
+        ended = true;
+        EntryStatus status = streaming.getStatus();
+        if (status != EntryStatus.OK) {
+          truncated = new TreeEntry(directory.getPath(), "...", directory.getDepth() + 1, null)
+              .withStatus(status);
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns the number of entries left in an array frame. Streaming frames
+     * report 0 because they cannot be divided.
+     */
+    private int remaining() {
+      return cursor != null ? 0 : end - next;
+    }
+
+    private TreeEntry advance() {
+      if (truncated != null) {
+        TreeEntry entry = truncated;
+        truncated = null;
+        return entry;
+      }
+      return cursor != null ? cursor.next() : entries[next++];
+    }
+  }
+
+  /**
+   * The lister used to read the children of each directory.
+   */
+  private final DirectoryLister lister;
+
+  /**
+   * The stack of frames, with the bottom of the stack at index 0.
+   */
+  private final List<Frame> frames;
+
+  /**
+   * The streaming listings opened by this spliterator or any spliterator split
+   * from it that have not been closed yet.
+   */
+  private final Set<DirectoryListing> open;
+
+  /**
+   * Constructs a TreeSpliterator that walks the tree below the given root.
+   * The root itself is the first entry reported.
+   *
+   * @param root   the entry at which to start the walk
+   * @param lister the lister used to read the children of each directory
+   */
+  public TreeSpliterator(TreeEntry root, DirectoryLister lister) {
+    this(new ArrayList<>(), lister, ConcurrentHashMap.newKeySet());
+    frames.add(new Frame(new TreeEntry[] {root}, 0, 1, false));
+  }
+
+  private TreeSpliterator(List<Frame> frames, DirectoryLister lister, Set<DirectoryListing> open) {
+    this.frames = frames;
+    this.lister = lister;
+    this.open = open;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super TreeEntry> action) {
+    while (!frames.isEmpty()) {
+      Frame top = frames.get(frames.size() - 1);
+      if (top.isExhausted()) {
+        pop();
+        continue;
+      }
+
+      TreeEntry entry = top.advance();
+      if (entry.isDirectory() && !top.leaves) {
+        DirectoryListing listing = lister.open(entry);
+        if (listing != null) {
+          entry = entry.withListing(listing);
+        }
+        Frame children = openFrame(listing, entry);
+        if (children != null) {
+          frames.add(children);
+        }
+      }
+      action.accept(entry);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns a frame over the children of a directory's listing, or null if
+   * it has none or the directory could not be read.
+   */
+  private Frame openFrame(DirectoryListing listing, TreeEntry directory) {
+    if (listing == null) {
+      return null;
+    }
+    if (listing.isStreaming()) {
+      open.add(listing);
+      return new Frame(listing, directory);
+    }
+    TreeEntry[] children = listing.getEntries();
+    return children.length == 0 ? null : new Frame(children, 0, children.length, false);
+  }
+
+  /**
+   * Removes the top frame, closing it if it is streamed.
+   */
+  private void pop() {
+    Frame frame = frames.remove(frames.size() - 1);
+    if (frame.streaming != null) {
+      open.remove(frame.streaming);
+      frame.streaming.close();
+    }
+  }
+
+  @Override
+  public Spliterator<TreeEntry> trySplit() {
+    while (!frames.isEmpty() && frames.get(frames.size() - 1).isExhausted()) {
+      pop();
+    }
+    // Array frames whose last entry was a directory stay below its children
+    frames.removeIf(frame -> frame.cursor == null && frame.next == frame.end);
+    if (frames.isEmpty()) {
+      return null;
+    }
+
+    Frame bottom = frames.get(0);
+    if (bottom.remaining() >= 2) {
+      // The prefix is every deeper frame plus the first half of the bottom one
+      int mid = bottom.next + bottom.remaining() / 2;
+      List<Frame> prefix = new ArrayList<>();
+      prefix.add(new Frame(bottom.entries, bottom.next, mid, bottom.leaves));
+      prefix.addAll(frames.subList(1, frames.size()));
+      frames.subList(1, frames.size()).clear();
+      bottom.next = mid;
+      return new TreeSpliterator(prefix, lister, open);
+    }
+
+    if (frames.size() > 1) {
+      // The deeper frames all come before the rest of the bottom frame
+      List<Frame> prefix = new ArrayList<>(frames.subList(1, frames.size()));
+      frames.subList(1, frames.size()).clear();
+      return new TreeSpliterator(prefix, lister, open);
+    }
+
+    if (bottom.cursor != null || bottom.leaves) {
+      return null;
+    }
+    TreeEntry last = bottom.entries[bottom.next];
+    if (!last.isDirectory()) {
+      return null;
+    }
+
+    // A single unvisited directory: report it on its own and keep its children
+    DirectoryListing listing = lister.open(last);
+    if (listing != null) {
+      bottom.entries[bottom.next] = last.withListing(listing);
+    }
+    Frame children = openFrame(listing, last);
+    if (children == null) {
+      // Leave the entry in place, but never list it a second time
+      frames.set(0, new Frame(bottom.entries, bottom.next, bottom.end, true));
+      return null;
+    }
+    List<Frame> prefix = new ArrayList<>();
+    prefix.add(new Frame(bottom.entries, bottom.next, bottom.next + 1, true));
+    frames.set(0, children);
+    return new TreeSpliterator(prefix, lister, open);
+  }
+
+  /**
+   * Returns Long.MAX_VALUE, because the size of a tree is not known until it
+   * has been walked.
+   *
+   * @return Long.MAX_VALUE
+   */
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | DISTINCT | NONNULL;
+  }
+
+  /**
+   * Closes every streaming listing still open in this walk, including those
+   * held by spliterators split from this one.
+   */
+  @Override
+  public void close() {
+    for (DirectoryListing listing : open) {
+      if (open.remove(listing)) {
+        listing.close();
+      }
+    }
+  }
+}
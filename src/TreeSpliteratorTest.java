@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TreeSpliteratorTest {
+
+  /**
+   * Builds a small tree:
+   * 
+   * root/
+   *    a.txt
+   *    B/
+   *       c.txt
+   *       d/
+   *          e.txt
+   *    f/
+   *       g.txt
+   *    H.txt
+   */
+  private static File buildTree(File tempDir) throws IOException {
+    File root = new File(tempDir, "root");
+    new File(root, "B/d").mkdirs();
+    new File(root, "f").mkdirs();
+    new File(root, "a.txt").createNewFile();
+    new File(root, "B/c.txt").createNewFile();
+    new File(root, "B/d/e.txt").createNewFile();
+    new File(root, "f/g.txt").createNewFile();
+    new File(root, "H.txt").createNewFile();
+    return root;
+  }
+
+  private static List<String> names(List<TreeEntry> entries) {
+    return entries.stream()
+        .map(entry -> entry.getDepth() + ":" + entry.getName())
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  void testStreamIsDepthFirstAndAlphabetical(@TempDir File tempDir) throws IOException {
+    File root = buildTree(tempDir);
+
+    List<TreeEntry> entries = TruffulaTree.stream(root).collect(Collectors.toList());
+
+    assertEquals(List.of("0:root", "1:a.txt", "1:B", "2:c.txt", "2:d", "3:e.txt",
+        "1:f", "2:g.txt", "1:H.txt"), names(entries));
+    assertTrue(entries.get(2).isDirectory());
+  }
+
+  @Test
+  void testParallelStreamKeepsEncounterOrder(@TempDir File tempDir) throws IOException {
+    File root = buildTree(tempDir);
+
+    List<TreeEntry> sequential = TruffulaTree.stream(root).collect(Collectors.toList());
+    List<TreeEntry> parallel = TruffulaTree.stream(root).parallel().collect(Collectors.toList());
+
+    assertEquals(names(sequential), names(parallel));
+  }
+
+  @Test
+  void testFindFirstDoesNotWalkTheWholeTree(@TempDir File tempDir) throws IOException {
+    File root = buildTree(tempDir);
+    AtomicInteger listings = new AtomicInteger();
+    FileSystemLister fileSystem = new FileSystemLister();
+    DirectoryLister counting = directory -> {
+      listings.incrementAndGet();
+      return fileSystem.list(directory);
+    };
+
+    String first = TruffulaTree.stream(FileSystemLister.entry(root, 0), counting)
+        .filter(entry -> !entry.isDirectory())
+        .findFirst()
+        .get()
+        .getName();
+
+    assertEquals("a.txt", first);
+    assertEquals(1, listings.get());
+  }
+
+  @Test
+  void testSplitPrefixPrecedesRemainder(@TempDir File tempDir) throws IOException {
+    File root = buildTree(tempDir);
+    TreeSpliterator suffix = new TreeSpliterator(FileSystemLister.entry(root, 0), new FileSystemLister());
+
+    TreeEntry[] firstEntry = new TreeEntry[1];
+    suffix.tryAdvance(entry -> firstEntry[0] = entry);
+    Spliterator<TreeEntry> prefix = suffix.trySplit();
+
+    List<String> all = new ArrayList<>();
+    all.add(firstEntry[0].getName());
+    prefix.forEachRemaining(entry -> all.add(entry.getName()));
+    suffix.forEachRemaining(entry -> all.add(entry.getName()));
+
+    assertEquals(List.of("root", "a.txt", "B", "c.txt", "d", "e.txt", "f", "g.txt", "H.txt"), all);
+  }
+}
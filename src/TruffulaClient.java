@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * A thin client for TruffulaDaemon.
+ * 
+ * The client sends its working directory and arguments to the daemon and
+ * copies the printed tree to an output stream. See TruffulaDaemon for the
+ * protocol.
+ */
+public class TruffulaClient {
+
+  /**
+   * Sends a request to the daemon listening on the given socket and copies
+   * the response to the given output stream.
+   *
+   * @param socketPath the file system path of the daemon's socket
+   * @param args       the TruffulaOptions arguments, in the format [-h] [-nc] path
+   * @param out        the stream to which the printed tree is copied
+   * @throws IOException if the daemon cannot be reached
+   */
+  public static void send(Path socketPath, String[] args, OutputStream out) throws IOException {
+    StringBuilder request = new StringBuilder();
+    request.append(System.getProperty("user.dir")).append('\n');
+    for (String arg : args) {
+      request.append(arg).append('\n');
+    }
+    request.append('\n');
+
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+      ByteBuffer buffer = ByteBuffer.wrap(request.toString().getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.shutdownOutput();
+      Channels.newInputStream(channel).transferTo(out);
+    }
+    out.flush();
+  }
+}
@@ -0,0 +1,233 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A long-lived Truffula process that prints trees for clients connecting over
+ * a Unix domain socket.
+ * 
+ * Running every listing in a warm JVM avoids paying JVM startup and cold JIT
+ * on each call, and lets all requests share a CachingLister so directories
+ * that have not changed are never listed twice. Listings are cached already
+ * sorted, so there is one shared cache for each sorter in use.
+ * 
+ * Protocol:
+ * 
+ * The client writes UTF-8 lines and then reads the printed tree until the
+ * daemon closes the connection.
+ * - Line 1     : The client's working directory, used to resolve a relative
+ *                path. May be empty to use the daemon's working directory.
+ * - Lines 2..n : One TruffulaOptions argument per line, e.g. "-nc".
+ * - Blank line : Ends the request (closing the output side works too).
+ * 
+ * The socket is readable and writable only by the daemon's user, since any
+ * client may print whatever the daemon's user can read. It is bound inside a
+ * private (0700) directory, restricted, and only then moved into place, so no
+ * other user can connect in between.
+ * 
+ * Invalid arguments are reported to the client as a single "Error: ..." line,
+ * and so is --output: the daemon does not write files for its clients. The
+ * App client takes --output out of the request and writes the file itself.
+ * The client has no separate error stream, so the --show-errors summary is
+ * written after the tree, and --progress, which redraws a status line, is
+ * reported as an error too.
+ * 
+ * Any tool that can write to a Unix socket can act as a client, for example:
+ * 
+ * { pwd; printf '%s\n' -nc src; echo; } | nc -U /tmp/truffula.sock
+ * 
+ * or, from Java, TruffulaClient (java App --client /tmp/truffula.sock -nc src).
+ */
+public class TruffulaDaemon implements Closeable {
+
+  /**
+   * The file system path of the socket.
+   */
+  private final Path socketPath;
+
+  /**
+   * The cached listers shared by every request, one per sorter.
+   */
+  private final Map<EntrySorter, DirectoryLister> listers = new ConcurrentHashMap<>();
+
+  /**
+   * The channel on which connections are accepted.
+   */
+  private final ServerSocketChannel server;
+
+  /**
+   * The threads on which requests are printed.
+   */
+  private final ExecutorService workers;
+
+  /**
+   * Constructs a TruffulaDaemon listening on the given socket path, sharing
+   * cached listings between all requests. A stale socket left at the path is
+   * replaced, but any other kind of file there is left alone.
+   *
+   * @param socketPath the file system path of the socket to listen on
+   * @throws FileAlreadyExistsException if something other than a socket is at the path
+   * @throws IOException if the socket cannot be bound
+   */
+  public TruffulaDaemon(Path socketPath) throws IOException {
+    this.socketPath = socketPath;
+    removeStaleSocket(socketPath);
+    this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      bindPrivately(server, socketPath);
+    } catch (IOException | RuntimeException e) {
+      server.close();
+      throw e;
+    }
+    this.workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+      Thread thread = new Thread(task, "truffula-daemon");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Deletes a socket left at the given path by a daemon that did not shut
+   * down cleanly. Anything else at the path, such as a mistyped regular file,
+   * is not deleted.
+   *
+   * @param socketPath the file system path of the socket
+   * @throws FileAlreadyExistsException if something other than a socket is at the path
+   * @throws IOException if the stale socket cannot be removed
+   */
+  private static void removeStaleSocket(Path socketPath) throws IOException {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(socketPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (NoSuchFileException e) {
+      return;
+    }
+    if (!attributes.isOther()) {
+      throw new FileAlreadyExistsException(socketPath.toString(), null, "not a socket, refusing to replace it");
+    }
+    Files.deleteIfExists(socketPath);
+  }
+
+  /**
+   * Binds the server to the given path so that only the current user can
+   * connect. Where the file system has no POSIX permissions the socket is
+   * bound in place.
+   *
+   * @param server the channel to bind
+   * @param socketPath the file system path of the socket
+   * @throws IOException if the socket cannot be bound
+   */
+  private static void bindPrivately(ServerSocketChannel server, Path socketPath) throws IOException {
+    Path parent = socketPath.toAbsolutePath().getParent();
+    if (!Files.getFileStore(parent).supportsFileAttributeView("posix")) {
+      server.bind(UnixDomainSocketAddress.of(socketPath));
+      return;
+    }
+    Path privateDirectory = Files.createTempDirectory(parent, ".truffula",
+        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+    try {
+      Path bound = privateDirectory.resolve(socketPath.getFileName());
+      server.bind(UnixDomainSocketAddress.of(bound));
+      Files.setPosixFilePermissions(bound, PosixFilePermissions.fromString("rw-------"));
+      Files.move(bound, socketPath, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(privateDirectory.resolve(socketPath.getFileName()));
+      Files.delete(privateDirectory);
+    }
+  }
+
+  /**
+   * Accepts and serves connections until the daemon is closed.
+   *
+   * @throws IOException if accepting a connection fails
+   */
+  public void serve() throws IOException {
+    while (server.isOpen()) {
+      SocketChannel client;
+      try {
+        client = server.accept();
+      } catch (AsynchronousCloseException e) {
+        return;
+      }
+      workers.execute(() -> handle(client));
+    }
+  }
+
+  /**
+   * Reads one request from the client and writes back the printed tree.
+   *
+   * @param client the connected client
+   */
+  private void handle(SocketChannel client) {
+    try (client;
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(
+            new BufferedOutputStream(Channels.newOutputStream(client)), false, StandardCharsets.UTF_8)) {
+      String workingDirectory = in.readLine();
+      List<String> args = new ArrayList<>();
+      String line;
+      while ((line = in.readLine()) != null && !line.isEmpty()) {
+        args.add(line);
+      }
+
+      File base = workingDirectory == null || workingDirectory.isEmpty() ? null : new File(workingDirectory);
+      try {
+        TruffulaOptions options = new TruffulaOptions(args.toArray(new String[0]), base);
+        if (options.getOutputFile() != null) {
+          throw new IllegalArgumentException("--output is written by the client, not the daemon");
+        }
+        if (options.isProgress()) {
+          throw new IllegalArgumentException("--progress is not available through the daemon");
+        }
+        DirectoryLister lister = listers.computeIfAbsent(options.getSorter(),
+            sorter -> new CachingLister(new FileSystemLister(sorter)));
+        // The client has one stream, so the error summary follows the tree on it
+        new TruffulaPrinter(options, out, lister).printTree(out, out, new CancellationHandle());
+      } catch (IllegalArgumentException | FileNotFoundException e) {
+        out.println("Error: " + e.getMessage());
+      }
+      out.flush();
+    } catch (IOException e) {
+      // The client went away; there is nobody left to report the error to
+    }
+  }
+
+  /**
+   * Stops accepting connections and removes the socket file.
+   *
+   * @throws IOException if the socket file cannot be removed
+   */
+  @Override
+  public void close() throws IOException {
+    server.close();
+    workers.shutdown();
+    Files.deleteIfExists(socketPath);
+  }
+}
@@ -0,0 +1,166 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TruffulaDaemonTest {
+
+  /**
+   * Starts a daemon on the given socket, sends it each request in turn from a
+   * client, and closes it again.
+   *
+   * @return what the daemon sent back for each request
+   */
+  private static List<String> serve(Path socket, String[]... requests) throws IOException {
+    List<String> responses = new ArrayList<>();
+    try (TruffulaDaemon daemon = new TruffulaDaemon(socket)) {
+      Thread server = new Thread(() -> {
+        try {
+          daemon.serve();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      server.setDaemon(true);
+      server.start();
+
+      for (String[] request : requests) {
+        ByteArrayOutputStream remote = new ByteArrayOutputStream();
+        TruffulaClient.send(socket, request, remote);
+        responses.add(remote.toString());
+      }
+    }
+    return responses;
+  }
+
+  @Test
+  void testClientReceivesSameTreeAsLocalPrinter(@TempDir File tempDir) throws Exception {
+    File myFolder = new File(tempDir, "myFolder");
+    new File(myFolder, "Documents").mkdirs();
+    new File(myFolder, "Apple.txt").createNewFile();
+    new File(myFolder, "Documents/notes.txt").createNewFile();
+    Path socket = tempDir.toPath().resolve("truffula.sock");
+
+    ByteArrayOutputStream local = new ByteArrayOutputStream();
+    new TruffulaPrinter(new TruffulaOptions(myFolder, false, true), new PrintStream(local)).printTree();
+
+    // The second request is served from the cache
+    String[] request = {myFolder.getAbsolutePath()};
+    assertEquals(List.of(local.toString(), local.toString()), serve(socket, request, request));
+  }
+
+  @Test
+  void testInvalidArgumentsAreReportedToClient(@TempDir File tempDir) throws Exception {
+    Path socket = tempDir.toPath().resolve("truffula.sock");
+
+    List<String> responses = serve(socket, new String[] {new File(tempDir, "missing").getAbsolutePath()});
+
+    assertTrue(responses.get(0).startsWith("Error: "));
+  }
+
+  @Test
+  void testOutputFileIsRejected(@TempDir File tempDir) throws Exception {
+    Path socket = tempDir.toPath().resolve("truffula.sock");
+    File output = new File(tempDir, "tree.txt");
+
+    List<String> responses = serve(socket,
+        new String[] {"--output", output.getAbsolutePath(), tempDir.getAbsolutePath()});
+
+    assertTrue(responses.get(0).startsWith("Error: "));
+    assertFalse(output.exists());
+  }
+
+  @Test
+  void testSocketIsOwnerOnly(@TempDir File tempDir) throws Exception {
+    Path socket = tempDir.toPath().resolve("truffula.sock");
+    assumeTrue(Files.getFileStore(tempDir.toPath()).supportsFileAttributeView("posix"));
+
+    TruffulaDaemon daemon = new TruffulaDaemon(socket);
+    try {
+      assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+      // Only the socket is left behind, not the directory it was bound in
+      assertEquals(1, tempDir.list().length);
+    } finally {
+      daemon.close();
+    }
+  }
+
+  @Test
+  void testOtherFileAtSocketPathIsKept(@TempDir File tempDir) throws Exception {
+    Path notes = tempDir.toPath().resolve("notes.txt");
+    Files.writeString(notes, "keep me");
+
+    assertThrows(FileAlreadyExistsException.class, () -> new TruffulaDaemon(notes));
+    assertEquals("keep me", Files.readString(notes));
+  }
+
+  @Test
+  void testStaleSocketIsReplaced(@TempDir File tempDir) throws Exception {
+    Path socket = tempDir.toPath().resolve("truffula.sock");
+    // Closing a bound channel leaves its socket file behind, as a crashed daemon would
+    try (ServerSocketChannel stale = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      stale.bind(UnixDomainSocketAddress.of(socket));
+    }
+    assertTrue(Files.exists(socket, LinkOption.NOFOLLOW_LINKS));
+
+    TruffulaDaemon daemon = new TruffulaDaemon(socket);
+    try {
+      assertTrue(Files.exists(socket, LinkOption.NOFOLLOW_LINKS));
+    } finally {
+      daemon.close();
+    }
+  }
+
+  @Test
+  void testProgressIsRejected(@TempDir File tempDir) throws Exception {
+    Path socket = tempDir.toPath().resolve("truffula.sock");
+
+    List<String> responses = serve(socket, new String[] {"--progress", tempDir.getAbsolutePath()});
+
+    assertTrue(responses.get(0).startsWith("Error: "));
+  }
+
+  @Test
+  void testErrorsReachTheClient(@TempDir File tempDir) throws Exception {
+    File root = new File(tempDir, "root");
+    File locked = new File(root, "locked");
+    locked.mkdirs();
+    locked.setReadable(false, false);
+    try {
+      // Permissions do not stop the superuser, or apply on every platform
+      assumeFalse(locked.canRead());
+      Path socket = tempDir.toPath().resolve("truffula.sock");
+      String[] request = {"-nc", "--show-errors", root.getAbsolutePath()};
+
+      // The second request is served from the cache, which keeps the status
+      for (String response : serve(socket, request, request)) {
+        assertTrue(response.contains("locked/ [permission denied]"), response);
+        assertTrue(response.endsWith("Could not read 1 entry: 1 permission denied" + System.lineSeparator()),
+            response);
+      }
+    } finally {
+      locked.setReadable(true, false);
+    }
+  }
+}
@@ -1,5 +1,19 @@
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IllformedLocaleException;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Represents configuration options for controlling how a directory tree is displayed.
@@ -14,19 +28,57 @@ import java.io.FileNotFoundException;
  * 
  * Usage Example:
  * 
- * Arguments Format: [-h] [-nc] path
+ * Arguments Format: [-h] [-nc] [-U] [--sort MODE] [--locale TAG] [--sort-budget N] [--timeout MS] [--deadline MS] [--grep PATTERN] [--find GLOB] [--estimate] [--collapse N] [--ls-colors] [--output FILE] [--type f|d|l] [--min-size SIZE] [--newer-than TIME] [--older-than TIME] [--progress] [--show-errors] [--format text|html] [--roots-from FILE] path...
  * 
  * Flags:
  * - -h   : Show hidden files (defaults to false).
  * - -nc  : Do not use color (color is enabled by default).
+ * - -U   : Do not sort; stream entries in the order the file system returns them.
+ * - --sort MODE : Order entries by name (default), size, mtime, dirs-first or natural.
+ * - --locale TAG : Order entries by the collation rules of a language, e.g. "de" or "sv-SE".
+ * - --sort-budget N : Hold at most N names in memory per directory; larger directories
+ *                     are merge sorted through temporary files. Name order only.
+ * - --timeout MS : Give up on any directory that takes longer than MS milliseconds to list.
+ * - --deadline MS : Stop listing directories once MS milliseconds have passed; the rest
+ *                   of the tree is printed with unlisted directories marked "[timed out]".
+ * - --grep PATTERN : Print only the text files whose contents match the regular
+ *                    expression, and the directories above them.
+ * - --find GLOB : Print only the entries whose names match the glob, e.g. "*.java",
+ *                 and the directories above them. Combined with --grep, files must match both.
+ * - --estimate : Instead of the tree, print an estimate of the number of files, directories
+ *                and bytes below each path, made from a bounded number of random listings.
+ * - --collapse N : Print directories with more than N entries as a single line of counts,
+ *                  such as "cache/ [48213 files, 12 dirs]", instead of their contents.
+ *                  Each entry of a collapsed directory is stat'ed once to count subdirectories.
+ * - --ls-colors : Color entries by type and extension as configured by the LS_COLORS
+ *                 environment variable, instead of by depth.
+ * - --output FILE : Write the tree to FILE instead of standard output. If the name ends
+ *                   in ".gz", the tree is gzip compressed on a separate thread.
+ * - --type f|d|l : Print only files, directories or symbolic links, and the directories above them.
+ * - --min-size SIZE : Print only entries of at least SIZE bytes, e.g. "500", "64k" or "10M",
+ *                     and the directories above them.
+ * - --newer-than TIME : Print only entries modified after TIME, either an age such as
+ *                       "12h" or "30d" or a date such as "2024-01-31", and their directories.
+ * - --older-than TIME : Print only entries modified before TIME, and the directories above them.
+ *                       Without --type, these filters match only entries that are not directories.
+ * - --progress : Write the number of entries visited, the rate, the elapsed time and the
+ *                current path to standard error every second while the tree is walked.
+ * - --show-errors : Mark entries that could not be read, such as "[permission denied]",
+ *                   and write a count of them to standard error at the end.
+ * - --format text|html : Print indented text (the default), or an HTML page in which every
+ *                        directory can be folded away.
+ * - --roots-from FILE : Also print every directory listed in FILE, one per line.
+ *                       Use "-" to read the list from standard input.
  * 
  * Path:
  * - The absolute or relative path to the directory whose contents will be printed.
+ * - A path may also name a .tar, .tar.gz or .tgz archive, whose contents are printed.
+ * - Several paths may be given; each one is printed as its own tree, in order.
  * 
  * Behavior:
  * - If color is disabled, all text will be printed in white.
  * - The order of flags is unimportant.
- * - The path argument is mandatory.
+ * - At least one path argument is mandatory.
  * 
  * Examples:
  * 
@@ -46,12 +98,32 @@ import java.io.FileNotFoundException;
  * 
  * - Throws FileNotFoundException if:
  *     - The specified directory does not exist.
- *     - The path points to a file instead of a directory.
+ *     - The path points to a file instead of a directory, other than a tar archive.
  */
 public class TruffulaOptions  {
   private final File root;
+  private final List<File> roots;
   private final boolean showHidden;
   private final boolean useColor;
+  private final SortOrder sortOrder;
+  private final Locale locale;
+  private final int sortBudget;
+  private final boolean unsorted;
+  private final int timeoutMillis;
+  private final int deadlineMillis;
+  private final String grepPattern;
+  private final String findGlob;
+  private final boolean estimate;
+  private final int collapseThreshold;
+  private final LsColors lsColors;
+  private final File outputFile;
+  private final char entryType;
+  private final long minSize;
+  private final Instant newerThan;
+  private final Instant olderThan;
+  private final boolean progress;
+  private final boolean showErrors;
+  private final OutputFormat format;
 
   /**
    * Returns the root directory from which the directory tree will be printed.
@@ -62,6 +134,26 @@ public class TruffulaOptions  {
     return root;
   }
 
+  /**
+   * Returns every root directory to print, in the order they were given.
+   * The first root is the same as getRoot().
+   *
+   * @return the root directories as an unmodifiable list
+   */
+  public List<File> getRoots() {
+    return roots;
+  }
+
+  /**
+   * Returns a copy of these options that prints only the given root.
+   *
+   * @param root the root directory of the copy
+   * @return options equal to these except for the root
+   */
+  public TruffulaOptions withRoot(File root) {
+    return new TruffulaOptions(this, List.of(root));
+  }
+
   /**
    * Indicates whether hidden files should be included when printing the directory tree.
    *
@@ -71,9 +163,213 @@ public class TruffulaOptions  {
     return showHidden;
   }
 
+  /**
+   * Returns the order in which the entries of each directory are printed.
+   *
+   * @return the sort order, SortOrder.NAME unless another was requested
+   */
+  public SortOrder getSortOrder() {
+    return sortOrder;
+  }
+
+  /**
+   * Returns the locale whose collation rules order entries, if one was requested.
+   * When set, it takes precedence over the sort order.
+   *
+   * @return the collation locale, or null to use the sort order
+   */
+  public Locale getLocale() {
+    return locale;
+  }
+
+  /**
+   * Returns the sorter that orders the entries of each directory: a
+   * CollationSorter if a locale was requested, otherwise the sort order.
+   *
+   * @return the sorter for these options
+   */
+  public EntrySorter getSorter() {
+    return locale == null ? sortOrder : new CollationSorter(locale);
+  }
+
+  /**
+   * Returns the maximum number of names held in memory while sorting one
+   * directory. Larger directories are sorted externally, in runs spilled to
+   * temporary files.
+   *
+   * @return the sort budget, or 0 if directories are always sorted in memory
+   */
+  public int getSortBudget() {
+    return sortBudget;
+  }
+
+  /**
+   * Indicates whether entries are printed in the order the file system returns
+   * them, streamed without sorting. When true, the sort order, locale and sort
+   * budget are ignored.
+   *
+   * @return true if entries are not sorted; false otherwise
+   */
+  public boolean isUnsorted() {
+    return unsorted;
+  }
+
+  /**
+   * Returns the longest time to wait for one directory to be listed. Slower
+   * directories are printed as timed out, without their contents.
+   *
+   * @return the timeout in milliseconds, or 0 to wait as long as it takes
+   */
+  public int getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  /**
+   * Returns the longest time the whole walk may spend listing directories.
+   * Directories reached after the deadline are printed as timed out.
+   *
+   * @return the deadline in milliseconds from the start of the walk, or 0 for none
+   */
+  public int getDeadlineMillis() {
+    return deadlineMillis;
+  }
+
+  /**
+   * Returns the regular expression that file contents must match to be printed.
+   * When set, only matching files and the directories above them are printed.
+   *
+   * @return the content pattern, or null to print every entry
+   */
+  public String getGrepPattern() {
+    return grepPattern;
+  }
+
+  /**
+   * Returns the glob that entry names must match to be printed. When set, only
+   * matching entries and the directories above them are printed.
+   *
+   * @return the name glob, or null to print every entry
+   */
+  public String getFindGlob() {
+    return findGlob;
+  }
+
+  /**
+   * Indicates whether to print an estimate of the size of each tree instead of
+   * the tree itself.
+   *
+   * @return true if only estimates are printed; false otherwise
+   */
+  public boolean isEstimate() {
+    return estimate;
+  }
+
+  /**
+   * Returns the number of entries above which a directory is printed as a
+   * count of its files and subdirectories instead of its contents.
+   *
+   * @return the collapse threshold, or 0 if directories are never collapsed
+   */
+  public int getCollapseThreshold() {
+    return collapseThreshold;
+  }
+
+  /**
+   * Returns the LS_COLORS lookup used to color entries by type and name. It is
+   * read from the environment once, when the options are parsed.
+   *
+   * @return the lookup, or null to color entries by depth
+   */
+  public LsColors getLsColors() {
+    return lsColors;
+  }
+
+  /**
+   * Returns the file the tree is written to instead of standard output. A
+   * name ending in ".gz" means the output is gzip compressed.
+   *
+   * @return the output file, or null to write to standard output
+   */
+  public File getOutputFile() {
+    return outputFile;
+  }
+
+  /**
+   * Returns the type entries must have to be printed: 'f' for files, 'd' for
+   * directories or 'l' for symbolic links.
+   *
+   * @return the entry type, or 0 if no type was asked for
+   */
+  public char getEntryType() {
+    return entryType;
+  }
+
+  /**
+   * Returns the smallest size an entry must have to be printed.
+   *
+   * @return the minimum size in bytes, or 0 to print entries of any size
+   */
+  public long getMinSize() {
+    return minSize;
+  }
+
+  /**
+   * Returns the time entries must have been modified after to be printed.
+   *
+   * @return the earliest modification time, exclusive, or null for no limit
+   */
+  public Instant getNewerThan() {
+    return newerThan;
+  }
+
+  /**
+   * Returns the time entries must have been modified before to be printed.
+   *
+   * @return the latest modification time, exclusive, or null for no limit
+   */
+  public Instant getOlderThan() {
+    return olderThan;
+  }
+
+  /**
+   * Indicates whether progress is reported on standard error while walking.
+   *
+   * @return true if progress is reported; false otherwise
+   */
+  public boolean isProgress() {
+    return progress;
+  }
+
+  /**
+   * Indicates whether entries that could not be read are printed with a
+   * marker saying why, and counted in a summary at the end.
+   *
+   * @return true if errors are shown; false to print such entries plainly
+   */
+  public boolean isShowErrors() {
+    return showErrors;
+  }
+
+  /**
+   * Returns the format the tree is printed in.
+   *
+   * @return the output format, OutputFormat.TEXT unless another was requested
+   */
+  public OutputFormat getFormat() {
+    return format;
+  }
+
   @Override
   public String toString() {
-    return "TruffulaOptions [root=" + root + ", showHidden=" + showHidden + ", useColor=" + useColor + "]";
+    return "TruffulaOptions [roots=" + roots + ", showHidden=" + showHidden + ", useColor=" + useColor
+        + ", sortOrder=" + sortOrder + ", locale=" + locale + ", sortBudget=" + sortBudget
+        + ", unsorted=" + unsorted + ", timeoutMillis=" + timeoutMillis + ", deadlineMillis=" + deadlineMillis
+        + ", grepPattern=" + grepPattern + ", findGlob=" + findGlob
+        + ", estimate=" + estimate + ", collapseThreshold=" + collapseThreshold
+        + ", lsColors=" + (lsColors != null) + ", outputFile=" + outputFile
+        + ", entryType=" + (entryType == 0 ? "any" : String.valueOf(entryType)) + ", minSize=" + minSize
+        + ", newerThan=" + newerThan + ", olderThan=" + olderThan + ", progress=" + progress
+        + ", showErrors=" + showErrors + ", format=" + format + "]";
   }
 
   /**
@@ -93,18 +389,75 @@ public class TruffulaOptions  {
    * Supported Flags:
    * - -h   : Show hidden files (defaults to false).
    * - -nc  : Do not use color (uses color by default).
+   * - -U   : Do not sort; stream entries in file system order.
+   * - --sort MODE : Order entries by name, size, mtime, dirs-first or natural.
+   * - --locale TAG : Order entries by the collation rules of the given language tag.
+   * - --sort-budget N : Sort directories with more than N entries through temporary files.
+   * - --timeout MS : Give up on any directory that takes longer than MS milliseconds to list.
+   * - --deadline MS : Stop listing directories once MS milliseconds have passed.
+   * - --grep PATTERN : Print only files whose contents match PATTERN, and their directories.
+   * - --find GLOB : Print only entries whose names match GLOB, and their directories.
+   * - --estimate : Print estimated totals for each path instead of its tree.
+   * - --collapse N : Print directories with more than N entries as counts only.
+   * - --ls-colors : Color entries by type and extension from the LS_COLORS environment variable.
+   * - --output FILE : Write the tree to FILE, gzip compressed if it ends in ".gz".
+   * - --type f|d|l : Print only files, directories or links, and their directories.
+   * - --min-size SIZE : Print only entries of at least SIZE bytes, and their directories.
+   * - --newer-than TIME : Print only entries modified after TIME (an age or a date).
+   * - --older-than TIME : Print only entries modified before TIME (an age or a date).
+   * - --progress : Report progress on standard error every second.
+   * - --show-errors : Mark unreadable entries and count them on standard error.
+   * - --format text|html : Print indented text or an HTML page of collapsible directories.
+   * - --roots-from FILE : Also print every directory listed in FILE ("-" for standard input).
    * 
-   * The last argument must be the path to the directory.
+   * Every other argument is the path to a directory to print.
    * 
    * @param args command-line arguments in the format [-h] [-nc] path
    * @throws IllegalArgumentException if unknown arguments are provided or the path is missing
    * @throws FileNotFoundException if the directory cannot be found or if the path points to a file
    */
   public TruffulaOptions(String[] args) throws IllegalArgumentException, FileNotFoundException {
+    this(args, null);
+  }
+
+  /**
+   * Constructs a TruffulaOptions object based on command-line arguments,
+   * resolving a relative path against the given base directory instead of the
+   * current working directory. This is used when the arguments come from
+   * another process, such as a client of TruffulaDaemon.
+   * 
+   * @param args          command-line arguments in the format [-h] [-nc] path
+   * @param baseDirectory the directory a relative path is resolved against,
+   *                      or null to use the current working directory
+   * @throws IllegalArgumentException if unknown arguments are provided, the path is missing
+   *                                  or a pattern is invalid
+   * @throws FileNotFoundException if the directory cannot be found or if the path points to a file
+   */
+  public TruffulaOptions(String[] args, File baseDirectory) throws IllegalArgumentException, FileNotFoundException {
     
     boolean hiddenCheck = false;
     boolean colorCheck = true;
-    String location = "";
+    SortOrder order = SortOrder.NAME;
+    Locale collation = null;
+    int budget = 0;
+    boolean unsortedCheck = false;
+    int timeout = 0;
+    int deadline = 0;
+    String grep = null;
+    String find = null;
+    boolean estimateCheck = false;
+    int collapse = 0;
+    LsColors colors = null;
+    File output = null;
+    char type = 0;
+    long size = 0;
+    Instant newer = null;
+    Instant older = null;
+    Instant now = Instant.now();
+    boolean progressCheck = false;
+    boolean errorsCheck = false;
+    OutputFormat outputFormat = OutputFormat.TEXT;
+    List<String> locations = new ArrayList<>();
 
 
     for(int i = 0; i < args.length; i++)
@@ -116,29 +469,235 @@ public class TruffulaOptions  {
       else if(args[i].equals("-nc"))
       {
         colorCheck = false;
-      }      
-      else if(location == "")
+      }
+      else if(args[i].equals("-U"))
+      {
+        unsortedCheck = true;
+      }
+      else if(args[i].equals("--estimate"))
+      {
+        estimateCheck = true;
+      }
+      else if(args[i].equals("--progress"))
+      {
+        progressCheck = true;
+      }
+      else if(args[i].equals("--show-errors"))
+      {
+        errorsCheck = true;
+      }
+      else if(args[i].equals("--ls-colors"))
+      {
+        colors = LsColors.fromEnvironment();
+      }
+      else if(args[i].equals("--sort") && i + 1 < args.length)
+      {
+        order = SortOrder.fromFlag(args[++i]);
+      }
+      else if(args[i].equals("--locale") && i + 1 < args.length)
+      {
+        collation = parseLocale(args[++i]);
+      }
+      else if(args[i].equals("--sort-budget") && i + 1 < args.length)
       {
-         location = args[i];
+        budget = parsePositive(args[++i]);
       }
-      else{
+      else if(args[i].equals("--timeout") && i + 1 < args.length)
+      {
+        timeout = parsePositive(args[++i]);
+      }
+      else if(args[i].equals("--deadline") && i + 1 < args.length)
+      {
+        deadline = parsePositive(args[++i]);
+      }
+      else if(args[i].equals("--grep") && i + 1 < args.length)
+      {
+        grep = args[++i];
+        Pattern.compile(grep);
+      }
+      else if(args[i].equals("--find") && i + 1 < args.length)
+      {
+        find = args[++i];
+        new NameMatcher(find);
+      }
+      else if(args[i].equals("--collapse") && i + 1 < args.length)
+      {
+        collapse = parsePositive(args[++i]);
+      }
+      else if(args[i].equals("--output") && i + 1 < args.length)
+      {
+        output = new File(args[++i]);
+        if(baseDirectory != null && !output.isAbsolute())
+        {
+          output = new File(baseDirectory, output.getPath());
+        }
+      }
+      else if(args[i].equals("--type") && i + 1 < args.length)
+      {
+        type = AttributeFilter.parseType(args[++i]);
+      }
+      else if(args[i].equals("--min-size") && i + 1 < args.length)
+      {
+        size = AttributeFilter.parseSize(args[++i]);
+      }
+      else if(args[i].equals("--newer-than") && i + 1 < args.length)
+      {
+        newer = AttributeFilter.parseTime(args[++i], now);
+      }
+      else if(args[i].equals("--older-than") && i + 1 < args.length)
+      {
+        older = AttributeFilter.parseTime(args[++i], now);
+      }
+      else if(args[i].equals("--format") && i + 1 < args.length)
+      {
+        outputFormat = OutputFormat.fromFlag(args[++i]);
+      }
+      else if(args[i].equals("--roots-from") && i + 1 < args.length)
+      {
+        locations.addAll(readRootList(args[++i], baseDirectory));
+      }
+      else if(args[i].startsWith("-"))
+      {
         throw new IllegalArgumentException("Invalid Argument Passed!");
       }
+      else
+      {
+         locations.add(args[i]);
+      }
     }
-    File roots = new File(location);
-
-    
-    if(!roots.exists())
+    if(locations.isEmpty())
     {
-      throw new FileNotFoundException("No File Exists!");
+      locations.add("");
     }
-    if(!roots.isDirectory())
+    if(budget > 0 && (order != SortOrder.NAME || collation != null))
     {
-      throw new FileNotFoundException("Invalid Directory!");
+      throw new IllegalArgumentException("--sort-budget only supports sorting by name");
+    }
+
+    List<File> found = new ArrayList<>();
+    for(String location : locations)
+    {
+      File dir = new File(location);
+      if(baseDirectory != null && !location.isEmpty() && !dir.isAbsolute())
+      {
+        dir = new File(baseDirectory, location);
+      }
+
+      if(!dir.exists())
+      {
+        throw new FileNotFoundException("No File Exists!");
+      }
+      if(!dir.isDirectory() && !TarArchive.isArchive(dir))
+      {
+        throw new FileNotFoundException("Invalid Directory!");
+      }
+      found.add(dir);
     }
-    root = roots;
+    roots = List.copyOf(found);
+    root = roots.get(0);
     showHidden = hiddenCheck;
     useColor = colorCheck;
+    sortOrder = order;
+    locale = collation;
+    sortBudget = budget;
+    unsorted = unsortedCheck;
+    timeoutMillis = timeout;
+    deadlineMillis = deadline;
+    grepPattern = grep;
+    findGlob = find;
+    estimate = estimateCheck;
+    collapseThreshold = collapse;
+    lsColors = colors;
+    outputFile = output;
+    entryType = type;
+    minSize = size;
+    newerThan = newer;
+    olderThan = older;
+    progress = progressCheck;
+    showErrors = errorsCheck;
+    format = outputFormat;
+  }
+
+  /**
+   * Parses a positive whole number given as the value of a flag.
+   *
+   * @param value the text of the number
+   * @return the number
+   * @throws IllegalArgumentException if the value is not a positive whole number
+   */
+  private static int parsePositive(String value) throws IllegalArgumentException {
+    try {
+      int number = Integer.parseInt(value);
+      if(number > 0)
+      {
+        return number;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException("Expected a positive number: " + value);
+  }
+
+  /**
+   * Parses a --locale argument as a well-formed BCP 47 language tag that names
+   * a language, rather than falling back silently to the root locale.
+   *
+   * @param tag the language tag, such as "de" or "sv-SE"
+   * @return the locale
+   * @throws IllegalArgumentException if the tag is ill-formed or names no language
+   */
+  private static Locale parseLocale(String tag) throws IllegalArgumentException {
+    Locale locale;
+    try {
+      locale = new Locale.Builder().setLanguageTag(tag).build();
+    } catch (IllformedLocaleException e) {
+      throw new IllegalArgumentException("Invalid --locale language tag: " + tag, e);
+    }
+    if(locale.getLanguage().isEmpty()){
+      throw new IllegalArgumentException("Invalid --locale language tag: " + tag);
+    }
+    return locale;
+  }
+
+  /**
+   * Reads a list of root directories, one per line, from a file or from
+   * standard input if the name is "-". Blank lines are ignored. A relative
+   * file name is resolved against the base directory, if one is given.
+   * Arguments with a base directory come from another process, whose standard
+   * input this process cannot read, so "-" is rejected for them.
+   *
+   * @param source        the file to read, or "-" for standard input
+   * @param baseDirectory the directory a relative file name is resolved against, or null
+   * @return the paths listed in the source
+   * @throws IllegalArgumentException if the source is "-" and a base directory is given
+   * @throws FileNotFoundException if the list cannot be read
+   */
+  private static List<String> readRootList(String source, File baseDirectory) throws FileNotFoundException {
+    if(source.equals("-") && baseDirectory != null)
+    {
+      throw new IllegalArgumentException("--roots-from - cannot read the standard input of another process");
+    }
+    try {
+      List<String> lines;
+      if(source.equals("-"))
+      {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        lines = in.lines().collect(Collectors.toList());
+      }
+      else
+      {
+        Path list = Path.of(source);
+        if(baseDirectory != null && !list.isAbsolute())
+        {
+          list = baseDirectory.toPath().resolve(list);
+        }
+        lines = Files.readAllLines(list, StandardCharsets.UTF_8);
+      }
+      lines.removeIf(line -> line.isBlank());
+      return lines;
+    } catch (IOException | UncheckedIOException e) {
+      throw new FileNotFoundException("Could not read roots from " + source);
+    }
   }
 
   /**
@@ -149,8 +708,72 @@ public class TruffulaOptions  {
    * @param useColor   whether color should be used in the output
    */
   public TruffulaOptions(File root, boolean showHidden, boolean useColor) {
-    this.root = root;
+    this(List.of(root), showHidden, useColor);
+  }
+
+  /**
+   * Constructs a TruffulaOptions object with explicit values and several roots,
+   * each of which is printed as its own tree.
+   * 
+   * @param roots      the root directories, printed in the given order
+   * @param showHidden whether hidden files should be displayed
+   * @param useColor   whether color should be used in the output
+   */
+  public TruffulaOptions(List<File> roots, boolean showHidden, boolean useColor) {
+    this.roots = List.copyOf(roots);
+    this.root = this.roots.get(0);
     this.showHidden = showHidden;
     this.useColor = useColor;
+    this.sortOrder = SortOrder.NAME;
+    this.locale = null;
+    this.sortBudget = 0;
+    this.unsorted = false;
+    this.timeoutMillis = 0;
+    this.deadlineMillis = 0;
+    this.grepPattern = null;
+    this.findGlob = null;
+    this.estimate = false;
+    this.collapseThreshold = 0;
+    this.lsColors = null;
+    this.outputFile = null;
+    this.entryType = 0;
+    this.minSize = 0;
+    this.newerThan = null;
+    this.olderThan = null;
+    this.progress = false;
+    this.showErrors = false;
+    this.format = OutputFormat.TEXT;
+  }
+
+  /**
+   * Constructs a copy of the given options with different roots.
+   * 
+   * @param other the options to copy
+   * @param roots the root directories of the copy
+   */
+  private TruffulaOptions(TruffulaOptions other, List<File> roots) {
+    this.roots = List.copyOf(roots);
+    this.root = this.roots.get(0);
+    this.showHidden = other.showHidden;
+    this.useColor = other.useColor;
+    this.sortOrder = other.sortOrder;
+    this.locale = other.locale;
+    this.sortBudget = other.sortBudget;
+    this.unsorted = other.unsorted;
+    this.timeoutMillis = other.timeoutMillis;
+    this.deadlineMillis = other.deadlineMillis;
+    this.grepPattern = other.grepPattern;
+    this.findGlob = other.findGlob;
+    this.estimate = other.estimate;
+    this.collapseThreshold = other.collapseThreshold;
+    this.lsColors = other.lsColors;
+    this.outputFile = other.outputFile;
+    this.entryType = other.entryType;
+    this.minSize = other.minSize;
+    this.newerThan = other.newerThan;
+    this.olderThan = other.olderThan;
+    this.progress = other.progress;
+    this.showErrors = other.showErrors;
+    this.format = other.format;
   }
 }
\ No newline at end of file
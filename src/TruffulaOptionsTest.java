@@ -5,6 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -57,5 +60,79 @@ public class TruffulaOptionsTest {
     assertFalse(options.isUseColor());
   }
 
-  
+  @Test
+  void testSeveralRootsAreKeptInOrder(@TempDir File tempDir) throws IOException {
+    File first = new File(tempDir, "first");
+    File second = new File(tempDir, "second");
+    first.mkdir();
+    second.mkdir();
+    String[] args = {"-nc", second.getAbsolutePath(), first.getAbsolutePath()};
+
+    TruffulaOptions options = new TruffulaOptions(args);
+
+    assertEquals(List.of(second.getAbsoluteFile(), first.getAbsoluteFile()), options.getRoots());
+    assertEquals(second.getAbsolutePath(), options.getRoot().getAbsolutePath());
+  }
+
+  @Test
+  void testRootsFromFile(@TempDir File tempDir) throws IOException {
+    File first = new File(tempDir, "first");
+    File second = new File(tempDir, "second");
+    first.mkdir();
+    second.mkdir();
+    File list = new File(tempDir, "roots.txt");
+    Files.writeString(list.toPath(), first.getAbsolutePath() + "\n\n" + second.getAbsolutePath() + "\n");
+
+    TruffulaOptions options = new TruffulaOptions(new String[] {"--roots-from", list.getAbsolutePath()});
+
+    assertEquals(List.of(first.getAbsoluteFile(), second.getAbsoluteFile()), options.getRoots());
+  }
+
+  @Test
+  void testRootsFromIsResolvedAgainstBaseDirectory(@TempDir File tempDir) throws IOException {
+    File first = new File(tempDir, "first");
+    first.mkdir();
+    Files.writeString(tempDir.toPath().resolve("roots.txt"), "first\n");
+
+    TruffulaOptions options = new TruffulaOptions(new String[] {"--roots-from", "roots.txt"}, tempDir);
+
+    assertEquals(List.of(first), options.getRoots());
+    assertThrows(IllegalArgumentException.class,
+        () -> new TruffulaOptions(new String[] {"--roots-from", "-"}, tempDir));
+  }
+
+  @Test
+  void testUnknownFlagIsRejected(@TempDir File tempDir) {
+    String[] args = {"-x", tempDir.getAbsolutePath()};
+
+    assertThrows(IllegalArgumentException.class, () -> new TruffulaOptions(args));
+  }
+
+  @Test
+  void testInvalidSearchPatternsAreRejected(@TempDir File tempDir) {
+    String path = tempDir.getAbsolutePath();
+
+    assertThrows(IllegalArgumentException.class, () -> new TruffulaOptions(new String[] {"--grep", "(", path}));
+    assertThrows(IllegalArgumentException.class, () -> new TruffulaOptions(new String[] {"--find", "[a", path}));
+  }
+
+  @Test
+  void testInvalidLocaleIsRejected(@TempDir File tempDir) throws FileNotFoundException {
+    String path = tempDir.getAbsolutePath();
+
+    assertThrows(IllegalArgumentException.class, () -> new TruffulaOptions(new String[] {"--locale", "not_a_tag!", path}));
+    assertThrows(IllegalArgumentException.class, () -> new TruffulaOptions(new String[] {"--locale", "und", path}));
+    assertEquals("sv-SE", new TruffulaOptions(new String[] {"--locale", "sv-SE", path}).getLocale().toLanguageTag());
+  }
+
+  @Test
+  void testOutputFileIsResolvedAgainstBaseDirectory(@TempDir File tempDir) throws IOException {
+    String path = tempDir.getAbsolutePath();
+
+    TruffulaOptions options = new TruffulaOptions(new String[] {"--output", "tree.txt.gz", path}, tempDir);
+
+    assertEquals(new File(tempDir, "tree.txt.gz"), options.getOutputFile());
+    assertEquals(tempDir.getAbsolutePath(), options.getRoot().getAbsolutePath());
+    assertEquals(null, new TruffulaOptions(new String[] {path}).getOutputFile());
+  }
 }
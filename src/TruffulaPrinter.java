@@ -1,29 +1,93 @@
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * TruffulaPrinter is responsible for printing a directory tree structure
  * with optional colored output. It supports sorting files and directories
  * in a case-insensitive manner and cycling through colors for visual clarity.
+ * When the options name several roots, each root is printed as its own tree.
+ * A walk in progress can be stopped from another thread through the
+ * CancellationHandle given to that call of printTree.
+ * 
+ * A TruffulaPrinter is immutable and safe to share between threads. Everything
+ * a call to printTree changes while it prints lives in a RenderContext made for
+ * that call, so one printer can serve many concurrent calls printing to
+ * different streams without any locking of its own.
  */
 public class TruffulaPrinter {
+
+  /**
+   * The state of one call to printTree: the options it prints with, the
+   * ColorPrinter it prints through, the lister it walks with, when searching,
+   * the test entries must pass to be printed, when asked for, the reporter
+   * and error summary every entry walked is counted by, for HTML output, the
+   * writer entries are printed through, and the handle that stops the call.
+   * Each call makes its own, so concurrent calls never share anything that
+   * changes, and cancelling one call leaves the others running.
+   */
+  private static final class RenderContext {
+    private final TruffulaOptions options;
+    private final ColorPrinter out;
+    private final DirectoryLister walk;
+    private final Predicate<TreeEntry> match;
+    private final ProgressReporter progress;
+    private final ErrorSummary errors;
+    private final HtmlTreeWriter html;
+    private final CancellationHandle cancellation;
+
+    private RenderContext(TruffulaOptions options, PrintStream sink, DirectoryLister walk,
+        Predicate<TreeEntry> match, ProgressReporter progress, ErrorSummary errors,
+        CancellationHandle cancellation) {
+      this.options = options;
+      this.out = new ColorPrinter(sink);
+      this.walk = walk;
+      this.match = match;
+      this.progress = progress;
+      this.errors = errors;
+      this.html = options.getFormat() == OutputFormat.HTML ? new HtmlTreeWriter(sink) : null;
+      this.cancellation = cancellation;
+    }
+  }
   
   /**
    * Configuration options that determine how the tree is printed.
    */
-  private TruffulaOptions options;
+  private final TruffulaOptions options;
   
   /**
    * The sequence of colors to use when printing the tree.
    */
-  private List<ConsoleColor> colorSequence;
-  
+  private final List<ConsoleColor> colorSequence;
+
   /**
-   * The output printer for displaying the tree.
+   * The stream printTree prints to when no other stream is given.
    */
-  private ColorPrinter out;
+  private final PrintStream outStream;
+
+  /**
+   * The lister used to read the children of each directory.
+   */
+  private final DirectoryLister lister;
 
   /**
    * Default color sequence used when no custom colors are provided.
@@ -72,9 +136,38 @@ public class TruffulaPrinter {
    * @param colorSequence the sequence of colors to use when printing
    */
   public TruffulaPrinter(TruffulaOptions options, PrintStream outStream, List<ConsoleColor> colorSequence) {
+    this(options, outStream, colorSequence, new FileSystemLister(options.getSorter()));
+  }
+
+  /**
+   * Constructs a TruffulaPrinter with the given options and output stream that
+   * reads directories through the given lister, using the default color sequence.
+   * The lister is expected to return entries in the order of the options' sorter.
+   * Sharing one CachingLister between printers lets them reuse each other's listings.
+   *
+   * @param options the configuration options for printing the tree
+   * @param outStream the output stream to print to
+   * @param lister the lister used to read the children of each directory
+   */
+  public TruffulaPrinter(TruffulaOptions options, PrintStream outStream, DirectoryLister lister) {
+    this(options, outStream, DEFAULT_COLOR_SEQUENCE, lister);
+  }
+
+  /**
+   * Constructs a TruffulaPrinter with the given options, output stream, color sequence
+   * and directory lister.
+   *
+   * @param options the configuration options for printing the tree
+   * @param outStream the output stream to print to
+   * @param colorSequence the sequence of colors to use when printing
+   * @param lister the lister used to read the children of each directory
+   */
+  public TruffulaPrinter(TruffulaOptions options, PrintStream outStream, List<ConsoleColor> colorSequence,
+      DirectoryLister lister) {
     this.options = options;
-    this.colorSequence = colorSequence;
-    out = new ColorPrinter(outStream);
+    this.colorSequence = List.copyOf(colorSequence);
+    this.lister = lister;
+    this.outStream = outStream;
   }
 
   /**
@@ -82,11 +175,15 @@ public class TruffulaPrinter {
    * sorted in a case-insensitive manner. The tree is displayed with 3 spaces of
    * indentation for each directory level..
    * 
-   * WAVE 5: If hidden files are not to be shown, then no hidden files/folders will be shown.
+   * WAVE 5: If hidden files are not to be shown, then no hidden files/folders will be shown,
+   * and nothing inside a hidden folder is listed or printed.
    *
    * WAVE 6: If color is enabled, the output cycles through colors at each directory level
    * to visually differentiate them. If color is disabled, all output is displayed in white.
    *
+   * With LS_COLORS coloring enabled, entries are colored by type and name as
+   * configured there, and entries it has no color for fall back to the depth colors.
+   *
    * WAVE 7: The sorting is case-insensitive. If two files have identical case-insensitive names,
    * they are sorted lexicographically (Cat.png before cat.png).
    *
@@ -103,68 +200,676 @@ public class TruffulaPrinter {
    *       notes.txt
    *       README.md
    *    zebra.txt
+   *
+   * If a timeout or deadline is set, directories that are not listed in time are
+   * printed with a "[timed out]" marker and without their contents. The deadline
+   * counts from the start of this call, across every root.
+   *
+   * A root that is a tar or tar.gz archive is printed as the tree inside it,
+   * read by a TarArchive without extracting anything, in the same format.
+   *
+   * With the HTML format, the trees are written as one HTML page instead, in
+   * which each directory is a collapsible details element; see HtmlTreeWriter.
+   *
+   * Directories that cannot be listed, and entries that cannot be read, are
+   * printed as usual and the walk carries on. If errors are to be shown, they
+   * are printed with a marker such as "[permission denied]", and a count of
+   * them by reason is written to standard error at the end.
    */
   public void printTree() {
+    printTree(options, outStream, System.err, new CancellationHandle());
+  }
+
+  /**
+   * Prints the tree of this printer's options to the given stream instead of
+   * the printer's own. Any number of threads may call this at once on the same
+   * printer, each with its own stream.
+   *
+   * @param sink the stream to print to
+   */
+  public void printTree(PrintStream sink) {
+    printTree(options, sink, System.err, new CancellationHandle());
+  }
+
+  /**
+   * Prints the tree of this printer's options to the given stream until the
+   * given handle is cancelled. Cancelling it from another thread makes this
+   * call stop at the next entry and abandon any directory listing it is
+   * waiting on under a timeout or deadline; other calls on the same printer,
+   * and later calls, are not affected.
+   *
+   * @param sink         the stream to print to
+   * @param cancellation the handle that stops this call
+   */
+  public void printTree(PrintStream sink, CancellationHandle cancellation) {
+    printTree(options, sink, System.err, cancellation);
+  }
+
+  /**
+   * Prints the tree of this printer's options to the given stream until the
+   * given handle is cancelled, writing progress and the error summary to the
+   * given report stream instead of standard error, as the daemon does for its
+   * clients.
+   *
+   * @param sink         the stream to print to
+   * @param report       the stream progress and the error summary are written to
+   * @param cancellation the handle that stops this call
+   */
+  public void printTree(PrintStream sink, PrintStream report, CancellationHandle cancellation) {
+    printTree(options, sink, report, cancellation);
+  }
+
+  /**
+   * Prints the tree below the given root to the given stream, with every other
+   * setting taken from this printer's options. Any number of threads may call
+   * this at once on the same printer, each with its own root and stream.
+   *
+   * @param root the root directory to print
+   * @param sink the stream to print to
+   */
+  public void printTree(File root, PrintStream sink) {
+    printTree(options.withRoot(root), sink, System.err, new CancellationHandle());
+  }
+
+  /**
+   * Prints the tree below the given root to the given stream until the given
+   * handle is cancelled, with every other setting taken from this printer's
+   * options. Cancelling the handle stops only this call.
+   *
+   * @param root         the root directory to print
+   * @param sink         the stream to print to
+   * @param cancellation the handle that stops this call
+   */
+  public void printTree(File root, PrintStream sink, CancellationHandle cancellation) {
+    printTree(options.withRoot(root), sink, System.err, cancellation);
+  }
+
+  /**
+   * Prints the trees of the given options to the given stream.
+   *
+   * @param treeOptions  the options naming the roots to print
+   * @param sink         the stream to print to
+   * @param report       the stream progress and the error summary are written to
+   * @param cancellation the handle that stops the call
+   */
+  private void printTree(TruffulaOptions treeOptions, PrintStream sink, PrintStream report,
+      CancellationHandle cancellation) {
+    ErrorSummary errors = treeOptions.isShowErrors() ? new ErrorSummary() : null;
+    boolean page = treeOptions.getFormat() == OutputFormat.HTML && !treeOptions.isEstimate();
+    if(page){
+      HtmlTreeWriter.writeHeader(sink, treeOptions.getRoots().stream().map(File::getPath)
+          .collect(Collectors.joining(" ")));
+    }
+    if(treeOptions.isProgress() && !treeOptions.isEstimate()){
+      try (ProgressReporter progress = new ProgressReporter(report, ProgressReporter.DEFAULT_INTERVAL_MILLIS)) {
+        printTree(treeOptions, sink, progress, errors, cancellation);
+      }
+    }
+    else{
+      printTree(treeOptions, sink, null, errors, cancellation);
+    }
+    if(page){
+      HtmlTreeWriter.writeFooter(sink);
+    }
+    if(errors != null && errors.getTotal() > 0){
+      sink.flush();
+      report.println(errors);
+    }
+  }
+
+  /**
+   * Prints the trees of the given options to the given stream, counting every
+   * entry walked with the given reporter and error summary.
+   *
+   * @param treeOptions  the options naming the roots to print
+   * @param sink         the stream to print to
+   * @param progress     the reporter to count entries with, or null
+   * @param errors       the summary to count unreadable entries in, or null
+   * @param cancellation the handle that stops the call
+   */
+  private void printTree(TruffulaOptions treeOptions, PrintStream sink, ProgressReporter progress,
+      ErrorSummary errors, CancellationHandle cancellation) {
+    RenderContext context = new RenderContext(treeOptions, sink, walkLister(treeOptions, cancellation),
+        searchFor(treeOptions), progress, errors, cancellation);
+    if(treeOptions.isEstimate()){
+      for(File root : treeOptions.getRoots()){
+        printEstimate(context, root);
+      }
+      return;
+    }
+    if(treeOptions.getRoots().size() > 1){
+      printTrees(context, sink);
+      return;
+    }
+
     //get the folder
-    File folder = options.getRoot();
+    File folder = treeOptions.getRoot();
+
+    if(TarArchive.isArchive(folder)){
+      TarArchive archive = readArchive(context, folder);
+      if(archive != null){
+        RenderContext inArchive = new RenderContext(treeOptions, sink,
+            walkLister(treeOptions, archive, cancellation), context.match, progress, errors, cancellation);
+        printWalk(inArchive, archive.getRoot(folder.getName()));
+      }
+      return;
+    }
 
     //check folder exists and if directory
     if(!folder.exists() || !folder.isDirectory()){
-      out.println("invalid directory");
+      printMessage(context, "invalid directory");
       return;
     }
 
     //print from root folder
-    printTreeHelper(folder, 0);
+    printWalk(context, FileSystemLister.entry(folder, 0));
   }
 
-  public void printTreeHelper(File file, int level){
-    //3 space for each level
-    String space ="";
-    for(int i =0; i < level; i++){
-      space += "   ";
+  /**
+   * The output of one root printed by printTrees. It is held in memory while
+   * roots before it are still being written, and once it is the first root
+   * left, what was held is written out and the rest goes straight to the sink.
+   */
+  private static final class RootOutput extends OutputStream {
+    private ByteArrayOutputStream held = new ByteArrayOutputStream();
+    private PrintStream sink;
+
+    /**
+     * Writes out what has been held and sends everything after it straight
+     * to the given sink. Calling this again has no further effect.
+     */
+    private synchronized void release(PrintStream sink) {
+      if(this.sink == null){
+        sink.write(held.toByteArray(), 0, held.size());
+        held = null;
+        this.sink = sink;
+      }
+    }
+
+    @Override
+    public synchronized void write(int b) {
+      if(sink != null){
+        sink.write(b);
+      }
+      else{
+        held.write(b);
+      }
     }
-    
-    //determine color
-    //default color
-    ConsoleColor color = ConsoleColor.WHITE;
-    if(options.isUseColor()){
-      color = colorSequence.get(level % colorSequence.size());
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+      if(sink != null){
+        sink.write(bytes, offset, length);
+      }
+      else{
+        held.write(bytes, offset, length);
+      }
+    }
+  }
+
+  /**
+   * Prints one tree per root, in the order the roots were given.
+   * 
+   * Roots are printed concurrently on the shared WorkerPool, all reading through
+   * this printer's lister. The first root not yet finished is written straight
+   * to the sink as it is walked; each root behind it is held in memory until
+   * every root before it has been written, so that every tree appears as one
+   * contiguous block. Only a bounded number of roots are in flight at once, but
+   * a root that is held is held whole: a run over several large trees can hold
+   * the output of all but one of the trees in flight. Each root line shows the
+   * path as it was given, so roots with the same name can be told apart.
+   *
+   * @param context the context of the call, holding the roots and the lister
+   * @param sink    the stream the trees are written to
+   */
+  private void printTrees(RenderContext context, PrintStream sink) {
+    ExecutorService pool = WorkerPool.shared();
+    int window = 2 * WorkerPool.size();
+    Iterator<File> roots = context.options.getRoots().iterator();
+    Deque<Future<?>> pending = new ArrayDeque<>();
+    Deque<RootOutput> outputs = new ArrayDeque<>();
+
+    while(roots.hasNext() || !pending.isEmpty()){
+      if(context.cancellation.isCancelled()){
+        pending.forEach(future -> future.cancel(true));
+        break;
+      }
+      while(roots.hasNext() && pending.size() < window){
+        File root = roots.next();
+        RootOutput output = new RootOutput();
+        outputs.add(output);
+        pending.add(pool.submit(() -> renderRoot(context, root, output)));
+      }
+
+      outputs.remove().release(sink);
+      try {
+        pending.remove().get();
+      } catch (InterruptedException e) {
+        pending.forEach(future -> future.cancel(true));
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Could not print tree", e.getCause());
+      }
+    }
+    sink.flush();
+  }
+
+  /**
+   * Renders the tree of a single root to the given stream.
+   *
+   * @param context the context of the call the root belongs to
+   * @param root    the root directory or archive to render
+   * @param output  the stream the tree is written to
+   */
+  private void renderRoot(RenderContext context, File root, OutputStream output) {
+    PrintStream blockStream = new PrintStream(output, false, StandardCharsets.UTF_8);
+    RenderContext block = new RenderContext(context.options.withRoot(root), blockStream, context.walk, context.match,
+        context.progress, context.errors, context.cancellation);
+    TreeEntry entry = null;
+    if(TarArchive.isArchive(root)){
+      TarArchive archive = readArchive(block, root);
+      if(archive != null){
+        block = new RenderContext(block.options, blockStream, walkLister(block.options, archive, block.cancellation),
+            block.match, block.progress, block.errors, block.cancellation);
+        entry = archive.getRoot(root.getPath());
+      }
+    }
+    else if(!root.isDirectory()){
+      printMessage(block, "invalid directory");
     }
     else{
-      color = colorSequence.get(0);
+      entry = new TreeEntry(root.toPath(), root.getPath(), 0, FileSystemLister.readAttributes(root.toPath()));
     }
-    out.setCurrentColor(color);
+    if(entry != null){
+      if(block.match != null){
+        printMatches(block, entry);
+      }
+      else{
+        RenderContext rendering = block;
+        try (Stream<TreeEntry> tree = walk(rendering, entry)) {
+          tree.takeWhile(e -> !rendering.cancellation.isCancelled()).forEach(e -> printEntry(rendering, e));
+        }
+      }
+    }
+    if(block.html != null){
+      block.html.endTree();
+    }
+    blockStream.flush();
+  }
 
-    
-    //if file is directory
-    if(file.isDirectory()){
-      
-      if(!file.isHidden())
-      {
-        //set the color
-        out.setCurrentColor(color);
-        out.println(space + file.getName() + '/');
+  /**
+   * Prints the tree rooted at the given file, indenting it as if it were found
+   * at the given level below the root.
+   *
+   * @param file  the file or directory to print
+   * @param level the depth at which the file is printed
+   */
+  public void printTreeHelper(File file, int level){
+    CancellationHandle cancellation = new CancellationHandle();
+    RenderContext context = new RenderContext(options, outStream, walkLister(options, cancellation),
+        searchFor(options), null, null, cancellation);
+    printWalk(context, FileSystemLister.entry(file, level));
+  }
+
+  /**
+   * Walks the tree below the given entry and prints each entry as it is
+   * reached, until the walk ends or is cancelled. Directories are listed and
+   * sorted ahead on a TreePipeline while earlier entries are being printed.
+   *
+   * @param context the context of the call
+   * @param root    the entry at which to start
+   */
+  private void printWalk(RenderContext context, TreeEntry root){
+    if(context.match != null){
+      printMatches(context, root);
+    }
+    else{
+      try (TreePipeline pipeline = new TreePipeline(walk(context, root))) {
+        while(pipeline.hasNext() && !context.cancellation.isCancelled()){
+          printEntry(context, pipeline.next());
+        }
       }
+    }
+    if(context.html != null){
+      context.html.endTree();
+    }
+  }
 
-  
-      //get all files inside directory
-      File[] files = file.listFiles();
-      AlphabeticalFileSorter.sort(files);
-
-      if(files !=null){
-        for (int i=0; i< files.length; i++){
-          //go down in the folder
-          printTreeHelper(files[i], level +1);
+  /**
+   * Returns the walk of the tree below the given entry, with each entry
+   * counted by the context's progress reporter and error summary, if it has
+   * them, as it is reached.
+   *
+   * @param context the context of the call
+   * @param root    the entry at which to start
+   * @return the entries of the tree, in walk order
+   */
+  private static Stream<TreeEntry> walk(RenderContext context, TreeEntry root){
+    Stream<TreeEntry> tree = TruffulaTree.stream(root, context.walk);
+    if(context.progress != null){
+      tree = tree.peek(context.progress::visit);
+    }
+    return context.errors == null ? tree : tree.peek(context.errors::record);
+  }
+
+  /**
+   * The most entries of a search that are tested ahead of the one printed next.
+   */
+  private static final int MATCH_WINDOW = 256;
+
+  /**
+   * Walks the tree below the given entry, testing entries in parallel, and
+   * prints only the entries that match and the directories above them. This
+   * serves --grep, --find and the type, size and age filters.
+   * 
+   * The tree is walked in order on the calling thread, and each entry is
+   * tested on the common fork-join pool, so many files are searched at once.
+   * The results are taken in walk order from a window of at most MATCH_WINDOW
+   * entries and fed to a BranchFilter, so besides the window only the pending
+   * ancestor path is ever held: a directory is held until the first match
+   * below it is found or the walk leaves it.
+   *
+   * @param context the context of the call, holding the test to apply
+   * @param root    the entry at which to start
+   */
+  private void printMatches(RenderContext context, TreeEntry root){
+    BranchFilter branches = new BranchFilter(entry -> printEntry(context, entry));
+    Deque<TreeEntry> entries = new ArrayDeque<>();
+    Deque<CompletableFuture<Boolean>> tests = new ArrayDeque<>();
+    try (Stream<TreeEntry> tree = walk(context, root)) {
+      Iterator<TreeEntry> walked = tree.iterator();
+      while(!context.cancellation.isCancelled() && (walked.hasNext() || !entries.isEmpty())){
+        while(walked.hasNext() && entries.size() < MATCH_WINDOW && !context.cancellation.isCancelled()){
+          TreeEntry entry = walked.next();
+          entries.add(entry);
+          tests.add(CompletableFuture.supplyAsync(() -> context.match.test(entry), ForkJoinPool.commonPool()));
+        }
+        if(!entries.isEmpty()){
+          branches.accept(entries.remove(), join(tests.remove()));
         }
       }
+    } finally {
+      tests.forEach(test -> test.cancel(false));
+    }
+  }
 
-    }else{
-      if(!file.isHidden())
-      {
-        out.setCurrentColor(color);
-        out.println(space + file.getName());
+  /**
+   * Waits for the result of a test, rethrowing whatever the test threw.
+   *
+   * @param test the test to wait for
+   * @return the result of the test
+   */
+  private static boolean join(CompletableFuture<Boolean> test){
+    try {
+      return test.join();
+    } catch (CompletionException e) {
+      if(e.getCause() instanceof RuntimeException){
+        throw (RuntimeException) e.getCause();
+      }
+      if(e.getCause() instanceof Error){
+        throw (Error) e.getCause();
       }
+      throw e;
+    }
+  }
+
+  /**
+   * Prints an estimate of the files, directories and bytes below the given
+   * root, with 95% confidence intervals, made by a TreeEstimator within its
+   * default listing budget.
+   * 
+   * Example Output:
+   *
+   * myFolder/ (estimated from 812 probes, 2000 directories listed)
+   *    files: 1,204,331 +/- 95,120
+   *    directories: 88,102 +/- 6,004
+   *    bytes: 73,544,113,201 +/- 9,310,772,090
+   *
+   * @param context the context of the call
+   * @param root    the root directory to estimate
+   */
+  private void printEstimate(RenderContext context, File root){
+    if(!root.isDirectory()){
+      printMessage(context, "invalid directory");
+      return;
+    }
+    TreeEntry entry = new TreeEntry(root.toPath(), root.getPath(), 0, FileSystemLister.readAttributes(root.toPath()));
+    TreeEstimator.Estimate estimate =
+        new TreeEstimator(context.walk, new Random(), TreeEstimator.DEFAULT_LISTING_BUDGET).estimate(entry);
+
+    context.out.setCurrentColor(colorSequence.get(0));
+    context.out.println(String.format(Locale.ROOT, "%s/ (estimated from %d probes, %d directories listed)",
+        entry.getName(), estimate.getProbes(), estimate.getListings()));
+    if(context.options.isUseColor()){
+      context.out.setCurrentColor(colorSequence.get(1 % colorSequence.size()));
+    }
+    context.out.println(formatInterval("files", estimate.getFiles()));
+    context.out.println(formatInterval("directories", estimate.getDirectories()));
+    context.out.println(formatInterval("bytes", estimate.getBytes()));
+  }
+
+  /**
+   * Formats one estimated total as an indented line.
+   *
+   * @param label    the name of the total
+   * @param interval the estimate and its confidence interval
+   * @return the formatted line
+   */
+  private static String formatInterval(String label, TreeEstimator.Interval interval) {
+    return String.format(Locale.ROOT, "   %s: %,d +/- %,d", label,
+        Math.round(interval.getValue()), Math.round(interval.getMargin()));
+  }
+
+  /**
+   * Reads the headers of a tar archive given as a root, sorted the way the
+   * options sort directories, or printed in archive order when unsorted.
+   * An archive that cannot be read is reported in place of its tree.
+   *
+   * @param context the context of the call, to report a failure through
+   * @param root    the archive file
+   * @return the tree inside the archive, or null if it could not be read
+   */
+  private static TarArchive readArchive(RenderContext context, File root){
+    try {
+      return TarArchive.read(root.toPath(), context.options.isUnsorted() ? null : context.options.getSorter());
+    } catch (IOException e) {
+      printMessage(context, "invalid archive: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Returns the test entries must pass to be printed, or null if every entry
+   * is printed. An entry must pass every filter asked for; the type, size and
+   * age filters are checked first, since they need only the attributes already
+   * read, then the name, and file contents last.
+   *
+   * @param treeOptions the options of the call
+   * @return an attribute, name or content test, or null
+   */
+  private static Predicate<TreeEntry> searchFor(TruffulaOptions treeOptions) {
+    Predicate<TreeEntry> match = null;
+    AttributeFilter attributes = AttributeFilter.of(treeOptions);
+    if(attributes != null){
+      match = attributes::matches;
+    }
+    if(treeOptions.getFindGlob() != null){
+      Predicate<TreeEntry> name = new NameMatcher(treeOptions.getFindGlob())::matches;
+      match = match == null ? name : match.and(name);
+    }
+    if(treeOptions.getGrepPattern() != null){
+      Predicate<TreeEntry> content = new ContentMatcher(treeOptions.getGrepPattern())::matches;
+      match = match == null ? content : match.and(content);
+    }
+    return match;
+  }
+
+  /**
+   * Returns the lister to walk the file system with. Unsorted walks stream
+   * every directory through an UnsortedLister. With a sort budget, directories
+   * are read by an ExternalSortLister so that no directory needs more than the
+   * budget of names in memory. The rest is as for
+   * walkLister(TruffulaOptions, DirectoryLister, CancellationHandle).
+   *
+   * @param treeOptions  the options of the call
+   * @param cancellation the handle that abandons the call's waits when cancelled
+   * @return the lister for the options
+   */
+  private DirectoryLister walkLister(TruffulaOptions treeOptions, CancellationHandle cancellation) {
+    DirectoryLister walk = lister;
+    if(treeOptions.isUnsorted()){
+      walk = new UnsortedLister();
+    }
+    else if(treeOptions.getSortBudget() > 0){
+      walk = new ExternalSortLister(treeOptions.getSortBudget());
+    }
+    return walkLister(treeOptions, walk, cancellation);
+  }
+
+  /**
+   * Returns the lister to walk with, reading directories through the given
+   * lister. With a collapse threshold, larger directories are
+   * counted by a CollapsingLister instead. With a timeout or deadline, listings are waited on
+   * through a TimeoutLister whose deadline starts now. When hidden files are not
+   * shown, hidden entries are filtered out of every listing so hidden directories
+   * are never descended into.
+   *
+   * @param treeOptions  the options of the call
+   * @param walk         the lister that reads and sorts each directory
+   * @param cancellation the handle that abandons the call's waits when cancelled
+   * @return the lister for the options
+   */
+  private DirectoryLister walkLister(TruffulaOptions treeOptions, DirectoryLister walk,
+      CancellationHandle cancellation) {
+    if(treeOptions.getCollapseThreshold() > 0){
+      // An archive's directories are not on disk, so they are counted from its listings
+      walk = new CollapsingLister(walk, treeOptions.getCollapseThreshold(), treeOptions.isShowHidden(),
+          !(walk instanceof TarArchive));
+    }
+    if(treeOptions.getTimeoutMillis() > 0 || treeOptions.getDeadlineMillis() > 0){
+      walk = new TimeoutLister(walk, treeOptions.getTimeoutMillis(), treeOptions.getDeadlineMillis(), cancellation);
+    }
+    return treeOptions.isShowHidden() ? walk : new HiddenFilterLister(walk);
+  }
+
+  /**
+   * Prints a tree that was walked earlier and held in memory, in the same
+   * format as printTree. The tree is printed as it was walked; the options'
+   * hidden and sorting settings are not applied again.
+   *
+   * @param tree the tree to print
+   */
+  public void printTree(CompactTree tree) {
+    RenderContext context = new RenderContext(options, outStream, lister, null, null, null, new CancellationHandle());
+    if(context.html != null){
+      HtmlTreeWriter.writeHeader(outStream, tree.size() == 0 ? "" : tree.getName(0));
+    }
+    // The ids of the current entry's ancestors, so depths need no parent chain walks
+    int[] ancestors = new int[16];
+    int depth = 0;
+    for(int id = 0; id < tree.size(); id++){
+      int parent = tree.getParent(id);
+      while(depth > 0 && ancestors[depth - 1] != parent){
+        depth--;
+      }
+      EntryStatus status = tree.getStatus(id);
+      printLine(context, depthColor(context, depth), depth, tree.getName(id), tree.isDirectory(id),
+          status.isError() && !options.isShowErrors() ? "" : status.getMarker());
+      if(depth == ancestors.length){
+        ancestors = Arrays.copyOf(ancestors, depth * 2);
+      }
+      ancestors[depth++] = id;
+    }
+    if(context.html != null){
+      context.html.endTree();
+      HtmlTreeWriter.writeFooter(outStream);
+    }
+  }
+
+  /**
+   * Prints a message that takes the place of a tree, such as a root that is
+   * not a directory: as a line of text, or as an escaped element of the page
+   * in HTML mode.
+   *
+   * @param context the context of the call
+   * @param message the message to print
+   */
+  private static void printMessage(RenderContext context, String message) {
+    if(context.html != null){
+      context.html.message(message);
+    }
+    else{
+      context.out.println(message);
+    }
+  }
+
+  /**
+   * Prints a single entry, indented and colored according to its depth.
+   *
+   * @param context the context of the call
+   * @param entry   the entry to print
+   */
+  private void printEntry(RenderContext context, TreeEntry entry) {
+    DirectoryCounts counts = entry.getCounts();
+    EntryStatus status = entry.getStatus();
+    String marker = counts != null ? counts.toString()
+        : status.isError() && !context.options.isShowErrors() ? "" : status.getMarker();
+    TextColor color = null;
+    if(context.options.isUseColor() && context.options.getLsColors() != null){
+      color = context.options.getLsColors().colorFor(entry);
+    }
+    if(color == null){
+      color = depthColor(context, entry.getDepth());
+    }
+    printLine(context, color, entry.getDepth(), entry.getName(), entry.isDirectory(), marker);
+  }
+
+  /**
+   * Returns the color for an entry at the given depth: the colors cycle by
+   * depth when color is enabled, and are all the first color otherwise.
+   *
+   * @param context the context of the call
+   * @param level   the depth of the entry
+   * @return the color of the depth
+   */
+  private TextColor depthColor(RenderContext context, int level) {
+    if(context.options.isUseColor()){
+      return colorSequence.get(level % colorSequence.size());
+    }
+    return colorSequence.get(0);
+  }
+
+  /**
+   * Prints one line of the tree in the given color, indented according to its depth.
+   *
+   * @param context   the context of the call
+   * @param color     the color of the line
+   * @param level     the depth of the entry
+   * @param name      the name of the entry
+   * @param directory whether the entry is a directory
+   * @param marker    the text printed after the name, such as "[timed out]", or ""
+   */
+  private void printLine(RenderContext context, TextColor color, int level, String name, boolean directory,
+      String marker) {
+    if(context.html != null){
+      // LS_COLORS sequences have no class in the page, so those entries keep their depth color
+      String cssClass = HtmlTreeWriter.cssClass(color);
+      if(cssClass == null){
+        cssClass = HtmlTreeWriter.cssClass(depthColor(context, level));
+      }
+      context.html.entry(level, name, directory, marker, cssClass);
+      return;
+    }
+    //3 space for each level
+    String space = "   ".repeat(level);
+    context.out.setCurrentColor(color);
+
+    String suffix = marker.isEmpty() ? "" : " " + marker;
+    if(directory){
+      context.out.println(space + name + '/' + suffix);
+    }else{
+      context.out.println(space + name + suffix);
     }
   }
-}
\ No newline at end of file
+}
@@ -9,6 +9,13 @@ import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -359,7 +366,7 @@ public void testPrintTree_HiddenFileTester(@TempDir File tempDir) throws IOExcep
     createHiddenFile(myFolder, ".hidden.txt");
 
     // Set up TruffulaOptions with showHidden = false and useColor = true
-    TruffulaOptions options = new TruffulaOptions(myFolder, true, true);
+    TruffulaOptions options = new TruffulaOptions(myFolder, false, true);
 
     // Capture output using a custom PrintStream
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -413,7 +420,7 @@ public void testPrintTree_MultipleHiddenFileTester(@TempDir File tempDir) throws
     // Create files in Documents
 
     // Set up TruffulaOptions with showHidden = false and useColor = true
-    TruffulaOptions options = new TruffulaOptions(myFolder, true, true);
+    TruffulaOptions options = new TruffulaOptions(myFolder, false, true);
 
     // Capture output using a custom PrintStream
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -455,7 +462,7 @@ public void testPrintTree_onlyHiddenFileTester(@TempDir File tempDir) throws IOE
 
 
     // Set up TruffulaOptions with showHidden = false and useColor = true
-    TruffulaOptions options = new TruffulaOptions(tempDir, true, true);
+    TruffulaOptions options = new TruffulaOptions(tempDir, false, true);
 
     // Capture output using a custom PrintStream
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -643,10 +650,316 @@ public void testPrintTree_onlyHiddenFileTester(@TempDir File tempDir) throws IOE
         assertEquals(expected.toString(), output);
 }
 
+@Test
+    public void testPrintTree_MultipleRootsInOrder(@TempDir File tempDir) throws IOException {
+
+        // Build several roots, each with a single file
+        List<File> roots = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            File root = new File(tempDir, "root" + i);
+            assertTrue(root.mkdir(), "root should be created");
+            new File(root, "file" + i + ".txt").createNewFile();
+            roots.add(root);
+        }
+
+        TruffulaOptions options = new TruffulaOptions(roots, false, false);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(baos);
+        TruffulaPrinter printer = new TruffulaPrinter(options, printStream);
+        printer.printTree();
+
+        String output = baos.toString();
+        String nl = System.lineSeparator();
+        ConsoleColor reset = ConsoleColor.RESET;
+        ConsoleColor white = ConsoleColor.WHITE;
+
+        // Each root is one contiguous block, printed with its path, in the given order
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            expected.append(white).append(roots.get(i).getPath() + '/').append(nl).append(reset);
+            expected.append(white).append("   file" + i + ".txt").append(nl).append(reset);
+        }
+
+        assertEquals(expected.toString(), output);
+}
+
+@Test
+public void testPrintTree_ShowHiddenPrintsHiddenEntries(@TempDir File tempDir) throws IOException {
+
+    // Create "myFolder" with a hidden file and a hidden folder
+    File myFolder = new File(tempDir, "myFolder");
+    assertTrue(myFolder.mkdir(), "myFolder should be created");
+    new File(myFolder, "visible.txt").createNewFile();
+    createHiddenFile(myFolder, ".hidden.txt");
+    File git = new File(myFolder, ".git");
+    assertTrue(git.mkdir(), ".git should be created");
+    new File(git, "config").createNewFile();
+
+    // Set up TruffulaOptions with showHidden = true and useColor = true
+    TruffulaOptions options = new TruffulaOptions(myFolder, true, true);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    PrintStream printStream = new PrintStream(baos);
+    TruffulaPrinter printer = new TruffulaPrinter(options, printStream);
+    printer.printTree();
+
+    String output = baos.toString();
+    String nl = System.lineSeparator();
+    ConsoleColor reset = ConsoleColor.RESET;
+    ConsoleColor white = ConsoleColor.WHITE;
+    ConsoleColor purple = ConsoleColor.PURPLE;
+    ConsoleColor yellow = ConsoleColor.YELLOW;
+
+    StringBuilder expected = new StringBuilder();
+    expected.append(white).append("myFolder/").append(nl).append(reset);
+    expected.append(purple).append("   .git/").append(nl).append(reset);
+    expected.append(yellow).append("      config").append(nl).append(reset);
+    expected.append(purple).append("   .hidden.txt").append(nl).append(reset);
+    expected.append(purple).append("   visible.txt").append(nl).append(reset);
+
+    assertEquals(expected.toString(), output);
+}
+
+@Test
+public void testPrintTree_HiddenFolderIsNotDescended(@TempDir File tempDir) throws IOException {
+
+    // Create "myFolder" with a hidden folder holding a visible file
+    File myFolder = new File(tempDir, "myFolder");
+    assertTrue(myFolder.mkdir(), "myFolder should be created");
+    new File(myFolder, "visible.txt").createNewFile();
+    File git = new File(myFolder, ".git");
+    assertTrue(git.mkdir(), ".git should be created");
+    new File(git, "config").createNewFile();
+
+    // Count the directories that are listed
+    List<String> listed = new ArrayList<>();
+    FileSystemLister fileSystem = new FileSystemLister();
+    DirectoryLister counting = directory -> {
+        listed.add(directory.getName());
+        return fileSystem.list(directory);
+    };
+
+    // Set up TruffulaOptions with showHidden = false and useColor = true
+    TruffulaOptions options = new TruffulaOptions(myFolder, false, true);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    PrintStream printStream = new PrintStream(baos);
+    TruffulaPrinter printer = new TruffulaPrinter(options, printStream, counting);
+    printer.printTree();
+
+    String output = baos.toString();
+    String nl = System.lineSeparator();
+    ConsoleColor reset = ConsoleColor.RESET;
+    ConsoleColor white = ConsoleColor.WHITE;
+    ConsoleColor purple = ConsoleColor.PURPLE;
+
+    StringBuilder expected = new StringBuilder();
+    expected.append(white).append("myFolder/").append(nl).append(reset);
+    expected.append(purple).append("   visible.txt").append(nl).append(reset);
+
+    assertEquals(expected.toString(), output);
+    assertEquals(List.of("myFolder"), listed);
+}
+
+
+@Test
+public void testPrintTree_MultipleRootsStreamFirstRoot(@TempDir File tempDir) throws Exception {
+
+    // first/hung/ cannot be listed until released; second/ is ready at once
+    File first = new File(tempDir, "first");
+    assertTrue(new File(first, "hung").mkdirs());
+    File second = new File(tempDir, "second");
+    assertTrue(second.mkdirs());
+    CountDownLatch listing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    DirectoryLister blocking = directory -> {
+        if (directory.getName().equals("hung")) {
+            listing.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new FileSystemLister().list(directory);
+    };
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", first.getPath(), second.getPath()});
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    TruffulaPrinter printer = new TruffulaPrinter(options, new PrintStream(output), blocking);
+
+    Thread print = new Thread(printer::printTree);
+    print.start();
+    assertTrue(listing.await(10, TimeUnit.SECONDS));
+    // The first root is written while it is still being walked, not held until it ends
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!output.toString().contains(first.getPath()) && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+    }
+    String whileWalking = output.toString();
+    release.countDown();
+    print.join(10_000);
+
+    assertTrue(whileWalking.contains(first.getPath() + "/"), whileWalking);
+    assertFalse(whileWalking, whileWalking.contains(second.getPath()));
+    assertTrue(output.toString().indexOf(second.getPath()) > output.toString().indexOf("hung/"), output.toString());
 }
 
+@Test
+public void testPrintTree_SharedPrinterConcurrentCalls(@TempDir File tempDir) throws Exception {
+
+    // Two trees that print differently, so mixed-up output is caught
+    List<File> roots = new ArrayList<>();
+    for (int t = 0; t < 2; t++) {
+        File root = new File(tempDir, "tree" + t);
+        for (int d = 0; d < 5; d++) {
+            File dir = new File(root, "dir" + d);
+            assertTrue(dir.mkdirs());
+            for (int f = 0; f <= t + d; f++) {
+                new File(dir, "file" + f + ".txt").createNewFile();
+            }
+        }
+        roots.add(root);
+    }
 
+    TruffulaOptions options = new TruffulaOptions(roots.get(0), false, true);
+    TruffulaPrinter shared = new TruffulaPrinter(options, new PrintStream(new ByteArrayOutputStream()));
 
+    List<String> expected = new ArrayList<>();
+    for (File root : roots) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new TruffulaPrinter(options.withRoot(root), new PrintStream(baos)).printTree();
+        expected.add(baos.toString());
+    }
 
+    // Many threads print through one printer at once, each to its own stream
+    int threads = 16;
+    int rounds = 25;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+        int tree = i % roots.size();
+        results.add(pool.submit(() -> {
+            start.await();
+            int mismatches = 0;
+            for (int r = 0; r < rounds; r++) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                shared.printTree(roots.get(tree), new PrintStream(baos));
+                if (!expected.get(tree).equals(baos.toString())) {
+                    mismatches++;
+                }
+            }
+            return mismatches;
+        }));
+    }
+    start.countDown();
 
+    int mismatches = 0;
+    for (Future<Integer> result : results) {
+        mismatches += result.get(60, TimeUnit.SECONDS);
+    }
+    pool.shutdown();
 
+    assertEquals(0, mismatches);
+}
+
+@Test
+public void testPrintTree_GrepPrintsOnlyMatchingBranches(@TempDir File tempDir) throws IOException {
+
+    // myFolder/docs/notes.txt and myFolder/src/deep/Main.java mention the trees; nothing else does
+    File myFolder = new File(tempDir, "myFolder");
+    assertTrue(new File(myFolder, "docs").mkdirs());
+    assertTrue(new File(myFolder, "src/deep").mkdirs());
+    assertTrue(new File(myFolder, "empty").mkdirs());
+    Files.writeString(new File(myFolder, "docs/notes.txt").toPath(), "speak for the trees\n");
+    Files.writeString(new File(myFolder, "docs/other.txt").toPath(), "nothing here\n");
+    Files.writeString(new File(myFolder, "src/deep/Main.java").toPath(), "// the trees\n");
+    Files.writeString(new File(myFolder, "src/Util.java").toPath(), "// utilities\n");
+    Files.writeString(new File(myFolder, "top.txt").toPath(), "top\n");
+
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", "--grep", "the tree", myFolder.getPath()});
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new TruffulaPrinter(options, new PrintStream(baos)).printTree();
+
+    String nl = System.lineSeparator();
+    ConsoleColor reset = ConsoleColor.RESET;
+    ConsoleColor white = ConsoleColor.WHITE;
+
+    StringBuilder expected = new StringBuilder();
+    expected.append(white).append("myFolder/").append(nl).append(reset);
+    expected.append(white).append("   docs/").append(nl).append(reset);
+    expected.append(white).append("      notes.txt").append(nl).append(reset);
+    expected.append(white).append("   src/").append(nl).append(reset);
+    expected.append(white).append("      deep/").append(nl).append(reset);
+    expected.append(white).append("         Main.java").append(nl).append(reset);
+
+    assertEquals(expected.toString(), baos.toString());
+}
+
+@Test
+public void testPrintTree_FindPrintsOnlyMatchingNames(@TempDir File tempDir) throws IOException {
+
+    // Java files at two depths, a directory whose own name matches, and files that do not
+    File myFolder = new File(tempDir, "myFolder");
+    assertTrue(new File(myFolder, "src/deep").mkdirs());
+    assertTrue(new File(myFolder, "docs").mkdirs());
+    assertTrue(new File(myFolder, "old.java").mkdirs());
+    new File(myFolder, "src/App.java").createNewFile();
+    new File(myFolder, "src/notes.txt").createNewFile();
+    new File(myFolder, "src/deep/Tree.java").createNewFile();
+    new File(myFolder, "docs/guide.md").createNewFile();
+    new File(myFolder, "old.java/readme.txt").createNewFile();
+
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", "--find", "*.java", myFolder.getPath()});
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new TruffulaPrinter(options, new PrintStream(baos)).printTree();
+
+    String nl = System.lineSeparator();
+    ConsoleColor reset = ConsoleColor.RESET;
+    ConsoleColor white = ConsoleColor.WHITE;
+
+    StringBuilder expected = new StringBuilder();
+    expected.append(white).append("myFolder/").append(nl).append(reset);
+    expected.append(white).append("   old.java/").append(nl).append(reset);
+    expected.append(white).append("   src/").append(nl).append(reset);
+    expected.append(white).append("      App.java").append(nl).append(reset);
+    expected.append(white).append("      deep/").append(nl).append(reset);
+    expected.append(white).append("         Tree.java").append(nl).append(reset);
+
+    assertEquals(expected.toString(), baos.toString());
+}
+
+@Test
+public void testPrintTree_EstimatePrintsTotals(@TempDir File tempDir) throws IOException {
+
+    // Two directories holding one 5 byte file each: every probe sees the same totals
+    File myFolder = new File(tempDir, "myFolder");
+    for (String name : new String[] {"a", "b"}) {
+        File dir = new File(myFolder, name);
+        assertTrue(dir.mkdirs());
+        Files.write(new File(dir, "data.bin").toPath(), new byte[5]);
+    }
+
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-nc", "--estimate", myFolder.getPath()});
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new TruffulaPrinter(options, new PrintStream(baos)).printTree();
+
+    String nl = System.lineSeparator();
+    ConsoleColor reset = ConsoleColor.RESET;
+    ConsoleColor white = ConsoleColor.WHITE;
+
+    StringBuilder expected = new StringBuilder();
+    expected.append(white).append(myFolder.getPath() + "/ (estimated from " + TreeEstimator.MAX_PROBES
+        + " probes, 3 directories listed)").append(nl).append(reset);
+    expected.append(white).append("   files: 2 +/- 0").append(nl).append(reset);
+    expected.append(white).append("   directories: 2 +/- 0").append(nl).append(reset);
+    expected.append(white).append("   bytes: 10 +/- 0").append(nl).append(reset);
+
+    assertEquals(expected.toString(), baos.toString());
+}
+
+}
@@ -0,0 +1,66 @@
+import java.io.File;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Entry point for walking a directory tree as a Stream of TreeEntry objects.
+ * 
+ * The streams returned here are backed by a TreeSpliterator, so directories are
+ * listed lazily as the stream is consumed and entries are reported in the same
+ * depth-first, case-insensitive order that TruffulaPrinter prints them in.
+ * 
+ * Example Usage:
+ * 
+ * try (Stream<TreeEntry> tree = TruffulaTree.stream(new File("src"))) {
+ *   tree.filter(entry -> entry.getName().endsWith(".java"))
+ *       .findFirst()
+ *       .ifPresent(System.out::println);
+ * }
+ * 
+ * The streams are sequential by default; call parallel() to walk independent
+ * subtrees on several threads. Encounter order is preserved either way.
+ * Close the stream, as above, to release any directories a streaming lister
+ * still holds open when the walk stops early.
+ */
+public class TruffulaTree {
+
+  /**
+   * Returns a stream over the tree rooted at the given file, using the
+   * default file system lister.
+   *
+   * @param root the file or directory at which to start the walk
+   * @return a lazily populated stream of the entries in the tree
+   */
+  public static Stream<TreeEntry> stream(File root) {
+    return stream(FileSystemLister.entry(root, 0), new FileSystemLister());
+  }
+
+  /**
+   * Returns a stream over the tree rooted at the options' root, visiting each
+   * directory's entries in the order of the options' sorter. Hidden entries are left
+   * out, without descending into hidden directories, unless the options ask
+   * for hidden files to be shown.
+   *
+   * @param options the options naming the root and whether to show hidden files
+   * @return a lazily populated stream of the entries in the tree
+   */
+  public static Stream<TreeEntry> stream(TruffulaOptions options) {
+    DirectoryLister lister = new FileSystemLister(options.getSorter());
+    if (!options.isShowHidden()) {
+      lister = new HiddenFilterLister(lister);
+    }
+    return stream(FileSystemLister.entry(options.getRoot(), 0), lister);
+  }
+
+  /**
+   * Returns a stream over the tree rooted at the given entry.
+   *
+   * @param root   the entry at which to start the walk
+   * @param lister the lister used to read the children of each directory
+   * @return a lazily populated stream of the entries in the tree
+   */
+  public static Stream<TreeEntry> stream(TreeEntry root, DirectoryLister lister) {
+    TreeSpliterator spliterator = new TreeSpliterator(root, lister);
+    return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+  }
+}
@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A DirectoryLister that returns children in whatever order the file system
+ * produces them, without sorting.
+ * 
+ * Every listing streams straight from a DirectoryStream, so no per-directory
+ * array is ever built: a walk holds one open directory per level of depth and
+ * nothing else, and its memory use is proportional to the depth of the tree
+ * rather than the size of its largest directory. The only work per entry is
+ * reading its attributes, which is needed to tell directories from files.
+ * 
+ * A directory that cannot be read to the end ends its listing there, with
+ * the reason as its status (see DirectoryListing.Cursor), rather than
+ * silently looking smaller than it is.
+ */
+public class UnsortedLister implements DirectoryLister {
+
+  /**
+   * Lists the children of the given directory into an array, in file system order.
+   *
+   * @param directory the directory entry to list
+   * @return the children of the directory, or null if it cannot be read
+   */
+  @Override
+  public TreeEntry[] list(TreeEntry directory) {
+    return DirectoryLister.drain(open(directory));
+  }
+
+  /**
+   * Opens the children of the given directory as a stream, in file system order.
+   *
+   * @param directory the directory entry to list
+   * @return a streaming listing of the children, or a failed listing if the directory cannot be read
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory) {
+    DirectoryStream<Path> stream;
+    try {
+      stream = Files.newDirectoryStream(directory.getPath());
+    } catch (IOException e) {
+      return DirectoryListing.failed(FileSystemLister.statusOf(e));
+    }
+
+    Iterator<Path> paths = stream.iterator();
+    int depth = directory.getDepth() + 1;
+    DirectoryListing.Cursor entries = new DirectoryListing.Cursor() {
+      private EntryStatus status = EntryStatus.OK;
+
+      @Override
+      public boolean hasNext() {
+        if (status != EntryStatus.OK) {
+          return false;
+        }
+        try {
+          return paths.hasNext();
+        } catch (DirectoryIteratorException e) {
+          // The directory became unreadable part way through; stop here and say why
+          status = FileSystemLister.statusOf(e.getCause());
+          return false;
+        }
+      }
+
+      @Override
+      public TreeEntry next() {
+        Path child = paths.next();
+        return FileSystemLister.child(child, child.getFileName().toString(), depth);
+      }
+
+      @Override
+      public EntryStatus getStatus() {
+        return status;
+      }
+    };
+    return DirectoryListing.streaming(entries, stream);
+  }
+
+  /**
+   * Opens the children of the given directory from names already read, in
+   * the order they were read, without reading the directory again.
+   *
+   * @param directory the directory entry to list
+   * @param names     the names of every child, in the order the file system returned them
+   * @return the children of the directory
+   */
+  @Override
+  public DirectoryListing open(TreeEntry directory, List<String> names) {
+    return DirectoryListing.of(FileSystemLister.children(directory, names));
+  }
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class UnsortedListerTest {
+
+  @Test
+  void testListingStreamsEveryChild(@TempDir File tempDir) throws IOException {
+    for (int i = 0; i < 25; i++) {
+      new File(tempDir, "file" + i).createNewFile();
+    }
+    new File(tempDir, "sub").mkdir();
+
+    Set<String> seen = new HashSet<>();
+    try (DirectoryListing listing = new UnsortedLister().open(FileSystemLister.entry(tempDir, 0))) {
+      assertTrue(listing.isStreaming());
+      for (Iterator<TreeEntry> it = listing.iterator(); it.hasNext(); ) {
+        TreeEntry entry = it.next();
+        assertEquals(1, entry.getDepth());
+        assertEquals(entry.getName().equals("sub"), entry.isDirectory());
+        seen.add(entry.getName());
+      }
+    }
+
+    assertEquals(26, seen.size());
+  }
+
+  @Test
+  void testUnsortedOptionPrintsEveryEntryUnderItsParent(@TempDir File tempDir) throws IOException {
+    File root = new File(tempDir, "root");
+    new File(root, "b/c").mkdirs();
+    new File(root, "a.txt").createNewFile();
+    new File(root, "b/c/d.txt").createNewFile();
+    new File(root, "b/e.txt").createNewFile();
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    TruffulaOptions options = new TruffulaOptions(new String[] {"-U", "-nc", root.getPath()});
+    new TruffulaPrinter(options, new PrintStream(baos)).printTree();
+
+    String reset = ConsoleColor.RESET.getCode();
+    String white = ConsoleColor.WHITE.getCode();
+    List<String> lines = List.of(baos.toString().replace(reset, "").replace(white, "")
+        .split(System.lineSeparator()));
+
+    assertEquals(6, lines.size());
+    assertEquals("root/", lines.get(0));
+    assertEquals(Set.of("   a.txt", "   b/", "      c/", "         d.txt", "      e.txt", "root/"),
+        new HashSet<>(lines));
+    int b = lines.indexOf("   b/");
+    int c = lines.indexOf("      c/");
+    assertTrue(b < c && c + 1 == lines.indexOf("         d.txt"));
+    assertTrue(b < lines.indexOf("      e.txt"));
+  }
+}
@@ -0,0 +1,44 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The thread pool shared by everything in one Truffula process that walks
+ * trees in the background, such as printing several roots at once.
+ * 
+ * Sharing a single pool keeps the number of threads bounded no matter how many
+ * roots or requests are in flight. The threads are daemon threads, so an idle
+ * pool never keeps the JVM alive. Tasks submitted here must not wait for other
+ * tasks submitted here, or the pool could run out of threads.
+ */
+public class WorkerPool {
+
+  /**
+   * Holds the pool so it is only created the first time it is used.
+   */
+  private static final class Holder {
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(size(), task -> {
+      Thread thread = new Thread(task, "truffula-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Returns the shared pool.
+   *
+   * @return the process-wide worker pool
+   */
+  public static ExecutorService shared() {
+    return Holder.POOL;
+  }
+
+  /**
+   * Returns the number of threads in the shared pool. Listing directories
+   * mostly waits on the disk, so the pool is larger than the number of cores.
+   *
+   * @return the number of worker threads
+   */
+  public static int size() {
+    return Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+  }
+}